@@ -2,11 +2,27 @@ package com.casemate.pro;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
+@EnableScheduling
 public class CaseMateProApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(CaseMateProApplication.class, args);
+        SpringApplication application = new SpringApplication(CaseMateProApplication.class);
+        application.setDefaultProperties(Map.of(
+            // Release connections when the service transaction ends rather than after the response is written
+            "spring.jpa.open-in-view", "false",
+            // Schemas created by Hibernate auto-DDL before migrations existed are adopted as V1
+            "spring.flyway.baseline-on-migrate", "true",
+            "spring.flyway.baseline-version", "1",
+            // Group inserts and updates into JDBC batches (bulk notifications, saveAll)
+            "spring.jpa.properties.hibernate.jdbc.batch_size", "50",
+            "spring.jpa.properties.hibernate.order_inserts", "true",
+            "spring.jpa.properties.hibernate.order_updates", "true"
+        ));
+        application.run(args);
     }
 }
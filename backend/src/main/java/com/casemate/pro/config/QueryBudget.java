@@ -0,0 +1,74 @@
+package com.casemate.pro.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares while a request is being handled, so N+1
+ * regressions show up as budget overruns. Off unless {@code jpa.query-budget.enabled=true}.
+ * An overrun is logged; with {@code jpa.query-budget.enforce=true} (meant for tests) the
+ * statement that crosses the budget fails instead, which fails the request.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa.query-budget.enabled", havingValue = "true")
+@Slf4j
+public class QueryBudget implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final class Usage {
+        private final String request;
+        private int statements;
+
+        private Usage(String request) {
+            this.request = request;
+        }
+    }
+
+    private final ThreadLocal<Usage> current = new ThreadLocal<>();
+
+    @Value("${jpa.query-budget.max-per-request:20}")
+    private int maxPerRequest;
+
+    @Value("${jpa.query-budget.enforce:false}")
+    private boolean enforce;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Usage usage = current.get();
+        if (usage != null && ++usage.statements > maxPerRequest && enforce) {
+            throw new IllegalStateException("Query budget of " + maxPerRequest + " statements exceeded by "
+                + usage.request + ": " + sql);
+        }
+        return sql;
+    }
+
+    void begin(String request) {
+        current.set(new Usage(request));
+    }
+
+    /**
+     * Ends tracking for the current thread and returns the number of statements it ran.
+     */
+    int end() {
+        Usage usage = current.get();
+        current.remove();
+        if (usage == null) {
+            return 0;
+        }
+        if (usage.statements > maxPerRequest) {
+            log.warn("{} ran {} SQL statements (budget {})", usage.request, usage.statements, maxPerRequest);
+        }
+        return usage.statements;
+    }
+}
@@ -1,10 +1,13 @@
 package com.casemate.pro.config;
 
 import com.casemate.pro.security.AuthTokenFilter;
+import com.casemate.pro.security.RateLimitFilter;
 import com.casemate.pro.security.UserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -25,10 +28,14 @@ public class SecurityConfig {
 
     private final UserDetailsServiceImpl userDetailsService;
     private final AuthTokenFilter authTokenFilter;
+    private final RateLimitFilter rateLimitFilter;
+
+    @Value("${security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -52,10 +59,12 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll() // Corrected path
                 .requestMatchers("/h2-console/**").permitAll() // For H2 database console in development
+                .requestMatchers(HttpMethod.GET, "/api/hearings/feed.ics").permitAll() // Authenticated by its feed token
                 .anyRequest().authenticated()
             )
             .authenticationProvider(authenticationProvider())
-            .addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(rateLimitFilter, AuthTokenFilter.class);
 
         // Disable frame options for H2 console
         http.headers(headers -> headers.frameOptions(frameOptions -> frameOptions.disable()));
@@ -70,6 +79,12 @@ public class SecurityConfig {
         configuration.addAllowedOriginPattern("*"); // Allow all origins in development
         configuration.addAllowedHeader("*");
         configuration.addAllowedMethod("*");
+        // Let browser clients read validators for conditional requests and resume downloads
+        configuration.addExposedHeader("ETag");
+        configuration.addExposedHeader("Last-Modified");
+        configuration.addExposedHeader("Accept-Ranges");
+        configuration.addExposedHeader("Content-Range");
+        configuration.addExposedHeader("Content-Disposition");
 
         org.springframework.web.cors.UrlBasedCorsConfigurationSource source =
             new org.springframework.web.cors.UrlBasedCorsConfigurationSource();
@@ -3,14 +3,18 @@ package com.casemate.pro.controller;
 import com.casemate.pro.dto.AuthResponse;
 import com.casemate.pro.dto.LoginRequest;
 import com.casemate.pro.dto.ProfileUpdateRequest;
+import com.casemate.pro.dto.RefreshTokenRequest;
 import com.casemate.pro.dto.RegisterRequest;
 import com.casemate.pro.entity.User;
+import com.casemate.pro.exception.ServiceOverloadedException;
 import com.casemate.pro.service.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.validation.FieldError;
@@ -39,15 +43,36 @@ public class AuthController {
         try {
             AuthResponse response = authService.login(request);
             return ResponseEntity.ok(response);
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        try {
+            AuthResponse response = authService.refresh(request.getRefreshToken());
+            return ResponseEntity.ok(response);
+        } catch (BadCredentialsException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    @PostMapping("/logout")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                       @RequestBody(required = false) RefreshTokenRequest request) {
+        String accessToken = authorization.startsWith("Bearer ") ? authorization.substring(7) : authorization;
+        authService.logout(accessToken, request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/me")
     public ResponseEntity<AuthResponse.UserResponse> getCurrentUser() {
         try {
-            User user = authService.getCurrentUser();
+            User user = authService.loadCurrentUser();
             AuthResponse.UserResponse userResponse = new AuthResponse.UserResponse(
                 user.getId(),
                 user.getEmail(),
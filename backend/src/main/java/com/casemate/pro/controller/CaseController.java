@@ -1,12 +1,21 @@
 package com.casemate.pro.controller;
 
+import com.casemate.pro.dto.BatchStatusRequest;
+import com.casemate.pro.dto.BatchStatusResult;
+import com.casemate.pro.dto.CaseEventResponse;
 import com.casemate.pro.dto.CaseResponse;
+import com.casemate.pro.dto.CaseSummary;
+import com.casemate.pro.dto.CursorPage;
 import com.casemate.pro.entity.Case;
 import com.casemate.pro.entity.User;
+import com.casemate.pro.exception.PreconditionFailedException;
 import com.casemate.pro.service.AuthService;
 import com.casemate.pro.service.CaseService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -28,25 +38,29 @@ public class CaseController {
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getCases(
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String status,
-            @RequestParam(defaultValue = "recent") String sort) {
+            @RequestParam(defaultValue = "recent") String sort,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
             User currentUser = authService.getCurrentUser();
-            Page<Case> casePage;
+            CursorPage<CaseSummary> casePage;
 
             if (currentUser.getRole() == User.Role.LAWYER) {
-                casePage = caseService.getCasesByLawyer(currentUser, page, size, status, sort);
+                casePage = caseService.getCasesByLawyer(currentUser, cursor, page, size, status, sort, includeTotal);
             } else {
-                casePage = caseService.getCasesByClient(currentUser, page, size);
+                casePage = caseService.getCasesByClient(currentUser, cursor, page, size, includeTotal);
             }
 
             Map<String, Object> response = new HashMap<>();
-            response.put("cases", casePage.getContent());
-            response.put("total", casePage.getTotalElements());
-            response.put("limit", size);
-            response.put("offset", page * size);
+            response.put("cases", casePage.getItems());
+            response.put("nextCursor", casePage.getNextCursor());
+            response.put("hasMore", casePage.isHasMore());
+            if (casePage.getTotal() != null) {
+                response.put("total", casePage.getTotal());
+            }
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -56,12 +70,22 @@ public class CaseController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getCaseById(@PathVariable UUID id) {
+    public ResponseEntity<Object> getCaseById(@PathVariable UUID id,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             User currentUser = authService.getCurrentUser();
+            if (ifNoneMatch != null) {
+                // Revalidation: compare against the version alone before loading the case
+                Optional<Long> version = caseService.getCaseVersion(id, currentUser);
+                if (version.isPresent() && ETags.noneMatchHits(ifNoneMatch, ETags.of(version.get()))) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(ETags.of(version.get()))
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .build();
+                }
+            }
             Case caseEntity = caseService.getCaseById(id, currentUser);
-            CaseResponse response = convertToCaseResponse(caseEntity);
-            return ResponseEntity.ok(response);
+            return withETag(caseEntity);
         } catch (Exception e) {
             System.err.println("Error fetching case by ID: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
@@ -107,7 +131,7 @@ public class CaseController {
             lawyer.setId(UUID.fromString(lawyerId));
 
             Case newCase = caseService.createCase(caseData, currentUser, lawyer);
-            return ResponseEntity.ok(newCase);
+            return ResponseEntity.ok(CaseResponse.from(newCase));
         } catch (Exception e) {
             System.err.println("Error creating case: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
@@ -116,11 +140,14 @@ public class CaseController {
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('LAWYER')")
-    public ResponseEntity<Object> updateCase(@PathVariable UUID id, @RequestBody Case updateData) {
+    public ResponseEntity<Object> updateCase(@PathVariable UUID id, @RequestBody Case updateData,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
             User currentUser = authService.getCurrentUser();
-            Case updatedCase = caseService.updateCase(id, updateData, currentUser);
-            return ResponseEntity.ok(updatedCase);
+            Case updatedCase = caseService.updateCase(id, updateData, currentUser, ETags.ifMatchVersions(ifMatch));
+            return withETag(updatedCase);
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
         } catch (Exception e) {
             System.err.println("Error updating case: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
@@ -129,12 +156,18 @@ public class CaseController {
 
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('LAWYER')")
-    public ResponseEntity<Object> updateCaseStatus(@PathVariable UUID id, @RequestBody Map<String, String> statusRequest) {
+    public ResponseEntity<Object> updateCaseStatus(@PathVariable UUID id, @RequestBody Map<String, String> statusRequest,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                   @RequestHeader(value = "Prefer", required = false) String prefer) {
         try {
             User currentUser = authService.getCurrentUser();
             Case.Status newStatus = Case.Status.valueOf(statusRequest.get("status").toUpperCase());
-            Case updatedCase = caseService.updateCaseStatus(id, newStatus, currentUser);
-            return ResponseEntity.ok(updatedCase);
+            Case changed = caseService.updateCaseStatus(id, newStatus, currentUser, ETags.ifMatchVersions(ifMatch));
+            return statusChanged(changed, prefer);
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (IllegalArgumentException e) {
             System.err.println("Invalid status provided: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid case status provided."));
@@ -147,13 +180,42 @@ public class CaseController {
         }
     }
 
+    @PutMapping("/status:batch")
+    @PreAuthorize("hasRole('LAWYER')")
+    public ResponseEntity<Object> updateCaseStatuses(@Valid @RequestBody BatchStatusRequest request) {
+        Case.Status newStatus;
+        try {
+            newStatus = Case.Status.valueOf(request.getStatus().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid case status provided."));
+        }
+
+        try {
+            User currentUser = authService.getCurrentUser();
+            List<BatchStatusResult> results = caseService.updateCaseStatuses(request.getIds(), newStatus, currentUser);
+            long updated = results.stream().filter(result -> result.getResult() == BatchStatusResult.Outcome.UPDATED).count();
+            return ResponseEntity.ok(Map.of("results", results, "updated", updated));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            System.err.println("Runtime error updating case statuses: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}/accept")
     @PreAuthorize("hasRole('LAWYER')")
-    public ResponseEntity<Object> acceptCase(@PathVariable UUID id) {
+    public ResponseEntity<Object> acceptCase(@PathVariable UUID id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestHeader(value = "Prefer", required = false) String prefer) {
         try {
             User currentUser = authService.getCurrentUser();
-            Case updatedCase = caseService.updateCaseStatus(id, Case.Status.ACTIVE, currentUser);
-            return ResponseEntity.ok(updatedCase);
+            Case changed = caseService.acceptCase(id, currentUser, ETags.ifMatchVersions(ifMatch));
+            return statusChanged(changed, prefer);
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             System.err.println("Runtime error accepting case: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
@@ -165,11 +227,17 @@ public class CaseController {
 
     @PutMapping("/{id}/reject")
     @PreAuthorize("hasRole('LAWYER')")
-    public ResponseEntity<Object> rejectCase(@PathVariable UUID id) {
+    public ResponseEntity<Object> rejectCase(@PathVariable UUID id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestHeader(value = "Prefer", required = false) String prefer) {
         try {
             User currentUser = authService.getCurrentUser();
-            Case updatedCase = caseService.updateCaseStatus(id, Case.Status.CLOSED, currentUser);
-            return ResponseEntity.ok(updatedCase);
+            Case changed = caseService.rejectCase(id, currentUser, ETags.ifMatchVersions(ifMatch));
+            return statusChanged(changed, prefer);
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             System.err.println("Runtime error rejecting case: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
@@ -181,11 +249,17 @@ public class CaseController {
 
     @PutMapping("/{id}/close")
     @PreAuthorize("hasRole('LAWYER')")
-    public ResponseEntity<Object> closeCase(@PathVariable UUID id) {
+    public ResponseEntity<Object> closeCase(@PathVariable UUID id,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            @RequestHeader(value = "Prefer", required = false) String prefer) {
         try {
             User currentUser = authService.getCurrentUser();
-            Case updatedCase = caseService.updateCaseStatus(id, Case.Status.CLOSED, currentUser);
-            return ResponseEntity.ok(updatedCase);
+            Case changed = caseService.closeCase(id, currentUser, ETags.ifMatchVersions(ifMatch));
+            return statusChanged(changed, prefer);
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             System.err.println("Runtime error closing case: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
@@ -212,7 +286,7 @@ public class CaseController {
     public ResponseEntity<Object> getRecentCases(@RequestParam(defaultValue = "5") int limit) {
         try {
             User currentUser = authService.getCurrentUser();
-            List<Case> recentCases;
+            List<CaseSummary> recentCases;
 
             if (currentUser.getRole() == User.Role.LAWYER) {
                 recentCases = caseService.getRecentCasesByLawyer(currentUser, limit);
@@ -227,34 +301,60 @@ public class CaseController {
         }
     }
 
-    private CaseResponse convertToCaseResponse(Case caseEntity) {
-        CaseResponse response = new CaseResponse();
-        response.setId(caseEntity.getId());
-        response.setCaseNumber(caseEntity.getCaseNumber());
-        response.setTitle(caseEntity.getTitle());
-        response.setDescription(caseEntity.getDescription());
-        response.setStatus(caseEntity.getStatus().name());
-        
-        // Set client info
-        if (caseEntity.getClient() != null) {
-            CaseResponse.UserInfo clientInfo = new CaseResponse.UserInfo();
-            clientInfo.setId(caseEntity.getClient().getId().toString());
-            clientInfo.setName(caseEntity.getClient().getName());
-            response.setClient(clientInfo);
+    @GetMapping("/{id}/history")
+    public ResponseEntity<Object> getCaseHistory(@PathVariable UUID id,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            CursorPage<CaseEventResponse> history = caseService.getCaseHistory(id, currentUser, cursor, size);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("events", history.getItems());
+            response.put("nextCursor", history.getNextCursor());
+            response.put("hasMore", history.isHasMore());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            System.err.println("Error fetching case history: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
         }
-        
-        // Set lawyer info
-        if (caseEntity.getLawyer() != null) {
-            CaseResponse.UserInfo lawyerInfo = new CaseResponse.UserInfo();
-            lawyerInfo.setId(caseEntity.getLawyer().getId().toString());
-            lawyerInfo.setName(caseEntity.getLawyer().getName());
-            response.setLawyer(lawyerInfo);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Object> searchCases(@RequestParam String q,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            List<CaseSummary> results = caseService.searchCases(currentUser, q, limit);
+            return ResponseEntity.ok(Map.of("cases", results));
+        } catch (Exception e) {
+            System.err.println("Error searching cases: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
         }
-        
-        response.setCaseValue(caseEntity.getCaseValue());
-        response.setNextHearing(caseEntity.getNextHearing());
-        response.setUpdatedAt(caseEntity.getUpdatedAt());
-        response.setCreatedAt(caseEntity.getCreatedAt());
-        return response;
+    }
+
+    private ResponseEntity<Object> withETag(Case caseEntity) {
+        return ResponseEntity.ok()
+            .eTag(ETags.of(caseEntity.getVersion()))
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .body(CaseResponse.from(caseEntity));
+    }
+
+    // The service has already read the changed case, so either response costs no further query
+    private ResponseEntity<Object> statusChanged(Case caseEntity, String prefer) {
+        if (prefer != null && prefer.contains("return=minimal")) {
+            return ResponseEntity.noContent()
+                .eTag(ETags.of(caseEntity.getVersion()))
+                .header("Preference-Applied", "return=minimal")
+                .build();
+        }
+        return withETag(caseEntity);
+    }
+
+    private ResponseEntity<Object> preconditionFailed(RuntimeException e) {
+        String message = e instanceof PreconditionFailedException
+            ? e.getMessage()
+            : "The case was modified by another request";
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Map.of("error", message));
     }
 }
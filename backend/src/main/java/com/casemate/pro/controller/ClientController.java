@@ -1,11 +1,11 @@
 package com.casemate.pro.controller;
 
-import com.casemate.pro.entity.Case;
+import com.casemate.pro.dto.CaseSummary;
+import com.casemate.pro.dto.CursorPage;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.service.AuthService;
 import com.casemate.pro.service.ClientService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -30,15 +30,21 @@ public class ClientController {
     @GetMapping
     @PreAuthorize("hasRole('LAWYER')")
     public ResponseEntity<Map<String, Object>> getAllClients(
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
-            Page<User> clientPage = clientService.getAllClients(page, size, search);
+            CursorPage<User> clientPage = clientService.getAllClients(cursor, page, size, search, includeTotal);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("clients", clientPage.getContent());
-            response.put("total", clientPage.getTotalElements());
+            response.put("clients", clientPage.getItems());
+            response.put("nextCursor", clientPage.getNextCursor());
+            response.put("hasMore", clientPage.isHasMore());
+            if (clientPage.getTotal() != null) {
+                response.put("total", clientPage.getTotal());
+            }
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -67,7 +73,7 @@ public class ClientController {
         try {
             User currentUser = authService.getCurrentUser();
             UUID clientId = currentUser.getId();
-            List<Case> cases = clientService.getCasesByClientId(clientId);
+            List<CaseSummary> cases = clientService.getCasesByClientId(clientId);
             return ResponseEntity.ok(cases);
         } catch (RuntimeException e) {
             System.err.println("Authentication/User error in getMyCases: " + e.getMessage());
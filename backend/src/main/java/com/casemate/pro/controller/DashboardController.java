@@ -3,6 +3,7 @@ package com.casemate.pro.controller;
 import com.casemate.pro.dto.ClientDashboardResponse;
 import com.casemate.pro.dto.DashboardStatsResponse;
 import com.casemate.pro.dto.LawyerDashboardResponse;
+import com.casemate.pro.dto.RevenueBreakdownResponse;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.service.AuthService;
 import com.casemate.pro.service.DashboardService;
@@ -11,6 +12,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.YearMonth;
+
 @RestController
 @RequestMapping("/api/stats")
 @RequiredArgsConstructor
@@ -68,6 +71,19 @@ public class DashboardController {
         }
     }
 
+    @GetMapping("/revenue")
+    @PreAuthorize("hasRole('LAWYER')")
+    public ResponseEntity<RevenueBreakdownResponse> getRevenueBreakdown(
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            return ResponseEntity.ok(dashboardService.getRevenueBreakdown(currentUser, from, to));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/activities")
     public ResponseEntity<?> getRecentActivities() {
         try {
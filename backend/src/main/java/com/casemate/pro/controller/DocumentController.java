@@ -1,18 +1,23 @@
 package com.casemate.pro.controller;
 
+import com.casemate.pro.dto.CursorPage;
+import com.casemate.pro.dto.DocumentDownload;
 import com.casemate.pro.entity.Document;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.service.AuthService;
 import com.casemate.pro.service.DocumentService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.data.domain.Page;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,15 +35,21 @@ public class DocumentController {
     @GetMapping
     public ResponseEntity<Map<String, Object>> getDocuments(
             @RequestParam(required = false) UUID caseId,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         try {
             User currentUser = authService.getCurrentUser();
-            Page<Document> documentPage = documentService.getDocuments(currentUser, caseId, page, size);
+            CursorPage<Document> documentPage = documentService.getDocuments(currentUser, caseId, cursor, page, size, includeTotal);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("documents", documentPage.getContent());
-            response.put("total", documentPage.getTotalElements());
+            response.put("documents", documentPage.getItems());
+            response.put("nextCursor", documentPage.getNextCursor());
+            response.put("hasMore", documentPage.isHasMore());
+            if (documentPage.getTotal() != null) {
+                response.put("total", documentPage.getTotal());
+            }
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -88,19 +99,33 @@ public class DocumentController {
     }
 
     @GetMapping("/{id}/download")
-    public ResponseEntity<ByteArrayResource> downloadDocument(@PathVariable UUID id) {
+    public ResponseEntity<Resource> downloadDocument(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
         try {
             User currentUser = authService.getCurrentUser();
-            Document document = documentService.getDocumentById(id, currentUser);
-            byte[] data = documentService.downloadDocument(id, currentUser);
-
-            ByteArrayResource resource = new ByteArrayResource(data);
+            DocumentDownload download = documentService.openDownload(id, currentUser);
+            long lastModified = download.getLastModified().toEpochMilli();
+            String etag = ETags.ofFile(download.getSize(), lastModified);
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + document.getName() + "\"")
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(download.getName(), StandardCharsets.UTF_8).build().toString())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(data.length)
-                    .body(resource);
+                    .eTag(etag)
+                    .lastModified(download.getLastModified())
+                    .cacheControl(CacheControl.noCache().cachePrivate());
+
+            if (!ETags.ifRangeHolds(ifRange, etag, lastModified)) {
+                // The client's partial copy is stale; a plain stream body makes Spring ignore Range
+                return response
+                        .contentLength(download.getSize())
+                        .body(new InputStreamResource(download.getResource().getInputStream()));
+            }
+            // Streamed from storage in fixed-size chunks. Spring answers If-None-Match and
+            // If-Modified-Since with 304 and Range with 206 (or 416) from this body.
+            return response.body(download.getResource());
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -0,0 +1,100 @@
+package com.casemate.pro.controller;
+
+import com.casemate.pro.dto.UploadSessionRequest;
+import com.casemate.pro.dto.UploadSessionResponse;
+import com.casemate.pro.entity.Document;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.exception.ResourceNotFoundException;
+import com.casemate.pro.service.AuthService;
+import com.casemate.pro.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/documents/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DocumentUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+    private final AuthService authService;
+
+    @PostMapping
+    public ResponseEntity<Object> createUpload(@Valid @RequestBody UploadSessionRequest request) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            UploadSessionResponse session = chunkedUploadService.createSession(request, currentUser);
+            return ResponseEntity.status(HttpStatus.CREATED).body(session);
+        } catch (Exception e) {
+            System.err.println("Error creating upload: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Object> getUpload(@PathVariable UUID id) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            return ResponseEntity.ok(chunkedUploadService.getSession(id, currentUser));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{id}/chunks/{index}")
+    public ResponseEntity<Object> putChunk(@PathVariable UUID id,
+                                           @PathVariable int index,
+                                           @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256,
+                                           HttpServletRequest request) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            boolean stored = chunkedUploadService.putChunk(id, index, sha256, request.getInputStream(), currentUser);
+            return ResponseEntity.ok(Map.of("chunk", index, "stored", stored));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("Error receiving chunk " + index + " of upload " + id + ": " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/commit")
+    public ResponseEntity<Object> commitUpload(@PathVariable UUID id) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            Document document = chunkedUploadService.commit(id, currentUser);
+            return ResponseEntity.ok(document);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("Error committing upload " + id + ": " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Object> abortUpload(@PathVariable UUID id) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            chunkedUploadService.abort(id, currentUser);
+            return ResponseEntity.noContent().build();
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
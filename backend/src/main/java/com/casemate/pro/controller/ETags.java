@@ -0,0 +1,109 @@
+package com.casemate.pro.controller;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Strong entity tags derived from a version number, a file's metadata or a content hash, and the
+ * matching rules for {@code If-None-Match} (weak comparison), {@code If-Match} and {@code If-Range}
+ * (strong comparison).
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"v" + version + "\"";
+    }
+
+    /**
+     * Tag for a file, from its size and modification time.
+     */
+    static String ofFile(long size, long lastModifiedMillis) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+    }
+
+    /**
+     * Tag for a rendered representation with no single version behind it, such as a feed.
+     */
+    static String ofContent(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * True when an {@code If-None-Match} header matches the current tag, i.e. the client's copy is fresh.
+     */
+    static boolean noneMatchHits(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the versions an {@code If-Match} header accepts, or null when any version is
+     * acceptable (no header, or {@code *}). Weak and malformed tags never match, so a header
+     * made only of those yields an empty set.
+     */
+    static Set<Long> ifMatchVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.length() > 3 && tag.startsWith("\"v") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(2, tag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours; it cannot match
+                }
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * True when a {@code Range} request may be served partially: there is no {@code If-Range}, or
+     * it names the current tag or exact modification time. Otherwise the full representation is sent.
+     */
+    static boolean ifRangeHolds(String ifRange, String etag, long lastModifiedMillis) {
+        if (ifRange == null) {
+            return true;
+        }
+        String validator = ifRange.trim();
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            return validator.equals(etag);
+        }
+        try {
+            long date = ZonedDateTime.parse(validator, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return date == lastModifiedMillis / 1000 * 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.casemate.pro.controller;
+
+import com.casemate.pro.entity.User;
+import com.casemate.pro.security.CalendarFeedTokens;
+import com.casemate.pro.service.AuthService;
+import com.casemate.pro.service.HearingService;
+import com.casemate.pro.service.UserCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/hearings")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class HearingController {
+
+    private static final MediaType TEXT_CALENDAR = MediaType.parseMediaType("text/calendar;charset=UTF-8");
+
+    private final HearingService hearingService;
+    private final AuthService authService;
+    private final CalendarFeedTokens calendarFeedTokens;
+    private final UserCache userCache;
+
+    @GetMapping
+    public ResponseEntity<?> getHearings(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            User currentUser = authService.getCurrentUser();
+            return ResponseEntity.ok(hearingService.getHearings(currentUser, from, to));
+        } catch (Exception e) {
+            System.err.println("Error fetching hearings: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/feed-url")
+    public ResponseEntity<?> getFeedUrl() {
+        try {
+            User currentUser = authService.getCurrentUser();
+            String url = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/hearings/feed.ics")
+                .queryParam("token", calendarFeedTokens.issue(currentUser))
+                .toUriString();
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(Map.of("url", url));
+        } catch (Exception e) {
+            System.err.println("Error creating calendar feed URL: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/feed.ics")
+    public ResponseEntity<byte[]> getCalendarFeed(
+            @RequestParam String token,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<User> user = calendarFeedTokens.verify(token).flatMap(userCache::findById);
+        if (user.isEmpty()) {
+            // Same answer for forged, revoked and unknown tokens
+            return ResponseEntity.notFound().build();
+        }
+
+        byte[] feed = hearingService.getCalendarFeed(user.get());
+        String etag = ETags.ofContent(feed);
+        if (ETags.noneMatchHits(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .build();
+        }
+        return ResponseEntity.ok()
+            .contentType(TEXT_CALENDAR)
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .body(feed);
+    }
+}
@@ -2,6 +2,7 @@ package com.casemate.pro.controller;
 
 import com.casemate.pro.dto.AuthResponse;
 import com.casemate.pro.entity.User;
+import com.casemate.pro.exception.ServiceOverloadedException;
 import com.casemate.pro.service.UserService;
 import jakarta.validation.Valid;
 import lombok.Data;
@@ -65,6 +66,8 @@ public class UserController {
             userService.changePassword(id, authenticatedEmail, request);
             
             return ResponseEntity.ok(new MessageResponse("Password changed successfully"));
+        } catch (ServiceOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         }
@@ -10,6 +10,7 @@ import java.util.UUID;
 @AllArgsConstructor
 public class AuthResponse {
     private String token;
+    private String refreshToken;
     private UserResponse user;
 
     @Data
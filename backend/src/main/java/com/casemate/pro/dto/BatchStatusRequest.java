@@ -0,0 +1,17 @@
+package com.casemate.pro.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BatchStatusRequest {
+    @NotEmpty(message = "At least one case id is required")
+    private List<UUID> ids;
+
+    @NotBlank(message = "Status is required")
+    private String status;
+}
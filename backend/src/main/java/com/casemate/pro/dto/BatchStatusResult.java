@@ -0,0 +1,24 @@
+package com.casemate.pro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStatusResult {
+    private UUID id;
+    private Outcome result;
+    private String previousStatus;
+
+    public enum Outcome {
+        UPDATED,
+        // Already in the requested status
+        UNCHANGED,
+        // Missing, or not one of the caller's cases
+        NOT_FOUND
+    }
+}
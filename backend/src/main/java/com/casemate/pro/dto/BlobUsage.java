@@ -0,0 +1,10 @@
+package com.casemate.pro.dto;
+
+/**
+ * Totals over referenced blobs: bytes the documents account for, and bytes actually on disk.
+ */
+public interface BlobUsage {
+    Long getLogicalBytes();
+
+    Long getStoredBytes();
+}
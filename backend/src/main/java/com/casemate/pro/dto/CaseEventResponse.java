@@ -0,0 +1,24 @@
+package com.casemate.pro.dto;
+
+import com.casemate.pro.entity.CaseEvent;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseEventResponse {
+    private UUID id;
+    private CaseEvent.Type type;
+    private UUID actorId;
+    private String actorName;
+    // Stored as JSON and passed through as-is
+    @JsonRawValue
+    private String details;
+    private LocalDateTime createdAt;
+}
@@ -1,5 +1,6 @@
 package com.casemate.pro.dto;
 
+import com.casemate.pro.entity.Case;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -22,6 +23,33 @@ public class CaseResponse {
     private LocalDateTime nextHearing;
     private LocalDateTime updatedAt;
     private LocalDateTime createdAt;
+    private Long version;
+
+    /**
+     * Builds the full response for a case whose lawyer and client are already loaded.
+     */
+    public static CaseResponse from(Case caseEntity) {
+        CaseResponse response = new CaseResponse();
+        response.setId(caseEntity.getId());
+        response.setCaseNumber(caseEntity.getCaseNumber());
+        response.setTitle(caseEntity.getTitle());
+        response.setDescription(caseEntity.getDescription());
+        response.setStatus(caseEntity.getStatus().name());
+
+        if (caseEntity.getClient() != null) {
+            response.setClient(new UserInfo(caseEntity.getClient().getId().toString(), caseEntity.getClient().getName()));
+        }
+        if (caseEntity.getLawyer() != null) {
+            response.setLawyer(new UserInfo(caseEntity.getLawyer().getId().toString(), caseEntity.getLawyer().getName()));
+        }
+
+        response.setCaseValue(caseEntity.getCaseValue());
+        response.setNextHearing(caseEntity.getNextHearing());
+        response.setUpdatedAt(caseEntity.getUpdatedAt());
+        response.setCreatedAt(caseEntity.getCreatedAt());
+        response.setVersion(caseEntity.getVersion());
+        return response;
+    }
 
     @Data
     @NoArgsConstructor
@@ -0,0 +1,18 @@
+package com.casemate.pro.dto;
+
+/**
+ * Per-user case aggregates computed in a single statement by {@code CaseRepository}.
+ */
+public interface CaseStatistics {
+    Long getTotalCases();
+
+    Long getActiveCases();
+
+    Long getPendingCases();
+
+    Long getClosedCases();
+
+    Double getActiveCaseValue();
+
+    Long getUpcomingHearings();
+}
@@ -0,0 +1,44 @@
+package com.casemate.pro.dto;
+
+import com.casemate.pro.entity.Case;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * List-view shape of a case, built directly by JPQL constructor expressions in
+ * {@code CaseRepository}. It leaves out the description and notes text columns, and the
+ * lawyer and client names come from joins in the same query.
+ */
+@Data
+@NoArgsConstructor
+public class CaseSummary {
+    private UUID id;
+    private String caseNumber;
+    private String title;
+    private String status;
+    private CaseResponse.UserInfo client;
+    private CaseResponse.UserInfo lawyer;
+    private Double caseValue;
+    private LocalDateTime nextHearing;
+    private LocalDateTime updatedAt;
+    private LocalDateTime createdAt;
+
+    public CaseSummary(UUID id, String caseNumber, String title, Case.Status status,
+                       Double caseValue, LocalDateTime nextHearing,
+                       LocalDateTime updatedAt, LocalDateTime createdAt,
+                       UUID clientId, String clientName, UUID lawyerId, String lawyerName) {
+        this.id = id;
+        this.caseNumber = caseNumber;
+        this.title = title;
+        this.status = status.name();
+        this.caseValue = caseValue;
+        this.nextHearing = nextHearing;
+        this.updatedAt = updatedAt;
+        this.createdAt = createdAt;
+        this.client = new CaseResponse.UserInfo(clientId.toString(), clientName);
+        this.lawyer = new CaseResponse.UserInfo(lawyerId.toString(), lawyerName);
+    }
+}
@@ -0,0 +1,19 @@
+package com.casemate.pro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.core.io.Resource;
+
+import java.time.Instant;
+
+/**
+ * A document's stored file, checked to exist, ready to be streamed to the client.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentDownload {
+    private String name;
+    private Resource resource;
+    private long size;
+    private Instant lastModified;
+}
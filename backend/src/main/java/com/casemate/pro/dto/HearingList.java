@@ -0,0 +1,17 @@
+package com.casemate.pro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Hearings in a date range, in date order. {@code truncated} is set when the range held more
+ * than {@code hearings.max-results} hearings and only the earliest are listed.
+ */
+@Data
+@AllArgsConstructor
+public class HearingList {
+    private List<HearingSummary> hearings;
+    private boolean truncated;
+}
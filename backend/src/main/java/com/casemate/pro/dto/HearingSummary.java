@@ -0,0 +1,38 @@
+package com.casemate.pro.dto;
+
+import com.casemate.pro.entity.Case;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Calendar entry for a case's next hearing, built by a JPQL constructor expression in
+ * {@code CaseRepository} from the case row and the participants' names.
+ */
+@Data
+@NoArgsConstructor
+public class HearingSummary {
+    private UUID caseId;
+    private String caseNumber;
+    private String title;
+    private String status;
+    private LocalDateTime hearingAt;
+    private String clientName;
+    private String lawyerName;
+    private LocalDateTime updatedAt;
+
+    public HearingSummary(UUID caseId, String caseNumber, String title, Case.Status status,
+                          LocalDateTime hearingAt, String clientName, String lawyerName,
+                          LocalDateTime updatedAt) {
+        this.caseId = caseId;
+        this.caseNumber = caseNumber;
+        this.title = title;
+        this.status = status.name();
+        this.hearingAt = hearingAt;
+        this.clientName = clientName;
+        this.lawyerName = lawyerName;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,14 @@
+package com.casemate.pro.dto;
+
+/**
+ * One month of the revenue breakdown, grouped in the database by {@code CaseRepository}.
+ */
+public interface MonthlyRevenue {
+    Integer getRevenueYear();
+
+    Integer getRevenueMonth();
+
+    Double getRevenue();
+
+    Long getCases();
+}
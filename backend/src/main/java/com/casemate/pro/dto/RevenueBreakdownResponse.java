@@ -0,0 +1,26 @@
+package com.casemate.pro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueBreakdownResponse {
+    private String from;
+    private String to;
+    private Double totalRevenue;
+    private List<MonthEntry> months;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MonthEntry {
+        private String month;
+        private Double revenue;
+        private Long cases;
+    }
+}
@@ -0,0 +1,30 @@
+package com.casemate.pro.dto;
+
+import com.casemate.pro.entity.Document;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class UploadSessionRequest {
+    @NotNull(message = "Case id is required")
+    private UUID caseId;
+
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @NotNull(message = "File size is required")
+    @Positive(message = "File size must be positive")
+    private Long size;
+
+    // Optional; the server default is used when absent
+    private Integer chunkSize;
+
+    private String description;
+
+    @NotNull(message = "Category is required")
+    private Document.DocumentCategory category;
+}
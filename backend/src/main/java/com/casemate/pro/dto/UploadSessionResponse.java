@@ -0,0 +1,25 @@
+package com.casemate.pro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a chunked upload. {@code receivedRanges} are inclusive byte ranges, as in HTTP
+ * {@code Content-Range}; {@code missingChunks} are the chunk numbers still to send.
+ */
+@Data
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private UUID uploadId;
+    private String fileName;
+    private long size;
+    private int chunkSize;
+    private int chunkCount;
+    private List<long[]> receivedRanges;
+    private List<Integer> missingChunks;
+    private LocalDateTime expiresAt;
+}
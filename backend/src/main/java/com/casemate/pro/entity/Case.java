@@ -1,6 +1,6 @@
 package com.casemate.pro.entity;
 
-import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -14,7 +14,19 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "cases")
+@NamedEntityGraph(name = "Case.participants", attributeNodes = {
+    @NamedAttributeNode("lawyer"),
+    @NamedAttributeNode("client")
+})
+@Table(name = "cases", indexes = {
+    @Index(name = "idx_cases_lawyer_updated", columnList = "lawyer_id, updated_at, id"),
+    @Index(name = "idx_cases_lawyer_title", columnList = "lawyer_id, title, id"),
+    @Index(name = "idx_cases_lawyer_status", columnList = "lawyer_id, status, id"),
+    @Index(name = "idx_cases_lawyer_status_updated", columnList = "lawyer_id, status, updated_at, id"),
+    @Index(name = "idx_cases_lawyer_hearing", columnList = "lawyer_id, next_hearing"),
+    @Index(name = "idx_cases_client_hearing", columnList = "client_id, next_hearing"),
+    @Index(name = "idx_cases_client_updated", columnList = "client_id, updated_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,6 +49,11 @@ public class Case {
     @Column(nullable = false)
     private Status status = Status.PENDING;
 
+    // Set by the same UPDATE that changes the status, so the counter deltas need no earlier read
+    @Enumerated(EnumType.STRING)
+    @JsonIgnore
+    private Status previousStatus;
+
     private LocalDateTime nextHearing;
 
     @Column(columnDefinition = "TEXT")
@@ -52,15 +69,20 @@ public class Case {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Bumped on every update; exposed to clients as the case's ETag
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // Relationships
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "lawyer_id", nullable = false)
-    @JsonBackReference("lawyer-cases")
+    @JsonIgnore
     private User lawyer;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false)
-    @JsonBackReference("client-cases")
+    @JsonIgnore
     private User client;
 
     @OneToMany(mappedBy = "caseEntity", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -70,13 +92,4 @@ public class Case {
     public enum Status {
         ACTIVE, PENDING, CLOSED
     }
-
-    // Custom method to generate case number
-    @PrePersist
-    public void generateCaseNumber() {
-        if (this.caseNumber == null) {
-            this.caseNumber = "CS-" + java.time.Year.now() + "-" +
-                String.format("%03d", (int) (Math.random() * 1000));
-        }
-    }
 }
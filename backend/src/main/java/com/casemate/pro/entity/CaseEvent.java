@@ -0,0 +1,49 @@
+package com.casemate.pro.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One entry in a case's audit trail. Rows are only ever inserted, and outlive the case they
+ * describe, so there is no foreign key to {@code cases}.
+ */
+@Entity
+@Immutable
+@Table(name = "case_events", indexes = {
+    @Index(name = "idx_case_events_case_created", columnList = "case_id, created_at, id")
+})
+@Data
+@NoArgsConstructor
+public class CaseEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "case_id", nullable = false)
+    private UUID caseId;
+
+    // Null for changes made by the system
+    @Column(name = "actor_id")
+    private UUID actorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    // JSON object describing the change, e.g. {"status": {"from": "PENDING", "to": "ACTIVE"}}
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String details;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum Type {
+        CREATED, UPDATED, STATUS_CHANGED, DELETED, DOCUMENT_ADDED, DOCUMENT_REMOVED
+    }
+}
@@ -0,0 +1,25 @@
+package com.casemate.pro.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * High-water mark of allocated case numbers for one calendar year. Nodes reserve numbers
+ * from it in blocks and hand them out from memory.
+ */
+@Entity
+@Table(name = "case_number_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseNumberSequence {
+
+    @Id
+    @Column(name = "sequence_year")
+    private Integer sequenceYear;
+
+    @Column(nullable = false)
+    private Long nextValue;
+}
@@ -1,6 +1,7 @@
 package com.casemate.pro.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -11,7 +12,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "documents")
+@Table(name = "documents", indexes = {
+    @Index(name = "idx_documents_case_uploaded", columnList = "case_id, uploaded_at, id"),
+    @Index(name = "idx_documents_uploader_uploaded", columnList = "uploaded_by, uploaded_at, id"),
+    @Index(name = "idx_documents_storage_key", columnList = "storage_key"),
+    @Index(name = "idx_documents_content_hash", columnList = "content_hash")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,15 +30,25 @@ public class Document {
     @Column(nullable = false)
     private String name;
 
-    @Column(nullable = false)
+    // Local path of a file stored before document storage; null once the file has a storage key
+    @JsonIgnore
     private String filePath;
 
+    // Key of the file in DocumentStorage
+    @JsonIgnore
+    private String storageKey;
+
     @Column(nullable = false)
     private String type;
 
     @Column(nullable = false)
     private Long size;
 
+    // SHA-256 of the file; set when the file lives in the shared blob store
+    @Column(length = 64)
+    @JsonIgnore
+    private String contentHash;
+
     private String description;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,36 @@
+package com.casemate.pro.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored file, keyed by the SHA-256 of its content and shared by every {@link Document} with
+ * that content. {@code refCount} is the number of such documents; blobs that reach zero are
+ * removed by {@code BlobStore}'s cleanup job.
+ */
+@Entity
+@Table(name = "document_blobs", indexes = {
+    @Index(name = "idx_document_blobs_ref_count", columnList = "ref_count")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentBlob {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
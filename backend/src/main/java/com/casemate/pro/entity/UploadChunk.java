@@ -0,0 +1,47 @@
+package com.casemate.pro.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One chunk of an {@link UploadSession} that has been written to disk and verified.
+ */
+@Entity
+@Table(name = "upload_chunks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadChunk {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Integer size;
+
+    // Hex SHA-256 of the chunk, so a retried chunk can be recognised as the same bytes
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "session_id", nullable = false)
+        private UUID sessionId;
+
+        @Column(name = "chunk_index", nullable = false)
+        private Integer chunkIndex;
+    }
+}
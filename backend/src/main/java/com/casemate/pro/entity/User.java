@@ -1,6 +1,6 @@
 package com.casemate.pro.entity;
 
-import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,7 +13,9 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_role_name", columnList = "role, name, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,6 +29,7 @@ public class User {
     private String email;
 
     @Column(nullable = false)
+    @JsonIgnore
     private String passwordHash;
 
     @Column(nullable = false)
@@ -45,6 +48,10 @@ public class User {
     @Column(columnDefinition = "TEXT")
     private String aboutClient;
 
+    // Bumped whenever credentials or identity change; tokens carrying an older stamp are rejected
+    @Column(nullable = false)
+    private int securityStamp;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -54,16 +61,29 @@ public class User {
 
     // Relationships
     @OneToMany(mappedBy = "lawyer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonManagedReference("lawyer-cases")
+    @JsonIgnore
     private List<Case> casesAsLawyer;
 
     @OneToMany(mappedBy = "client", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonManagedReference("client-cases")
+    @JsonIgnore
     private List<Case> casesAsClient;
 
     @OneToMany(mappedBy = "uploadedBy", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @JsonIgnore
     private List<Document> uploadedDocuments;
 
+    public void rotateSecurityStamp() {
+        this.securityStamp++;
+    }
+
+    public void setRole(Role role) {
+        // Tokens carry the role, so outstanding ones must not survive a change
+        if (this.role != null && this.role != role) {
+            rotateSecurityStamp();
+        }
+        this.role = role;
+    }
+
     public enum Role {
         LAWYER, CLIENT
     }
@@ -0,0 +1,52 @@
+package com.casemate.pro.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Per-user case and document counters, kept current with delta updates by the services that
+ * change cases and documents. For a lawyer they cover the cases they are assigned to, for a
+ * client the cases they own; documents are those attached to those cases.
+ */
+@Entity
+@Table(name = "user_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStats {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(nullable = false)
+    private long totalCases;
+
+    @Column(nullable = false)
+    private long activeCases;
+
+    @Column(nullable = false)
+    private long pendingCases;
+
+    @Column(nullable = false)
+    private long closedCases;
+
+    @Column(nullable = false)
+    private double activeCaseValue;
+
+    @Column(nullable = false)
+    private long documents;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    public UserStats(UUID userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,14 @@
+package com.casemate.pro.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
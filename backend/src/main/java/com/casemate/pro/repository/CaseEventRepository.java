@@ -0,0 +1,44 @@
+package com.casemate.pro.repository;
+
+import com.casemate.pro.dto.CaseEventResponse;
+import com.casemate.pro.entity.CaseEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CaseEventRepository extends JpaRepository<CaseEvent, UUID> {
+
+    // Newest first, keyset on (createdAt, id); a null cursor id selects the first page
+    default List<CaseEventResponse> findPageByCase(UUID caseId,
+                                                   LocalDateTime cursorKey,
+                                                   UUID cursorId,
+                                                   Pageable pageable) {
+        return cursorId == null
+            ? findPageByCaseFromStart(caseId, pageable)
+            : findPageByCaseAfter(caseId, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT new com.casemate.pro.dto.CaseEventResponse(e.id, e.type, e.actorId, u.name, e.details, e.createdAt) " +
+           "FROM CaseEvent e LEFT JOIN User u ON u.id = e.actorId " +
+           "WHERE e.caseId = :caseId " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<CaseEventResponse> findPageByCaseFromStart(@Param("caseId") UUID caseId,
+                                                    Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseEventResponse(e.id, e.type, e.actorId, u.name, e.details, e.createdAt) " +
+           "FROM CaseEvent e LEFT JOIN User u ON u.id = e.actorId " +
+           "WHERE e.caseId = :caseId " +
+           "AND e.createdAt <= :cursorKey AND (e.createdAt < :cursorKey OR e.id < :cursorId) " +
+           "ORDER BY e.createdAt DESC, e.id DESC")
+    List<CaseEventResponse> findPageByCaseAfter(@Param("caseId") UUID caseId,
+                                                @Param("cursorKey") LocalDateTime cursorKey,
+                                                @Param("cursorId") UUID cursorId,
+                                                Pageable pageable);
+}
@@ -0,0 +1,19 @@
+package com.casemate.pro.repository;
+
+import com.casemate.pro.entity.CaseNumberSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CaseNumberSequenceRepository extends JpaRepository<CaseNumberSequence, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CaseNumberSequence s WHERE s.sequenceYear = :year")
+    Optional<CaseNumberSequence> findForUpdate(@Param("year") Integer year);
+}
@@ -1,65 +1,300 @@
 package com.casemate.pro.repository;
 
+import com.casemate.pro.dto.CaseStatistics;
+import com.casemate.pro.dto.CaseSummary;
+import com.casemate.pro.dto.HearingSummary;
+import com.casemate.pro.dto.MonthlyRevenue;
 import com.casemate.pro.entity.Case;
 import com.casemate.pro.entity.User;
-import org.springframework.data.domain.Page;
+import com.casemate.pro.search.IndexedCase;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface CaseRepository extends JpaRepository<Case, UUID> {
     
-    Page<Case> findByLawyer(User lawyer, Pageable pageable);
-    
-    Page<Case> findByClient(User client, Pageable pageable);
-    
-    @Query("SELECT c FROM Case c WHERE c.lawyer = :lawyer AND c.status = :status")
-    Page<Case> findByLawyerAndStatus(@Param("lawyer") User lawyer, 
-                                     @Param("status") Case.Status status, 
-                                     Pageable pageable);
-    
-    @Query("SELECT c FROM Case c WHERE c.client = :client AND c.status = :status")
-    Page<Case> findByClientAndStatus(@Param("client") User client, 
-                                     @Param("status") Case.Status status, 
-                                     Pageable pageable);
-    
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.lawyer = :lawyer AND c.status = 'ACTIVE'")
-    Long countActiveCasesByLawyer(@Param("lawyer") User lawyer);
+    // Keyset pages: rows strictly after the (sort key, id) cursor, ordered by the same tuple.
+    // A null cursor id selects the first page. The first page is its own query so the seek
+    // never has to OR against a null cursor: the bound on the sort key is a plain index range
+    // and the id only breaks ties within it.
+    default List<CaseSummary> findPageByLawyerRecent(User lawyer,
+                                                     Case.Status status,
+                                                     LocalDateTime cursorKey,
+                                                     UUID cursorId,
+                                                     Pageable pageable) {
+        return cursorId == null
+            ? findPageByLawyerRecentFromStart(lawyer, status, pageable)
+            : findPageByLawyerRecentAfter(lawyer, status, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer AND (:status IS NULL OR c.status = :status) " +
+           "ORDER BY c.updatedAt DESC, c.id DESC")
+    List<CaseSummary> findPageByLawyerRecentFromStart(@Param("lawyer") User lawyer,
+                                                      @Param("status") Case.Status status,
+                                                      Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer AND (:status IS NULL OR c.status = :status) " +
+           "AND c.updatedAt <= :cursorKey AND (c.updatedAt < :cursorKey OR c.id < :cursorId) " +
+           "ORDER BY c.updatedAt DESC, c.id DESC")
+    List<CaseSummary> findPageByLawyerRecentAfter(@Param("lawyer") User lawyer,
+                                                  @Param("status") Case.Status status,
+                                                  @Param("cursorKey") LocalDateTime cursorKey,
+                                                  @Param("cursorId") UUID cursorId,
+                                                  Pageable pageable);
     
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.lawyer = :lawyer")
-    Long countCasesByLawyer(@Param("lawyer") User lawyer);
+    default List<CaseSummary> findPageByLawyerTitle(User lawyer,
+                                                    Case.Status status,
+                                                    String cursorKey,
+                                                    UUID cursorId,
+                                                    Pageable pageable) {
+        return cursorId == null
+            ? findPageByLawyerTitleFromStart(lawyer, status, pageable)
+            : findPageByLawyerTitleAfter(lawyer, status, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer AND (:status IS NULL OR c.status = :status) " +
+           "ORDER BY c.title ASC, c.id ASC")
+    List<CaseSummary> findPageByLawyerTitleFromStart(@Param("lawyer") User lawyer,
+                                                     @Param("status") Case.Status status,
+                                                     Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer AND (:status IS NULL OR c.status = :status) " +
+           "AND c.title >= :cursorKey AND (c.title > :cursorKey OR c.id > :cursorId) " +
+           "ORDER BY c.title ASC, c.id ASC")
+    List<CaseSummary> findPageByLawyerTitleAfter(@Param("lawyer") User lawyer,
+                                                 @Param("status") Case.Status status,
+                                                 @Param("cursorKey") String cursorKey,
+                                                 @Param("cursorId") UUID cursorId,
+                                                 Pageable pageable);
     
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.client = :client")
-    Long countCasesByClient(@Param("client") User client);
+    default List<CaseSummary> findPageByLawyerStatus(User lawyer,
+                                                     Case.Status status,
+                                                     Case.Status cursorKey,
+                                                     UUID cursorId,
+                                                     Pageable pageable) {
+        return cursorId == null
+            ? findPageByLawyerStatusFromStart(lawyer, status, pageable)
+            : findPageByLawyerStatusAfter(lawyer, status, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer AND (:status IS NULL OR c.status = :status) " +
+           "ORDER BY c.status ASC, c.id ASC")
+    List<CaseSummary> findPageByLawyerStatusFromStart(@Param("lawyer") User lawyer,
+                                                      @Param("status") Case.Status status,
+                                                      Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer AND (:status IS NULL OR c.status = :status) " +
+           "AND c.status >= :cursorKey AND (c.status > :cursorKey OR c.id > :cursorId) " +
+           "ORDER BY c.status ASC, c.id ASC")
+    List<CaseSummary> findPageByLawyerStatusAfter(@Param("lawyer") User lawyer,
+                                                  @Param("status") Case.Status status,
+                                                  @Param("cursorKey") Case.Status cursorKey,
+                                                  @Param("cursorId") UUID cursorId,
+                                                  Pageable pageable);
     
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.lawyer = :lawyer AND c.status = 'PENDING'")
-    Long countPendingCasesByLawyer(@Param("lawyer") User lawyer);
+    default List<CaseSummary> findPageByClientRecent(User client,
+                                                     LocalDateTime cursorKey,
+                                                     UUID cursorId,
+                                                     Pageable pageable) {
+        return cursorId == null
+            ? findPageByClientRecentFromStart(client, pageable)
+            : findPageByClientRecentAfter(client, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.client = :client " +
+           "ORDER BY c.updatedAt DESC, c.id DESC")
+    List<CaseSummary> findPageByClientRecentFromStart(@Param("client") User client,
+                                                      Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.client = :client " +
+           "AND c.updatedAt <= :cursorKey AND (c.updatedAt < :cursorKey OR c.id < :cursorId) " +
+           "ORDER BY c.updatedAt DESC, c.id DESC")
+    List<CaseSummary> findPageByClientRecentAfter(@Param("client") User client,
+                                                  @Param("cursorKey") LocalDateTime cursorKey,
+                                                  @Param("cursorId") UUID cursorId,
+                                                  Pageable pageable);
     
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.lawyer = :lawyer AND c.status = 'CLOSED'")
-    Long countClosedCasesByLawyer(@Param("lawyer") User lawyer);
+    @Query("SELECT COUNT(c) AS totalCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'ACTIVE' THEN 1 ELSE 0 END), 0) AS activeCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'PENDING' THEN 1 ELSE 0 END), 0) AS pendingCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'CLOSED' THEN 1 ELSE 0 END), 0) AS closedCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'ACTIVE' THEN c.caseValue ELSE 0.0 END), 0.0) AS activeCaseValue, " +
+           "COALESCE(SUM(CASE WHEN c.nextHearing > :now THEN 1 ELSE 0 END), 0) AS upcomingHearings " +
+           "FROM Case c WHERE c.lawyer = :lawyer")
+    CaseStatistics getStatisticsByLawyer(@Param("lawyer") User lawyer, @Param("now") LocalDateTime now);
     
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.client = :client AND c.status = 'ACTIVE'")
-    Long countActiveCasesByClient(@Param("client") User client);
+    @Query("SELECT COUNT(c) AS totalCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'ACTIVE' THEN 1 ELSE 0 END), 0) AS activeCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'PENDING' THEN 1 ELSE 0 END), 0) AS pendingCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'CLOSED' THEN 1 ELSE 0 END), 0) AS closedCases, " +
+           "COALESCE(SUM(CASE WHEN c.status = 'ACTIVE' THEN c.caseValue ELSE 0.0 END), 0.0) AS activeCaseValue, " +
+           "COALESCE(SUM(CASE WHEN c.nextHearing > :now THEN 1 ELSE 0 END), 0) AS upcomingHearings " +
+           "FROM Case c WHERE c.client = :client")
+    CaseStatistics getStatisticsByClient(@Param("client") User client, @Param("now") LocalDateTime now);
     
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.client = :client AND c.status = 'PENDING'")
-    Long countPendingCasesByClient(@Param("client") User client);
+    @Query("SELECT YEAR(c.createdAt) AS revenueYear, MONTH(c.createdAt) AS revenueMonth, " +
+           "COALESCE(SUM(c.caseValue), 0.0) AS revenue, COUNT(c) AS cases " +
+           "FROM Case c WHERE c.lawyer = :lawyer AND c.status = 'ACTIVE' " +
+           "AND c.createdAt >= :from AND c.createdAt < :to " +
+           "GROUP BY YEAR(c.createdAt), MONTH(c.createdAt) " +
+           "ORDER BY YEAR(c.createdAt), MONTH(c.createdAt)")
+    List<MonthlyRevenue> getMonthlyRevenueByLawyer(@Param("lawyer") User lawyer,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
     
-    @Query("SELECT COUNT(c) FROM Case c WHERE c.client = :client AND c.status = 'CLOSED'")
-    Long countClosedCasesByClient(@Param("client") User client);
+    // Served from (client_id, next_hearing) without touching the table rows
+    @Query("SELECT COUNT(c) FROM Case c WHERE c.client = :client AND c.nextHearing > :now")
+    Long countUpcomingHearingsByClient(@Param("client") User client, @Param("now") LocalDateTime now);
+
+    // Hearing calendar: range scans on (lawyer_id, next_hearing) and (client_id, next_hearing)
+    @Query("SELECT new com.casemate.pro.dto.HearingSummary(c.id, c.caseNumber, c.title, c.status, " +
+           "c.nextHearing, cl.name, l.name, c.updatedAt) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer AND c.nextHearing >= :from AND c.nextHearing < :to " +
+           "ORDER BY c.nextHearing, c.id")
+    List<HearingSummary> findHearingsByLawyer(@Param("lawyer") User lawyer,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.HearingSummary(c.id, c.caseNumber, c.title, c.status, " +
+           "c.nextHearing, cl.name, l.name, c.updatedAt) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.client = :client AND c.nextHearing >= :from AND c.nextHearing < :to " +
+           "ORDER BY c.nextHearing, c.id")
+    List<HearingSummary> findHearingsByClient(@Param("client") User client,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              Pageable pageable);
     
+    @EntityGraph("Case.participants")
     @Query("SELECT c FROM Case c WHERE c.lawyer = :lawyer ORDER BY c.updatedAt DESC")
     List<Case> findRecentCasesByLawyer(@Param("lawyer") User lawyer, Pageable pageable);
     
+    @EntityGraph("Case.participants")
     @Query("SELECT c FROM Case c WHERE c.client = :client ORDER BY c.updatedAt DESC")
     List<Case> findRecentCasesByClient(@Param("client") User client, Pageable pageable);
 
-    List<Case> findByClientId(UUID clientId);
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.lawyer = :lawyer ORDER BY c.updatedAt DESC")
+    List<CaseSummary> findRecentSummariesByLawyer(@Param("lawyer") User lawyer, Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE c.client = :client ORDER BY c.updatedAt DESC")
+    List<CaseSummary> findRecentSummariesByClient(@Param("client") User client, Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l " +
+           "WHERE cl.id = :clientId ORDER BY c.updatedAt DESC")
+    List<CaseSummary> findSummariesByClientId(@Param("clientId") UUID clientId);
+
+    @EntityGraph("Case.participants")
+    @Query("SELECT c FROM Case c WHERE c.id = :id")
+    Optional<Case> findWithParticipantsById(@Param("id") UUID id);
     
-    boolean existsByCaseNumber(String caseNumber);
+    // Deletes lock the row, so the counter delta uses the status no concurrent UPDATE can change
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Case c WHERE c.id = :id")
+    Optional<Case> findForUpdate(@Param("id") UUID id);
+
+    // Conditional GETs: answers If-None-Match without loading the case
+    @Query("SELECT c.version FROM Case c WHERE c.id = :id AND (c.lawyer.id = :userId OR c.client.id = :userId)")
+    Optional<Long> findVersionForUser(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    // Largest first. Numbers only get longer past 999, so length orders them before the text does
+    @Query("SELECT c.caseNumber FROM Case c WHERE c.caseNumber LIKE CONCAT(:prefix, '%') " +
+           "ORDER BY LENGTH(c.caseNumber) DESC, c.caseNumber DESC")
+    List<String> findHighestCaseNumbers(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.dto.CaseSummary(c.id, c.caseNumber, c.title, c.status, c.caseValue, " +
+           "c.nextHearing, c.updatedAt, c.createdAt, cl.id, cl.name, l.id, l.name) " +
+           "FROM Case c JOIN c.client cl JOIN c.lawyer l WHERE c.id IN :ids")
+    List<CaseSummary> findSummariesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Search index loading
+    @Query("SELECT new com.casemate.pro.search.IndexedCase(c.id, c.lawyer.id, c.client.id, c.caseNumber, " +
+           "c.title, c.description, c.notes, c.updatedAt) " +
+           "FROM Case c WHERE (:afterId IS NULL OR c.id > :afterId) ORDER BY c.id")
+    List<IndexedCase> findForIndex(@Param("afterId") UUID afterId, Pageable pageable);
+
+    @Query("SELECT new com.casemate.pro.search.IndexedCase(c.id, c.lawyer.id, c.client.id, c.caseNumber, " +
+           "c.title, c.description, c.notes, c.updatedAt) " +
+           "FROM Case c WHERE c.updatedAt >= :since")
+    List<IndexedCase> findForIndexUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT c.id FROM Case c")
+    List<UUID> findAllIds();
+
+    // Batch status changes: the rows are locked so the counter deltas match what the UPDATE changes.
+    // An entity query, because Hibernate only adds FOR UPDATE reliably when it selects entities.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Case c WHERE c.id IN :ids AND c.lawyer = :lawyer")
+    List<Case> findAllForUpdate(@Param("ids") Collection<UUID> ids, @Param("lawyer") User lawyer);
+
+    /**
+     * Single-case status transition. Ownership, the allowed current statuses and (optionally)
+     * the If-Match versions are all in the WHERE clause, so a return of 0 means one of them failed.
+     * The status it replaced is kept in {@code previousStatus}, assigned first because MySQL applies
+     * SET assignments left to right. The persistence context is cleared
+     * so the read that follows sees the new row.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Case c SET c.previousStatus = c.status, c.status = :to, c.updatedAt = :now, c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.lawyer.id = :lawyerId AND c.status IN :from " +
+           "AND (:anyVersion = true OR c.version IN :versions)")
+    int transitionStatus(@Param("id") UUID id,
+                         @Param("lawyerId") UUID lawyerId,
+                         @Param("from") Collection<Case.Status> from,
+                         @Param("to") Case.Status to,
+                         @Param("now") LocalDateTime now,
+                         @Param("anyVersion") boolean anyVersion,
+                         @Param("versions") Collection<Long> versions);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Case c SET c.previousStatus = c.status, c.status = :status, c.updatedAt = :now, c.version = c.version + 1 WHERE c.id IN :ids")
+    int updateStatuses(@Param("ids") Collection<UUID> ids,
+                       @Param("status") Case.Status status,
+                       @Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.casemate.pro.repository;
+
+import com.casemate.pro.dto.BlobUsage;
+import com.casemate.pro.entity.DocumentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentBlobRepository extends JpaRepository<DocumentBlob, String> {
+
+    // One statement for "add a reference, creating the blob if needed"; it also locks the row
+    // until commit, which orders it against cleanup of the same blob. MySQL and H2 (MySQL mode).
+    @Modifying
+    @Query(value = "INSERT INTO document_blobs (sha256, size, ref_count, created_at) " +
+                   "VALUES (:sha256, :size, 1, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+    int acquire(@Param("sha256") String sha256, @Param("size") long size);
+
+    // Creates the row with the given count if it is missing; an existing row keeps its count.
+    // Either way the row is locked until commit, as with acquire.
+    @Modifying
+    @Query(value = "INSERT INTO document_blobs (sha256, size, ref_count, created_at) " +
+                   "VALUES (:sha256, :size, :refCount, CURRENT_TIMESTAMP) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count", nativeQuery = true)
+    int ensureExists(@Param("sha256") String sha256, @Param("size") long size, @Param("refCount") long refCount);
+
+    @Modifying
+    @Query("UPDATE DocumentBlob b SET b.refCount = b.refCount - 1 WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int release(@Param("sha256") String sha256);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM DocumentBlob b WHERE b.sha256 = :sha256")
+    Optional<DocumentBlob> findForUpdate(@Param("sha256") String sha256);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM DocumentBlob b WHERE b.refCount = 0")
+    List<DocumentBlob> findUnreferencedForUpdate(Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM DocumentBlob b WHERE b.sha256 IN :hashes AND b.refCount = 0")
+    int deleteUnreferenced(@Param("hashes") Collection<String> hashes);
+
+    @Query("SELECT COALESCE(SUM(b.size * b.refCount), 0) AS logicalBytes, COALESCE(SUM(b.size), 0) AS storedBytes " +
+           "FROM DocumentBlob b WHERE b.refCount > 0")
+    BlobUsage usage();
+}
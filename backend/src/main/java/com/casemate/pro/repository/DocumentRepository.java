@@ -3,24 +3,95 @@ package com.casemate.pro.repository;
 import com.casemate.pro.entity.Document;
 import com.casemate.pro.entity.Case;
 import com.casemate.pro.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, UUID> {
     
-    Page<Document> findByCaseEntity(Case caseEntity, Pageable pageable);
-    
     List<Document> findByCaseEntity(Case caseEntity);
-    
-    Page<Document> findByUploadedBy(User user, Pageable pageable);
+
+    @EntityGraph(attributePaths = "caseEntity")
+    @Query("SELECT d FROM Document d WHERE d.id = :id")
+    Optional<Document> findWithCaseById(@Param("id") UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = "caseEntity")
+    @Query("SELECT d FROM Document d WHERE d.id = :id")
+    Optional<Document> findWithCaseForUpdate(@Param("id") UUID id);
+
+    // Documents still addressed by a local path, in id order after the given one
+    @Query("SELECT d.id FROM Document d WHERE d.storageKey IS NULL AND (:after IS NULL OR d.id > :after) ORDER BY d.id")
+    List<UUID> findIdsWithoutStorageKey(@Param("after") UUID after, Pageable pageable);
+
+    // Every document sharing the blob read it from the same path, so they move over together
+    @Modifying
+    @Query("UPDATE Document d SET d.storageKey = :hash, d.filePath = NULL WHERE d.contentHash = :hash AND d.storageKey IS NULL")
+    int assignStorageKey(@Param("hash") String contentHash);
+
+    // Keyset pages ordered newest first; a null cursor id selects the first page
+    default List<Document> findPageByCase(Case caseEntity,
+                                          LocalDateTime cursorKey,
+                                          UUID cursorId,
+                                          Pageable pageable) {
+        return cursorId == null
+            ? findPageByCaseFromStart(caseEntity, pageable)
+            : findPageByCaseAfter(caseEntity, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT d FROM Document d WHERE d.caseEntity = :case " +
+           "ORDER BY d.uploadedAt DESC, d.id DESC")
+    List<Document> findPageByCaseFromStart(@Param("case") Case caseEntity,
+                                           Pageable pageable);
+
+    @Query("SELECT d FROM Document d WHERE d.caseEntity = :case " +
+           "AND d.uploadedAt <= :cursorKey AND (d.uploadedAt < :cursorKey OR d.id < :cursorId) " +
+           "ORDER BY d.uploadedAt DESC, d.id DESC")
+    List<Document> findPageByCaseAfter(@Param("case") Case caseEntity,
+                                       @Param("cursorKey") LocalDateTime cursorKey,
+                                       @Param("cursorId") UUID cursorId,
+                                       Pageable pageable);
+
+    default List<Document> findPageByUploader(User user,
+                                              LocalDateTime cursorKey,
+                                              UUID cursorId,
+                                              Pageable pageable) {
+        return cursorId == null
+            ? findPageByUploaderFromStart(user, pageable)
+            : findPageByUploaderAfter(user, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT d FROM Document d WHERE d.uploadedBy = :user " +
+           "ORDER BY d.uploadedAt DESC, d.id DESC")
+    List<Document> findPageByUploaderFromStart(@Param("user") User user,
+                                               Pageable pageable);
+
+    @Query("SELECT d FROM Document d WHERE d.uploadedBy = :user " +
+           "AND d.uploadedAt <= :cursorKey AND (d.uploadedAt < :cursorKey OR d.id < :cursorId) " +
+           "ORDER BY d.uploadedAt DESC, d.id DESC")
+    List<Document> findPageByUploaderAfter(@Param("user") User user,
+                                           @Param("cursorKey") LocalDateTime cursorKey,
+                                           @Param("cursorId") UUID cursorId,
+                                           Pageable pageable);
+
+    long countByCaseEntity(Case caseEntity);
+
+    long countByUploadedBy(User user);
+
+    long countByContentHash(String contentHash);
 
     @Query("SELECT d FROM Document d WHERE d.caseEntity.lawyer = :lawyer OR d.caseEntity.client = :user")
     Page<Document> findByUserAccess(@Param("lawyer") User lawyer, @Param("user") User user, Pageable pageable);
@@ -0,0 +1,25 @@
+package com.casemate.pro.repository;
+
+import com.casemate.pro.entity.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, UploadChunk.Key> {
+
+    List<UploadChunk> findByIdSessionIdOrderByIdChunkIndex(UUID sessionId);
+
+    @Query("SELECT COUNT(c) FROM UploadChunk c WHERE c.id.sessionId = :sessionId")
+    long countBySessionId(@Param("sessionId") UUID sessionId);
+
+    @Modifying
+    @Query("DELETE FROM UploadChunk c WHERE c.id.sessionId IN :sessionIds")
+    int deleteBySessionIdIn(@Param("sessionIds") Collection<UUID> sessionIds);
+}
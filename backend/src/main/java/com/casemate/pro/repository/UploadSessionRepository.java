@@ -0,0 +1,34 @@
+package com.casemate.pro.repository;
+
+import com.casemate.pro.entity.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id")
+    Optional<UploadSession> findForUpdate(@Param("id") UUID id);
+
+    // Sessions older than the cutoff that have not received a chunk since
+    @Query("SELECT s.id FROM UploadSession s WHERE s.createdAt < :cutoff AND NOT EXISTS " +
+           "(SELECT 1 FROM UploadChunk c WHERE c.id.sessionId = s.id AND c.receivedAt >= :cutoff)")
+    List<UUID> findAbandoned(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM UploadSession s WHERE s.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<UUID> ids);
+}
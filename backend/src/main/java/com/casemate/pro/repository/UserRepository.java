@@ -1,9 +1,10 @@
 package com.casemate.pro.repository;
 
 import com.casemate.pro.entity.User;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,19 +17,53 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
     
     Optional<User> findByEmail(String email);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findForUpdate(@Param("id") UUID id);
     
     boolean existsByEmail(String email);
     
     List<User> findAllByRole(User.Role role);
     
-    @Query("SELECT u FROM User u WHERE u.role = 'CLIENT'")
-    Page<User> findAllClients(Pageable pageable);
-    
+    // Keyset page of clients ordered by name; a null cursor id selects the first page
+    default List<User> findClientPage(String search,
+                                      String cursorKey,
+                                      UUID cursorId,
+                                      Pageable pageable) {
+        return cursorId == null
+            ? findClientPageFromStart(search, pageable)
+            : findClientPageAfter(search, cursorKey, cursorId, pageable);
+    }
+
+    @Query("SELECT u FROM User u WHERE u.role = 'CLIENT' AND " +
+           "(:search IS NULL OR LOWER(u.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+           "ORDER BY u.name ASC, u.id ASC")
+    List<User> findClientPageFromStart(@Param("search") String search,
+                                       Pageable pageable);
+
     @Query("SELECT u FROM User u WHERE u.role = 'CLIENT' AND " +
+           "(:search IS NULL OR LOWER(u.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+           "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "u.name >= :cursorKey AND (u.name > :cursorKey OR u.id > :cursorId) " +
+           "ORDER BY u.name ASC, u.id ASC")
+    List<User> findClientPageAfter(@Param("search") String search,
+                                   @Param("cursorKey") String cursorKey,
+                                   @Param("cursorId") UUID cursorId,
+                                   Pageable pageable);
+    
+    @Query("SELECT COUNT(u) FROM User u WHERE u.role = 'CLIENT' AND " +
            "(LOWER(u.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<User> findClientsBySearch(@Param("search") String search, Pageable pageable);
+    Long countClientsBySearch(@Param("search") String search);
     
     @Query("SELECT COUNT(u) FROM User u WHERE u.role = 'CLIENT'")
     Long countClients();
+
+    @Query("SELECT u.securityStamp FROM User u WHERE u.id = :id")
+    Optional<Integer> findSecurityStampById(@Param("id") UUID id);
+
+    @Query("SELECT u.id FROM User u")
+    List<UUID> findAllIds();
 }
\ No newline at end of file
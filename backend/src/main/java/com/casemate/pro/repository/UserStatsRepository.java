@@ -0,0 +1,44 @@
+package com.casemate.pro.repository;
+
+import com.casemate.pro.entity.UserStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, UUID> {
+
+    @Modifying
+    @Query("UPDATE UserStats s SET " +
+           "s.totalCases = s.totalCases + :totalCases, " +
+           "s.activeCases = s.activeCases + :activeCases, " +
+           "s.pendingCases = s.pendingCases + :pendingCases, " +
+           "s.closedCases = s.closedCases + :closedCases, " +
+           "s.activeCaseValue = s.activeCaseValue + :activeCaseValue, " +
+           "s.documents = s.documents + :documents, " +
+           "s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.userId IN :userIds")
+    int applyDelta(@Param("userIds") Collection<UUID> userIds,
+                   @Param("totalCases") long totalCases,
+                   @Param("activeCases") long activeCases,
+                   @Param("pendingCases") long pendingCases,
+                   @Param("closedCases") long closedCases,
+                   @Param("activeCaseValue") double activeCaseValue,
+                   @Param("documents") long documents);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserStats s WHERE s.userId = :userId")
+    Optional<UserStats> findForUpdate(@Param("userId") UUID userId);
+
+    @Query("SELECT u.id FROM User u WHERE NOT EXISTS (SELECT s FROM UserStats s WHERE s.userId = u.id)")
+    List<UUID> findUserIdsWithoutStats();
+}
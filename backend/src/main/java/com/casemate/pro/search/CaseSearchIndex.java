@@ -0,0 +1,339 @@
+package com.casemate.pro.search;
+
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.repository.CaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full-text index over case number, title, description and notes, scoped to the lawyer or
+ * client who owns each case.
+ *
+ * <p>The index lives in memory and is snapshotted to {@code search.index-dir}. On startup the
+ * snapshot is loaded and caught up from the cases updated since it was written (deleted cases
+ * are reconciled by id); without a usable snapshot the index is rebuilt from the database in
+ * keyset batches. Loading runs in the background, so searches return partial results until it
+ * finishes. Case changes are applied after their transaction commits.
+ *
+ * <p>Each node holds its own copy and only sees the changes made through it; there is no
+ * cross-node invalidation. With several nodes, a case changed on one is found by its old text on
+ * the others until they restart and catch up from the database.
+ */
+@Component
+@Slf4j
+public class CaseSearchIndex {
+
+    private static final String SNAPSHOT_FILE = "cases.idx";
+
+    private final CaseRepository caseRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Cases deleted while a bulk load is running, so the load does not resurrect them
+    private final Set<UUID> removedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    private InvertedIndex index = new InvertedIndex();
+    private LocalDateTime watermark;
+    private volatile boolean dirty;
+    private volatile boolean loading;
+
+    @Value("${search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index-dir:data/search-index}")
+    private String indexDir;
+
+    @Value("${search.max-results:50}")
+    private int maxResults;
+
+    @Value("${search.max-prefix-expansions:64}")
+    private int maxPrefixExpansions;
+
+    @Value("${search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    public CaseSearchIndex(CaseRepository caseRepository) {
+        this.caseRepository = caseRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "case-search-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Searches the cases the user is lawyer (or client) on. Terms are ANDed; the last term,
+     * and any term written with a trailing {@code *}, matches as a prefix.
+     */
+    public List<SearchHit> search(String query, UUID userId, boolean asLawyer, int limit) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<InvertedIndex.QueryTerm> terms = parse(query);
+        int cappedLimit = Math.max(1, Math.min(limit, maxResults));
+
+        lock.readLock().lock();
+        try {
+            return index.search(terms, userId, asLawyer, cappedLimit, maxPrefixExpansions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes the case once the surrounding transaction commits, or immediately when there is none.
+     */
+    public void indexAfterCommit(Case caseEntity) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> apply(List.of(IndexedCase.of(caseEntity))));
+    }
+
+    public void removeAfterCommit(UUID caseId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            if (loading) {
+                removedWhileLoading.add(caseId);
+            }
+            lock.writeLock().lock();
+            try {
+                dirty |= index.remove(caseId);
+                if (index.needsCompaction()) {
+                    index.compact();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${search.snapshot-interval-ms:300000}")
+    public void snapshotIfDirty() {
+        if (enabled && dirty && !loading) {
+            save();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled && dirty && !loading) {
+            save();
+        }
+    }
+
+    private void load() {
+        loading = true;
+        long started = System.currentTimeMillis();
+        try {
+            if (readSnapshot()) {
+                catchUp();
+            } else {
+                rebuild();
+            }
+            log.info("Case search index ready with {} cases in {} ms", size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.error("Could not load the case search index", e);
+        } finally {
+            loading = false;
+            removedWhileLoading.clear();
+        }
+        if (dirty) {
+            save();
+        }
+    }
+
+    private void rebuild() {
+        UUID after = null;
+        while (true) {
+            List<IndexedCase> batch = caseRepository.findForIndex(after, PageRequest.of(0, rebuildBatchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            apply(batch);
+            after = batch.get(batch.size() - 1).id();
+        }
+    }
+
+    private void catchUp() {
+        if (watermark != null) {
+            // >= so rows sharing the watermark timestamp are not skipped; versions make re-adds harmless
+            apply(caseRepository.findForIndexUpdatedSince(watermark));
+        }
+        if (caseRepository.count() != size()) {
+            Set<UUID> existing = new HashSet<>(caseRepository.findAllIds());
+            lock.writeLock().lock();
+            try {
+                for (UUID caseId : index.caseIds()) {
+                    if (!existing.contains(caseId)) {
+                        index.remove(caseId);
+                        dirty = true;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (existing.size() != size()) {
+                // Cases are missing for reasons the watermark cannot explain; start over
+                log.warn("Case search snapshot is inconsistent with the database; rebuilding");
+                lock.writeLock().lock();
+                try {
+                    index = new InvertedIndex();
+                    watermark = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                rebuild();
+            }
+        }
+    }
+
+    private void apply(List<IndexedCase> cases) {
+        lock.writeLock().lock();
+        try {
+            for (IndexedCase indexedCase : cases) {
+                if (loading && removedWhileLoading.contains(indexedCase.id())) {
+                    continue;
+                }
+                dirty |= index.add(indexedCase);
+                if (indexedCase.updatedAt() != null
+                        && (watermark == null || indexedCase.updatedAt().isAfter(watermark))) {
+                    watermark = indexedCase.updatedAt();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean readSnapshot() {
+        Path file = Paths.get(indexDir, SNAPSHOT_FILE);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            String storedWatermark = in.readUTF();
+            InvertedIndex loaded = InvertedIndex.readFrom(in);
+            lock.writeLock().lock();
+            try {
+                index = loaded;
+                watermark = storedWatermark.isEmpty() ? null : LocalDateTime.parse(storedWatermark);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable case search snapshot {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Compacts under the write lock, then writes the snapshot under the read lock so searches
+     * keep running. The file is written beside the old one and moved into place.
+     */
+    private void save() {
+        Path dir = Paths.get(indexDir);
+        Path target = dir.resolve(SNAPSHOT_FILE);
+        Path temp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+
+        lock.writeLock().lock();
+        try {
+            // Snapshots hold live documents only
+            if (index.hasTombstones()) {
+                index.compact();
+            }
+            dirty = false;
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            Files.createDirectories(dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeUTF(watermark != null ? watermark.toString() : "");
+                index.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("Could not write case search snapshot: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<InvertedIndex.QueryTerm> parse(String query) {
+        List<InvertedIndex.QueryTerm> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        Set<String> seen = new HashSet<>();
+        String[] chunks = query.trim().split("\\s+");
+        for (int c = 0; c < chunks.length; c++) {
+            List<String> tokens = Tokenizer.tokenize(chunks[c]);
+            for (int t = 0; t < tokens.size(); t++) {
+                boolean lastOfChunk = t == tokens.size() - 1;
+                boolean prefix = lastOfChunk && (chunks[c].endsWith("*") || c == chunks.length - 1);
+                if (seen.add(tokens.get(t) + (prefix ? "*" : ""))) {
+                    terms.add(new InvertedIndex.QueryTerm(tokens.get(t), prefix));
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.casemate.pro.search;
+
+import com.casemate.pro.entity.Case;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The searchable fields of a case plus its participants for access filtering. Built by
+ * {@code CaseRepository} constructor queries when (re)loading the index, or from an entity
+ * after a commit.
+ */
+public record IndexedCase(UUID id, UUID lawyerId, UUID clientId, String caseNumber, String title,
+                          String description, String notes, LocalDateTime updatedAt) {
+
+    static IndexedCase of(Case caseEntity) {
+        return new IndexedCase(caseEntity.getId(),
+            caseEntity.getLawyer().getId(), caseEntity.getClient().getId(),
+            caseEntity.getCaseNumber(), caseEntity.getTitle(),
+            caseEntity.getDescription(), caseEntity.getNotes(), caseEntity.getUpdatedAt());
+    }
+}
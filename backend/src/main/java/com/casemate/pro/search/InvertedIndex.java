@@ -0,0 +1,499 @@
+package com.casemate.pro.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Term-to-postings index over cases with BM25 scoring. Documents get dense int ids so postings
+ * are plain int arrays; removed documents are tombstoned and dropped by {@link #compact()}.
+ * Each lawyer and client also has the sorted list of their documents, so a search by someone
+ * with few cases probes the postings for those instead of walking every posting of a common term.
+ * Not thread-safe: {@link CaseSearchIndex} guards it with a read/write lock.
+ */
+final class InvertedIndex {
+
+    private static final int MAGIC = 0x43534958;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Title and case number terms count double, a cheap stand-in for per-field boosts
+    private static final int TITLE_WEIGHT = 2;
+
+    static final class Postings {
+        private int[] docs = new int[2];
+        private int[] freqs = new int[2];
+        private int size;
+
+        private void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        private void remap(int[] newIds) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = newIds[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    freqs[kept] = freqs[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * Ascending document ids of one lawyer's or client's cases, tombstoned ones included until
+     * the next compaction.
+     */
+    static final class DocList {
+        private int[] docs = new int[2];
+        private int size;
+
+        private void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        private void remap(int[] newIds) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = newIds[docs[i]];
+                if (doc >= 0) {
+                    docs[kept++] = doc;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * One parsed query term; prefix terms match every indexed term they start.
+     */
+    record QueryTerm(String text, boolean prefix) {
+    }
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<UUID, Integer> docsByCase = new HashMap<>();
+    private final Map<UUID, Integer> ownerOrdinals = new HashMap<>();
+    private final List<UUID> owners = new ArrayList<>();
+    // Indexed by owner ordinal
+    private final List<DocList> docsByLawyer = new ArrayList<>();
+    private final List<DocList> docsByClient = new ArrayList<>();
+    private final BitSet live = new BitSet();
+
+    private UUID[] caseIds = new UUID[1024];
+    private int[] lawyers = new int[1024];
+    private int[] clients = new int[1024];
+    private int[] lengths = new int[1024];
+    private long[] versions = new long[1024];
+    private int docCount;
+    private int liveCount;
+    private long totalLength;
+
+    int size() {
+        return liveCount;
+    }
+
+    Set<UUID> caseIds() {
+        return new HashSet<>(docsByCase.keySet());
+    }
+
+    /**
+     * Indexes the case, replacing any earlier version. Returns false if the index already
+     * holds a newer version of it, which happens when a bulk load races an incremental update.
+     */
+    boolean add(IndexedCase indexedCase) {
+        long version = versionOf(indexedCase.updatedAt());
+        Integer existing = docsByCase.get(indexedCase.id());
+        if (existing != null) {
+            if (versions[existing] > version) {
+                return false;
+            }
+            removeDoc(existing);
+        }
+
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = countTerms(frequencies, indexedCase.title(), TITLE_WEIGHT)
+            + countTerms(frequencies, indexedCase.caseNumber(), TITLE_WEIGHT)
+            + countTerms(frequencies, indexedCase.description(), 1)
+            + countTerms(frequencies, indexedCase.notes(), 1);
+
+        int doc = docCount++;
+        ensureCapacity(docCount);
+        caseIds[doc] = indexedCase.id();
+        lawyers[doc] = ownerOrdinal(indexedCase.lawyerId());
+        clients[doc] = ownerOrdinal(indexedCase.clientId());
+        docsOf(docsByLawyer, lawyers[doc]).add(doc);
+        docsOf(docsByClient, clients[doc]).add(doc);
+        lengths[doc] = length;
+        versions[doc] = version;
+        live.set(doc);
+        docsByCase.put(indexedCase.id(), doc);
+        liveCount++;
+        totalLength += length;
+
+        for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue()[0]);
+        }
+        return true;
+    }
+
+    boolean remove(UUID caseId) {
+        Integer doc = docsByCase.get(caseId);
+        if (doc == null) {
+            return false;
+        }
+        removeDoc(doc);
+        return true;
+    }
+
+    /**
+     * Ranks the caller's cases against the query. Every query term must match (through any of
+     * its prefix expansions); a document scores the best BM25 value among the expansions of
+     * each term, summed over terms.
+     */
+    List<SearchHit> search(List<QueryTerm> query, UUID userId, boolean asLawyer, int limit, int maxExpansions) {
+        Integer owner = ownerOrdinals.get(userId);
+        // Searches run concurrently under the read lock, so the owner lists are only read here
+        List<DocList> byOwner = asLawyer ? docsByLawyer : docsByClient;
+        if (owner == null || owner >= byOwner.size() || liveCount == 0 || query.isEmpty()) {
+            return List.of();
+        }
+        int[] ownerOf = asLawyer ? lawyers : clients;
+        DocList ownDocs = byOwner.get(owner);
+        double averageLength = Math.max(1.0, (double) totalLength / liveCount);
+
+        List<List<Postings>> resolved = new ArrayList<>();
+        for (QueryTerm term : query) {
+            List<Postings> alternatives = expand(term, maxExpansions);
+            if (alternatives.isEmpty()) {
+                return List.of();
+            }
+            resolved.add(alternatives);
+        }
+        // Rarest term first keeps the candidate set small for the later intersections
+        resolved.sort(Comparator.comparingLong(InvertedIndex::totalPostings));
+
+        Map<Integer, Double> scores = null;
+        for (List<Postings> alternatives : resolved) {
+            Map<Integer, Double> next = new HashMap<>();
+            for (Postings postings : alternatives) {
+                double idf = Math.log(1 + Math.max(0, liveCount - postings.size + 0.5) / (postings.size + 0.5));
+                if (ownDocs.size < postings.size) {
+                    // Both lists are sorted by document id, so each of the owner's documents is one binary search
+                    for (int j = 0; j < ownDocs.size; j++) {
+                        int i = Arrays.binarySearch(postings.docs, 0, postings.size, ownDocs.docs[j]);
+                        if (i >= 0) {
+                            accumulate(scores, next, ownDocs.docs[j], postings.freqs[i], idf, averageLength);
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < postings.size; i++) {
+                        if (ownerOf[postings.docs[i]] == owner) {
+                            accumulate(scores, next, postings.docs[i], postings.freqs[i], idf, averageLength);
+                        }
+                    }
+                }
+            }
+            scores = next;
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Map.Entry<Integer, Double> entry = top.poll();
+            hits.add(new SearchHit(caseIds[entry.getKey()], entry.getValue()));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    // Adds the document's score for one term expansion; documents that missed an earlier term stay out
+    private void accumulate(Map<Integer, Double> scores, Map<Integer, Double> next, int doc, double freq,
+                            double idf, double averageLength) {
+        if (!live.get(doc)) {
+            return;
+        }
+        Double previous = scores == null ? Double.valueOf(0.0) : scores.get(doc);
+        if (previous == null) {
+            return;
+        }
+        double score = idf * freq * (K1 + 1)
+            / (freq + K1 * (1 - B + B * lengths[doc] / averageLength));
+        next.merge(doc, previous + score, Math::max);
+    }
+
+    boolean hasTombstones() {
+        return docCount != liveCount;
+    }
+
+    boolean needsCompaction() {
+        int dead = docCount - liveCount;
+        return dead > 1024 && dead > liveCount / 4;
+    }
+
+    /**
+     * Drops tombstoned documents and renumbers the rest. Numbering is monotonic so postings
+     * stay sorted by document id.
+     */
+    void compact() {
+        int[] newIds = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (live.get(doc)) {
+                newIds[doc] = next;
+                caseIds[next] = caseIds[doc];
+                lawyers[next] = lawyers[doc];
+                clients[next] = clients[doc];
+                lengths[next] = lengths[doc];
+                versions[next] = versions[doc];
+                next++;
+            } else {
+                newIds[doc] = -1;
+            }
+        }
+
+        Iterator<Postings> postings = terms.values().iterator();
+        while (postings.hasNext()) {
+            Postings current = postings.next();
+            current.remap(newIds);
+            if (current.size == 0) {
+                postings.remove();
+            }
+        }
+
+        for (DocList docs : docsByLawyer) {
+            docs.remap(newIds);
+        }
+        for (DocList docs : docsByClient) {
+            docs.remap(newIds);
+        }
+
+        Arrays.fill(caseIds, next, docCount, null);
+        docCount = next;
+        live.clear();
+        live.set(0, next);
+        docsByCase.clear();
+        for (int doc = 0; doc < next; doc++) {
+            docsByCase.put(caseIds[doc], doc);
+        }
+    }
+
+    /**
+     * Writes the index. Callers compact first so only live documents are stored.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        out.writeInt(owners.size());
+        for (UUID owner : owners) {
+            out.writeLong(owner.getMostSignificantBits());
+            out.writeLong(owner.getLeastSignificantBits());
+        }
+
+        out.writeInt(docCount);
+        for (int doc = 0; doc < docCount; doc++) {
+            out.writeLong(caseIds[doc].getMostSignificantBits());
+            out.writeLong(caseIds[doc].getLeastSignificantBits());
+            writeVarInt(out, lawyers[doc]);
+            writeVarInt(out, clients[doc]);
+            writeVarInt(out, lengths[doc]);
+            out.writeLong(versions[doc]);
+        }
+
+        out.writeInt(terms.size());
+        for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+            Postings postings = entry.getValue();
+            out.writeUTF(entry.getKey());
+            writeVarInt(out, postings.size);
+            int previous = 0;
+            for (int i = 0; i < postings.size; i++) {
+                writeVarInt(out, postings.docs[i] - previous);
+                writeVarInt(out, postings.freqs[i]);
+                previous = postings.docs[i];
+            }
+        }
+    }
+
+    static InvertedIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unrecognised search index format");
+        }
+        InvertedIndex index = new InvertedIndex();
+
+        int ownerCount = in.readInt();
+        for (int i = 0; i < ownerCount; i++) {
+            index.ownerOrdinal(new UUID(in.readLong(), in.readLong()));
+        }
+
+        int docCount = in.readInt();
+        index.ensureCapacity(docCount);
+        for (int doc = 0; doc < docCount; doc++) {
+            UUID caseId = new UUID(in.readLong(), in.readLong());
+            index.caseIds[doc] = caseId;
+            index.lawyers[doc] = readVarInt(in);
+            index.clients[doc] = readVarInt(in);
+            index.lengths[doc] = readVarInt(in);
+            index.versions[doc] = in.readLong();
+            index.docsByCase.put(caseId, doc);
+            index.docsOf(index.docsByLawyer, index.lawyers[doc]).add(doc);
+            index.docsOf(index.docsByClient, index.clients[doc]).add(doc);
+            index.totalLength += index.lengths[doc];
+        }
+        index.docCount = docCount;
+        index.liveCount = docCount;
+        index.live.set(0, docCount);
+
+        int termCount = in.readInt();
+        for (int t = 0; t < termCount; t++) {
+            String term = in.readUTF();
+            int size = readVarInt(in);
+            Postings postings = new Postings();
+            postings.docs = new int[Math.max(2, size)];
+            postings.freqs = new int[Math.max(2, size)];
+            int doc = 0;
+            for (int i = 0; i < size; i++) {
+                doc += readVarInt(in);
+                postings.docs[i] = doc;
+                postings.freqs[i] = readVarInt(in);
+            }
+            postings.size = size;
+            index.terms.put(term, postings);
+        }
+        return index;
+    }
+
+    private List<Postings> expand(QueryTerm term, int maxExpansions) {
+        if (!term.prefix()) {
+            Postings exact = terms.get(term.text());
+            return exact != null ? List.of(exact) : List.of();
+        }
+        NavigableMap<String, Postings> matches =
+            terms.subMap(term.text(), true, term.text() + Character.MAX_VALUE, false);
+        List<Postings> alternatives = new ArrayList<>();
+        for (Postings postings : matches.values()) {
+            alternatives.add(postings);
+            if (alternatives.size() >= maxExpansions) {
+                break;
+            }
+        }
+        return alternatives;
+    }
+
+    private static long totalPostings(List<Postings> alternatives) {
+        long total = 0;
+        for (Postings postings : alternatives) {
+            total += postings.size;
+        }
+        return total;
+    }
+
+    private void removeDoc(int doc) {
+        if (!live.get(doc)) {
+            return;
+        }
+        live.clear(doc);
+        docsByCase.remove(caseIds[doc]);
+        liveCount--;
+        totalLength -= lengths[doc];
+    }
+
+    private static int countTerms(Map<String, int[]> frequencies, String text, int weight) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        for (String token : tokens) {
+            frequencies.computeIfAbsent(token, t -> new int[1])[0] += weight;
+        }
+        return tokens.size() * weight;
+    }
+
+    private int ownerOrdinal(UUID ownerId) {
+        return ownerOrdinals.computeIfAbsent(ownerId, id -> {
+            owners.add(id);
+            return owners.size() - 1;
+        });
+    }
+
+    private static DocList docsOf(List<DocList> byOwner, int ordinal) {
+        while (byOwner.size() <= ordinal) {
+            byOwner.add(new DocList());
+        }
+        return byOwner.get(ordinal);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= caseIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, caseIds.length * 2);
+        caseIds = Arrays.copyOf(caseIds, capacity);
+        lawyers = Arrays.copyOf(lawyers, capacity);
+        clients = Arrays.copyOf(clients, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    private static long versionOf(LocalDateTime updatedAt) {
+        if (updatedAt == null) {
+            return 0L;
+        }
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + updatedAt.getNano() / 1_000;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in search index");
+    }
+}
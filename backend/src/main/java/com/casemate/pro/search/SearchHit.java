@@ -0,0 +1,6 @@
+package com.casemate.pro.search;
+
+import java.util.UUID;
+
+public record SearchHit(UUID caseId, double score) {
+}
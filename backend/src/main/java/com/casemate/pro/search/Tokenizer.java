@@ -0,0 +1,57 @@
+package com.casemate.pro.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits text into lower-case, accent-folded terms on any character that is not a letter or
+ * digit. Single letters and a short list of English stop words are dropped; numbers are kept
+ * at any length so case numbers such as {@code CS-2025-001} stay searchable by their parts.
+ */
+final class Tokenizer {
+
+    static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+        "of", "on", "or", "that", "the", "this", "to", "was", "with");
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        StringBuilder current = new StringBuilder();
+        boolean numeric = true;
+        for (int i = 0; i <= folded.length(); i++) {
+            char ch = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.getType(ch) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(ch)) {
+                if (current.length() < MAX_TERM_LENGTH) {
+                    current.append(ch);
+                }
+                numeric &= Character.isDigit(ch);
+                continue;
+            }
+            if (current.length() > 0) {
+                String term = current.toString();
+                if ((numeric || term.length() > 1) && !STOP_WORDS.contains(term)) {
+                    terms.add(term);
+                }
+                current.setLength(0);
+            }
+            numeric = true;
+        }
+        return terms;
+    }
+}
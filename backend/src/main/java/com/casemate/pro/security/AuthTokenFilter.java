@@ -1,10 +1,12 @@
 package com.casemate.pro.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,21 +27,32 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private SecurityStampRegistry securityStampRegistry;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Value("${jwt.claims-authentication:true}")
+    private boolean claimsAuthentication;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            Claims claims = jwt != null ? jwtUtils.verifyAndParse(jwt) : null;
+            if (claims != null) {
+                UserDetails userDetails = resolveUser(claims);
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: " + e.getMessage());
@@ -48,6 +61,26 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolveUser(Claims claims) {
+        if (tokenRevocationList.isRevoked(claims.getId())) {
+            logger.warn("Rejected revoked token " + claims.getId());
+            return null;
+        }
+
+        UserPrincipal principal = claimsAuthentication ? jwtUtils.toPrincipal(claims) : null;
+
+        if (principal == null) {
+            // Tokens without identity claims, or claims mode switched off: load the user
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        if (!securityStampRegistry.isCurrent(principal.getId(), principal.getSecurityStamp())) {
+            logger.warn("Rejected token with stale security stamp for user " + principal.getId());
+            return null;
+        }
+        return principal;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
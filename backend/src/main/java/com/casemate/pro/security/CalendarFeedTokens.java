@@ -0,0 +1,77 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Opaque tokens for subscribing to a user's hearing calendar from a calendar app, which cannot
+ * send a bearer token. A token is the user id and security stamp plus an HMAC over them; it
+ * grants read access to the feed only, never to the API, and stops working when the user's
+ * security stamp changes (password, email or role change).
+ */
+@Component
+@RequiredArgsConstructor
+public class CalendarFeedTokens {
+
+    private static final int MAC_LENGTH = 16;
+    private static final int TOKEN_LENGTH = 16 + 4 + MAC_LENGTH;
+
+    private final SecurityStampRegistry securityStampRegistry;
+
+    @Value("${jwt.secret}")
+    private String jwtSecret;
+
+    public String issue(User user) {
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_LENGTH);
+        token.putLong(user.getId().getMostSignificantBits());
+        token.putLong(user.getId().getLeastSignificantBits());
+        token.putInt(user.getSecurityStamp());
+        token.put(mac(token.array(), 20));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+    }
+
+    /**
+     * Returns the user the token was issued to, or empty if it is malformed, forged or revoked.
+     */
+    public Optional<UUID> verify(String token) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (raw.length != TOKEN_LENGTH
+                || !MessageDigest.isEqual(mac(raw, 20), Arrays.copyOfRange(raw, 20, TOKEN_LENGTH))) {
+            return Optional.empty();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+        int stamp = buffer.getInt();
+        return securityStampRegistry.isCurrent(userId, stamp) ? Optional.of(userId) : Optional.empty();
+    }
+
+    private byte[] mac(byte[] data, int length) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            // Separate key from the JWT signing key, derived from the same secret
+            mac.init(new SecretKeySpec(("calendar-feed:" + jwtSecret).getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update(data, 0, length);
+            return Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.casemate.pro.security;
 
+import com.casemate.pro.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class JwtUtils {
@@ -21,13 +27,44 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // Tokens whose signature has already been checked, keyed by their signature segment.
+    // Entries are only served until the token's own expiry. Lookups take no lock; when the map
+    // grows past its bound, one writer drops expired entries and then the least recently used.
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_STAMP = "stamp";
+
     public String generateJwtToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
-        return generateTokenFromUsername(userPrincipal.getUsername());
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        if (userDetails instanceof UserPrincipal) {
+            return generateTokenForPrincipal((UserPrincipal) userDetails);
+        }
+        return generateTokenFromUsername(userDetails.getUsername());
+    }
+
+    public String generateTokenForPrincipal(UserPrincipal principal) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, principal.getId().toString());
+        claims.put(CLAIM_ROLE, principal.getRole().name());
+        claims.put(CLAIM_STAMP, principal.getSecurityStamp());
+        return createToken(claims, principal.getEmail());
     }
 
     public String generateTokenFromUsername(String username) {
@@ -38,30 +75,41 @@ public class JwtUtils {
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
+    /**
+     * Verifies the token signature and expiry and returns its claims, or null if the token is not valid.
+     * Repeated calls with the same token are answered from the verified-token cache. Each
+     * caller gets its own copy of the claims, so changing them cannot affect later calls.
+     */
+    public Claims verifyAndParse(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String cacheKey = token.substring(token.lastIndexOf('.') + 1);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(cacheKey);
+        // The whole token must match: the key is only the signature, which anyone can copy
+        if (cached != null && cached.token.equals(token)) {
+            if (cached.expiresAt > now) {
+                cached.lastUsedNanos = System.nanoTime();
+                return Jwts.claims(cached.claims);
+            }
+            verifiedTokens.remove(cacheKey, cached);
+        }
 
-    public boolean validateJwtToken(String authToken) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
-        } catch (SecurityException e) {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            remember(cacheKey, token, claims);
+            return claims;
+        } catch (io.jsonwebtoken.security.SecurityException e) {
             System.err.println("Invalid JWT signature: " + e.getMessage());
         } catch (MalformedJwtException e) {
             System.err.println("Invalid JWT token: " + e.getMessage());
@@ -72,6 +120,82 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             System.err.println("JWT claims string is empty: " + e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Builds the principal straight from the token claims, or returns null for tokens
+     * issued without the user id, role and stamp claims.
+     */
+    public UserPrincipal toPrincipal(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Integer stamp = claims.get(CLAIM_STAMP, Integer.class);
+        if (userId == null || role == null || stamp == null) {
+            return null;
+        }
+        return UserPrincipal.fromClaims(
+            UUID.fromString(userId),
+            claims.getSubject(),
+            User.Role.valueOf(role),
+            stamp
+        );
+    }
+
+    public String getUserNameFromJwtToken(String token) {
+        Claims claims = verifyAndParse(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return verifyAndParse(authToken) != null;
+    }
+
+    private void remember(String cacheKey, String token, Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null || cacheKey.isEmpty()) {
+            return;
+        }
+        verifiedTokens.put(cacheKey, new VerifiedToken(token, Jwts.claims(claims), expiration.getTime()));
+        if (verifiedTokens.size() > verifiedCacheSize) {
+            evict();
+        }
+    }
+
+    // Callers that find another thread already evicting skip it, so the bound is approximate
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            verifiedTokens.values().removeIf(entry -> entry.expiresAt <= now);
+            int excess = verifiedTokens.size() - verifiedCacheSize;
+            if (excess <= 0) {
+                return;
+            }
+            // Trim a little below the bound so the sort is not repeated on every insert
+            int victims = excess + verifiedCacheSize / 16;
+            verifiedTokens.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastUsedNanos))
+                .limit(victims)
+                .toList()
+                .forEach(e -> verifiedTokens.remove(e.getKey(), e.getValue()));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final String token;
+        private final Claims claims;
+        private final long expiresAt;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        VerifiedToken(String token, Claims claims, long expiresAt) {
+            this.token = token;
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
     }
 }
@@ -0,0 +1,155 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.exception.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket throttling for the expensive endpoints: login and register (BCrypt) keyed by client IP,
+ * document uploads and upload chunks (disk I/O) keyed by user id,
+ * and the unauthenticated calendar feed keyed by client IP. Rule paths are Ant-style patterns. Rejected requests get 429 with a Retry-After header.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final List<Rule> rules;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final StripedTokenBuckets buckets;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean trustForwardedFor;
+    private final long idleEvictionNanos;
+
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.trust-forwarded-for:false}") boolean trustForwardedFor,
+                           @Value("${rate-limit.idle-eviction-seconds:600}") long idleEvictionSeconds,
+                           @Value("${rate-limit.login.capacity:10}") int loginCapacity,
+                           @Value("${rate-limit.login.refill-per-minute:10}") int loginRefill,
+                           @Value("${rate-limit.register.capacity:5}") int registerCapacity,
+                           @Value("${rate-limit.register.refill-per-minute:5}") int registerRefill,
+                           @Value("${rate-limit.refresh.capacity:30}") int refreshCapacity,
+                           @Value("${rate-limit.refresh.refill-per-minute:30}") int refreshRefill,
+                           @Value("${rate-limit.upload.capacity:30}") int uploadCapacity,
+                           @Value("${rate-limit.upload.refill-per-minute:30}") int uploadRefill,
+                           @Value("${rate-limit.upload-chunk.capacity:120}") int chunkCapacity,
+                           @Value("${rate-limit.upload-chunk.refill-per-minute:600}") int chunkRefill,
+                           @Value("${rate-limit.calendar-feed.capacity:20}") int feedCapacity,
+                           @Value("${rate-limit.calendar-feed.refill-per-minute:20}") int feedRefill) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.trustForwardedFor = trustForwardedFor;
+        this.idleEvictionNanos = TimeUnit.SECONDS.toNanos(idleEvictionSeconds);
+        this.buckets = new StripedTokenBuckets(Runtime.getRuntime().availableProcessors() * 4);
+        this.rules = List.of(
+            new Rule("login", "POST", "/api/auth/login", KeyType.IP, loginCapacity, loginRefill),
+            new Rule("register", "POST", "/api/auth/register", KeyType.IP, registerCapacity, registerRefill),
+            new Rule("refresh", "POST", "/api/auth/refresh", KeyType.IP, refreshCapacity, refreshRefill),
+            new Rule("upload", "POST", "/api/documents", KeyType.USER, uploadCapacity, uploadRefill),
+            new Rule("upload", "POST", "/api/documents/multiple", KeyType.USER, uploadCapacity, uploadRefill),
+            new Rule("upload", "POST", "/api/documents/uploads", KeyType.USER, uploadCapacity, uploadRefill),
+            // Its own bucket: one upload sends many chunks, each still a full write to disk
+            new Rule("upload-chunk", "PUT", "/api/documents/uploads/*/chunks/*", KeyType.USER, chunkCapacity, chunkRefill),
+            new Rule("calendar-feed", "GET", "/api/hearings/feed.ics", KeyType.IP, feedCapacity, feedRefill)
+        );
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Rule rule = findRule(request);
+        if (rule != null) {
+            String key = rule.name() + ":" + clientKey(rule, request);
+            long waitNanos = buckets.tryAcquire(key, rule.capacity(), rule.refillPerNano(), System.nanoTime());
+            if (waitNanos > 0) {
+                reject(request, response, waitNanos);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        buckets.evictIdle(System.nanoTime(), idleEvictionNanos);
+    }
+
+    private Rule findRule(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Rule rule : rules) {
+            if (rule.method().equals(method) && pathMatcher.match(rule.path(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private String clientKey(Rule rule, HttpServletRequest request) {
+        if (rule.keyType() == KeyType.USER) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal) {
+                return "user:" + ((UserPrincipal) authentication.getPrincipal()).getId();
+            }
+        }
+        return "ip:" + clientIp(request);
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                int comma = forwardedFor.indexOf(',');
+                return (comma >= 0 ? forwardedFor.substring(0, comma) : forwardedFor).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        ErrorResponse errorResponse = new ErrorResponse(
+            "Too Many Requests",
+            "Rate limit exceeded, retry in " + retryAfterSeconds + " seconds",
+            request.getRequestURI()
+        );
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private enum KeyType {
+        IP, USER
+    }
+
+    private record Rule(String name, String method, String path, KeyType keyType, int capacity, int refillPerMinute) {
+        double refillPerNano() {
+            return refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory view of each user's current security stamp, used to reject tokens issued
+ * before a password, email or role change. A user's stamp is read from the database the
+ * first time one of their tokens is seen and is then kept up to date by {@link #stampChanged}.
+ *
+ * Entries expire after {@code jwt.stamp-cache-ttl-seconds}, which bounds how long another
+ * node keeps accepting tokens after a change made here. When the registry is full the least
+ * recently used entry is evicted.
+ */
+@Component
+public class SecurityStampRegistry {
+
+    private static final int UNKNOWN_USER = -1;
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Map<UUID, Entry> currentStamps;
+
+    public SecurityStampRegistry(UserRepository userRepository,
+                                 @Value("${jwt.stamp-cache-size:50000}") int maxEntries,
+                                 @Value("${jwt.stamp-cache-ttl-seconds:60}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.currentStamps = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public boolean isCurrent(UUID userId, int tokenStamp) {
+        long now = System.currentTimeMillis();
+        Entry entry = currentStamps.get(userId);
+        if (entry == null || entry.expiresAt() <= now) {
+            int stamp = userRepository.findSecurityStampById(userId).orElse(UNKNOWN_USER);
+            // A change recorded while the row was being read must not be overwritten
+            entry = currentStamps.merge(userId, new Entry(stamp, now + ttlMillis), SecurityStampRegistry::newer);
+        }
+        return entry.stamp() != UNKNOWN_USER && tokenStamp >= entry.stamp();
+    }
+
+    /**
+     * Records a new stamp for the user. Inside a transaction the change is applied only
+     * once it commits, so a rolled back change never locks the user out.
+     */
+    public void stampChanged(UUID userId, int newStamp) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(userId, newStamp);
+                }
+            });
+        } else {
+            record(userId, newStamp);
+        }
+    }
+
+    private void record(UUID userId, int newStamp) {
+        currentStamps.merge(userId, new Entry(newStamp, System.currentTimeMillis() + ttlMillis), SecurityStampRegistry::newer);
+    }
+
+    private static Entry newer(Entry existing, Entry candidate) {
+        if (existing.expiresAt() <= System.currentTimeMillis()) {
+            return candidate;
+        }
+        return candidate.stamp() >= existing.stamp() ? candidate : existing;
+    }
+
+    private record Entry(int stamp, long expiresAt) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.casemate.pro.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets partitioned over independently locked stripes. A key only ever contends with
+ * keys hashing to the same stripe, and buckets are created on first use.
+ */
+class StripedTokenBuckets {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    StripedTokenBuckets(int minimumStripes) {
+        int count = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes one token from the key's bucket. Returns 0 when the request is allowed, otherwise
+     * the number of nanoseconds until a token becomes available.
+     */
+    long tryAcquire(String key, int capacity, double refillPerNano, long nowNanos) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, nowNanos);
+                stripe.buckets.put(key, bucket);
+            }
+            return bucket.tryConsume(capacity, refillPerNano, nowNanos);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    void evictIdle(long nowNanos, long idleNanos) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.buckets.values().removeIf(bucket -> nowNanos - bucket.lastUsedNanos > idleNanos);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & mask];
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Bucket> buckets = new HashMap<>();
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+        private long lastUsedNanos;
+
+        Bucket(int capacity, long nowNanos) {
+            this.tokens = capacity;
+            this.lastRefillNanos = nowNanos;
+            this.lastUsedNanos = nowNanos;
+        }
+
+        long tryConsume(int capacity, double refillPerNano, long nowNanos) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+                lastRefillNanos = nowNanos;
+            }
+            lastUsedNanos = nowNanos;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / refillPerNano);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.entity.RevokedToken;
+import com.casemate.pro.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Revoked access token ids, persisted in {@code revoked_tokens} and mirrored into an in-memory
+ * Bloom filter. Only ids the filter reports as possibly revoked are confirmed against the
+ * table, so the per-request check almost never reaches the database.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    // Set while a rebuild is loading, so revocations made meanwhile land in the new filter as well
+    private volatile BloomFilter rebuilding;
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository,
+                               @Value("${jwt.revocation.expected-entries:100000}") long expectedEntries,
+                               @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    @PostConstruct
+    void load() {
+        rebuild();
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        return revokedTokenRepository.existsById(jti);
+    }
+
+    @Transactional
+    public void revoke(String jti, LocalDateTime expiresAt) {
+        if (jti == null || expiresAt.isBefore(LocalDateTime.now())) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(jti, expiresAt));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToFilters(jti);
+                }
+            });
+        } else {
+            addToFilters(jti);
+        }
+    }
+
+    /**
+     * Drops expired ids from the table and rebuilds the filter from what is left, which also
+     * picks up revocations made by other nodes.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:600000}",
+               initialDelayString = "${jwt.revocation.rebuild-interval-ms:600000}")
+    @Transactional
+    public void purgeAndRebuild() {
+        int purged = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired revoked token ids", purged);
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        BloomFilter fresh = new BloomFilter(expectedEntries, falsePositiveRate);
+        rebuilding = fresh;
+        try {
+            List<String> active = revokedTokenRepository.findActiveJtis(LocalDateTime.now());
+            active.forEach(fresh::add);
+            filter = fresh;
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private void addToFilters(String jti) {
+        // Add to the in-progress filter first: if no rebuild is running now, any later one
+        // reads the already committed row from the table
+        BloomFilter pending = rebuilding;
+        if (pending != null) {
+            pending.add(jti);
+        }
+        filter.add(jti);
+    }
+}
@@ -18,22 +18,49 @@ public class UserPrincipal implements UserDetails {
     private String email;
     private String password;
     private String name;
+    private User.Role role;
+    private int securityStamp;
     private Collection<? extends GrantedAuthority> authorities;
 
     public static UserPrincipal create(User user) {
-        Collection<GrantedAuthority> authorities = Collections.singletonList(
-            new SimpleGrantedAuthority("ROLE_" + user.getRole().name())
-        );
-
         return new UserPrincipal(
             user.getId(),
             user.getEmail(),
             user.getPasswordHash(),
             user.getName(),
-            authorities
+            user.getRole(),
+            user.getSecurityStamp(),
+            authoritiesFor(user.getRole())
         );
     }
 
+    /**
+     * Principal for a verified token. Only claims the security stamp guards are trusted, so the
+     * display name, which changes without rotating the stamp, is left out.
+     */
+    public static UserPrincipal fromClaims(UUID id, String email, User.Role role, int securityStamp) {
+        return new UserPrincipal(id, email, null, null, role, securityStamp, authoritiesFor(role));
+    }
+
+    private static Collection<GrantedAuthority> authoritiesFor(User.Role role) {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    /**
+     * Detached user reference carrying only what the token knows about the user: id, email, role
+     * and stamp. Good for ownership checks and as an association target; load the entity for
+     * profile fields such as the name.
+     */
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setName(name);
+        user.setRole(role);
+        user.setSecurityStamp(securityStamp);
+        return user;
+    }
+
     @Override
     public String getUsername() {
         return email;
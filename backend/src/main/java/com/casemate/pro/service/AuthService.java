@@ -6,15 +6,19 @@ import com.casemate.pro.dto.RegisterRequest;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.repository.UserRepository;
 import com.casemate.pro.security.JwtUtils;
+import com.casemate.pro.security.PasswordHasher;
+import com.casemate.pro.security.TokenRevocationList;
+import com.casemate.pro.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.UUID;
 
 @Service
@@ -22,9 +26,12 @@ import java.util.UUID;
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordHasher passwordHasher;
     private final JwtUtils jwtUtils;
+    private final UserCache userCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationList tokenRevocationList;
+    private final UserStatsService userStatsService;
 
     public AuthResponse register(RegisterRequest request) {
         // Check if user already exists
@@ -35,22 +42,19 @@ public class AuthService {
         // Create new user
         User user = new User();
         user.setEmail(request.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+        user.setPasswordHash(passwordHasher.encode(request.getPassword()));
         user.setName(request.getName());
         user.setPhone(request.getPhone());
         user.setRole(request.getRoleEnum());
 
         User savedUser = userRepository.save(user);
+        userStatsService.createFor(savedUser);
 
-        // Authenticate user
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
+        // The hash was computed just above, so issue the token without verifying it again
+        String jwt = jwtUtils.generateTokenForPrincipal(UserPrincipal.create(savedUser));
+        String refreshToken = refreshTokenService.issue(savedUser.getId());
 
-        return new AuthResponse(jwt, 
+        return new AuthResponse(jwt, refreshToken,
             new AuthResponse.UserResponse(
                 savedUser.getId(),
                 savedUser.getEmail(),
@@ -65,17 +69,58 @@ public class AuthService {
     }
 
     public AuthResponse login(LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
+        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
+
+        if (!passwordHasher.matches(request.getPassword(), user != null ? user.getPasswordHash() : null)) {
+            throw new BadCredentialsException("Invalid credentials");
+        }
+
+        // Transparently move the hash to the configured cost factor
+        if (passwordHasher.needsRehash(user.getPasswordHash())) {
+            user.setPasswordHash(passwordHasher.encode(request.getPassword()));
+            userRepository.save(user);
+            userCache.evict(user);
+        }
+
+        String jwt = jwtUtils.generateTokenForPrincipal(UserPrincipal.create(user));
+        String refreshToken = refreshTokenService.issue(user.getId());
+
+        return buildAuthResponse(jwt, refreshToken, user);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token. The presented
+     * refresh token is revoked, so each one can be used once and the session slides forward.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public AuthResponse refresh(String rawRefreshToken) {
+        UUID userId = refreshTokenService.consume(rawRefreshToken);
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        String jwt = jwtUtils.generateTokenForPrincipal(UserPrincipal.create(user));
+        String refreshToken = refreshTokenService.issue(user.getId());
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
+        return buildAuthResponse(jwt, refreshToken, user);
+    }
 
-        User user = userRepository.findByEmail(request.getEmail())
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * Revokes the presented access token and, when given, the refresh token of the session.
+     */
+    @Transactional
+    public void logout(String accessToken, String rawRefreshToken) {
+        Claims claims = jwtUtils.verifyAndParse(accessToken);
+        if (claims != null && claims.getId() != null) {
+            LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+            tokenRevocationList.revoke(claims.getId(), expiresAt);
+        }
+        if (rawRefreshToken != null && !rawRefreshToken.isBlank()) {
+            refreshTokenService.revoke(rawRefreshToken);
+        }
+    }
 
-        return new AuthResponse(jwt,
+    private AuthResponse buildAuthResponse(String jwt, String refreshToken, User user) {
+        return new AuthResponse(jwt, refreshToken,
             new AuthResponse.UserResponse(
                 user.getId(),
                 user.getEmail(),
@@ -89,16 +134,37 @@ public class AuthService {
         );
     }
 
+    /**
+     * Returns the authenticated user. When the request was authenticated from token claims
+     * this is a detached reference (id, email, name, role) built without a database lookup;
+     * use {@link #loadCurrentUser()} when profile fields are needed.
+     */
     public User getCurrentUser() {
+        Authentication authentication = requireAuthentication();
+        if (authentication.getPrincipal() instanceof UserPrincipal) {
+            return ((UserPrincipal) authentication.getPrincipal()).toUser();
+        }
+        return loadCurrentUser(authentication);
+    }
+
+    public User loadCurrentUser() {
+        return loadCurrentUser(requireAuthentication());
+    }
+
+    private Authentication requireAuthentication() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || "anonymousUser".equals(authentication.getPrincipal())) {
             throw new RuntimeException("User not authenticated");
         }
+        return authentication;
+    }
+
+    private User loadCurrentUser(Authentication authentication) {
         String email = authentication.getName();
         if (email == null) {
             throw new RuntimeException("Authenticated user has no name (email)");
         }
-        return userRepository.findByEmail(email)
+        return userCache.findByEmail(email)
             .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
     }
 
@@ -114,6 +180,8 @@ public class AuthService {
             user.setAboutClient(aboutClient);
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.evict(savedUser);
+        return savedUser;
     }
 }
@@ -0,0 +1,448 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.BlobUsage;
+import com.casemate.pro.entity.DocumentBlob;
+import com.casemate.pro.repository.DocumentBlobRepository;
+import com.casemate.pro.storage.DocumentStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Content-addressed file storage for documents. Each distinct file is kept once in the
+ * {@link DocumentStorage}, under its SHA-256 as the key, and counted by the documents that use it.
+ *
+ * New content is written to storage before the blob's row is locked, so a slow upload to
+ * object storage does not hold up other uploads of the same file or the cleanup. Adding the
+ * reference then locks the row and checks storage again, and cleanup deletes a file only while
+ * holding the same row lock with the count at zero. So a file is never removed under a document
+ * that was just given a reference to it: the uploader either finds the file gone once it holds
+ * the lock and writes it again, or the cleanup finds the count above zero. A file written by a
+ * transaction that then rolls back is deleted again unless a committed reference uses it.
+ */
+@Component
+@Slf4j
+public class BlobStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PURGE_BATCH_SIZE = 500;
+    private static final long STAGING_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Writes a blob's content to the given path. Only called when the blob is not stored yet.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(Path target) throws IOException;
+    }
+
+    /**
+     * A file's hash, plus a local staged copy when the content was not stored yet.
+     */
+    public record Staged(String sha256, long size, Path file) {
+    }
+
+    /**
+     * A blob's storage key and size, and whether this upload or reference wrote it.
+     */
+    public record Stored(String sha256, long size, boolean written) {
+    }
+
+    private final DocumentBlobRepository documentBlobRepository;
+    private final DocumentStorage storage;
+    private final Path staging;
+    private final TransactionTemplate newTransaction;
+    private final ThreadPoolExecutor ioExecutor;
+
+    private final Counter blobsWritten;
+    private final Counter dedupHits;
+    private final Counter bytesSaved;
+    private final AtomicLong logicalBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    public BlobStore(DocumentBlobRepository documentBlobRepository,
+                     DocumentStorage storage,
+                     MeterRegistry meterRegistry,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${documents.staging-dir:uploads/staging}") String stagingDir,
+                     @Value("${documents.upload.io-threads:8}") int ioThreads,
+                     @Value("${documents.upload.io-queue-capacity:256}") int ioQueueCapacity) {
+        this.documentBlobRepository = documentBlobRepository;
+        this.storage = storage;
+        this.staging = Paths.get(stagingDir);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // When the queue is full the request thread stages its own files, which only slows it down
+        this.ioExecutor = new ThreadPoolExecutor(
+            ioThreads, ioThreads,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(ioQueueCapacity),
+            namedThreads(),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        this.blobsWritten = meterRegistry.counter("documents.blobs.writes");
+        this.dedupHits = meterRegistry.counter("documents.blobs.dedup.hits");
+        this.bytesSaved = meterRegistry.counter("documents.blobs.dedup.bytes.saved");
+        Gauge.builder("documents.blobs.logical.bytes", logicalBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("documents.blobs.stored.bytes", storedBytes, AtomicLong::get).register(meterRegistry);
+        // Bytes the documents account for per byte stored; 1.0 means no duplicates
+        Gauge.builder("documents.blobs.dedup.ratio", this, BlobStore::dedupRatio).register(meterRegistry);
+    }
+
+    /**
+     * Hex SHA-256 of a stream, read in fixed-size chunks.
+     */
+    public static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Copies the content into the local staging area, hashing it on the way in one pass over the
+     * upload. If a blob with that hash is already stored the copy is dropped again. Touches no
+     * database, so it can run on any thread.
+     */
+    public Staged stage(InputStreamSource source, long size) throws IOException {
+        Files.createDirectories(staging);
+        Path file = staging.resolve(UUID.randomUUID() + ".tmp");
+        MessageDigest digest = newDigest();
+        try {
+            try (InputStream in = new DigestInputStream(source.getInputStream(), digest)) {
+                Files.copy(in, file);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (storage.exists(sha256)) {
+                Files.delete(file);
+                return new Staged(sha256, size, null);
+            }
+            return new Staged(sha256, size, file);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Copies an upload into storage unless content with the same hash is there already. Runs
+     * outside any transaction and counts no reference, so nothing waits on a database lock while
+     * the bytes move; {@link #reference} adds the references afterwards. A caller that does not
+     * get that far hands the result to {@link #discardUnreferenced}.
+     */
+    public Stored store(InputStreamSource source, long size) throws IOException {
+        Staged staged = stage(source, size);
+        if (staged.file() == null) {
+            dedupHits.increment();
+            bytesSaved.increment(size);
+            return new Stored(staged.sha256(), size, false);
+        }
+        try {
+            storage.put(staged.sha256(), staged.file());
+        } finally {
+            discard(staged);
+        }
+        blobsWritten.increment();
+        return new Stored(staged.sha256(), size, true);
+    }
+
+    /**
+     * Stores several files concurrently on the I/O pool. Either every file is stored or none is:
+     * after a failure the blobs that the other files wrote are deleted again, unless a committed
+     * reference uses them, before the error is thrown.
+     */
+    public List<Stored> storeAll(List<MultipartFile> files) throws IOException {
+        if (files.size() == 1) {
+            MultipartFile file = files.get(0);
+            return List.of(store(file, file.getSize()));
+        }
+
+        List<Future<Stored>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(ioExecutor.submit(() -> store(file, file.getSize())));
+        }
+
+        List<Stored> stored = new ArrayList<>(files.size());
+        IOException failure = null;
+        for (Future<Stored> future : futures) {
+            try {
+                stored.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                failure = new InterruptedIOException("Interrupted while storing files");
+                break;
+            }
+        }
+        if (failure != null) {
+            discardUnreferenced(stored);
+            throw failure;
+        }
+        return stored;
+    }
+
+    /**
+     * Adds a reference to each blob {@link #store} returned. The rows are locked in hash order, so
+     * two uploads sharing files cannot deadlock, and storage is checked again under each lock:
+     * {@code fallback} rewrites content from the upload at that index only if cleanup removed
+     * it after it was stored. Must run in the transaction that saves the documents.
+     */
+    @Transactional
+    public void reference(List<Stored> blobs, IntFunction<ContentWriter> fallback) throws IOException {
+        List<Integer> order = IntStream.range(0, blobs.size()).boxed()
+            .sorted(Comparator.comparing(i -> blobs.get(i).sha256()))
+            .toList();
+        for (int i : order) {
+            Stored blob = blobs.get(i);
+            documentBlobRepository.acquire(blob.sha256(), blob.size());
+            storeIfMissing(blob.sha256(), fallback.apply(i));
+        }
+    }
+
+    /**
+     * Deletes the blobs these uploads wrote, for uploads that will not be referenced after all.
+     * A blob another upload of the same content has referenced in the meantime is kept.
+     */
+    public void discardUnreferenced(List<Stored> blobs) {
+        blobs.stream()
+            .filter(Stored::written)
+            .map(Stored::sha256)
+            .distinct()
+            .forEach(this::deleteUnlessReferenced);
+    }
+
+    /**
+     * Deletes a staged copy that was not handed to the store.
+     */
+    public void discard(Staged staged) {
+        if (staged.file() != null) {
+            try {
+                Files.deleteIfExists(staged.file());
+            } catch (IOException e) {
+                log.warn("Could not delete staged file {}: {}", staged.file(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds a reference to the blob with this hash, storing the content through {@code writer}
+     * only if it is not stored already. Must run in the transaction that saves the document.
+     */
+    @Transactional
+    public Stored acquire(String sha256, long size, ContentWriter writer) throws IOException {
+        boolean written = storeIfMissing(sha256, writer);
+        documentBlobRepository.acquire(sha256, size);
+        // Only writes if cleanup removed the file between the write above and the lock
+        written |= storeIfMissing(sha256, writer);
+
+        if (!written) {
+            dedupHits.increment();
+            bytesSaved.increment(size);
+            return new Stored(sha256, size, false);
+        }
+        blobsWritten.increment();
+        return new Stored(sha256, size, true);
+    }
+
+    /**
+     * Makes sure the blob that {@code references} existing documents point at is in storage,
+     * writing it through {@code writer} if not. A missing row is created with that count; the
+     * count of an existing row is left as it is.
+     *
+     * @return whether the content had to be written
+     */
+    @Transactional
+    public boolean ensureStored(String sha256, long size, long references, ContentWriter writer) throws IOException {
+        boolean written = storeIfMissing(sha256, writer);
+        // Locks the row, which keeps cleanup away from here on
+        documentBlobRepository.ensureExists(sha256, size, references);
+        return storeIfMissing(sha256, writer) || written;
+    }
+
+    /**
+     * Drops one reference. The file stays until the cleanup job finds no references left.
+     */
+    @Transactional
+    public void release(String sha256) {
+        documentBlobRepository.release(sha256);
+    }
+
+    /**
+     * Deletes blobs that no document uses any more, file first and row second, under the row lock.
+     */
+    @Scheduled(fixedDelayString = "${documents.blobs.cleanup-interval-ms:600000}")
+    @Transactional
+    public void purgeUnreferenced() {
+        sweepStaging();
+
+        List<DocumentBlob> unreferenced = documentBlobRepository.findUnreferencedForUpdate(PageRequest.of(0, PURGE_BATCH_SIZE));
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+        List<String> deleted = unreferenced.stream()
+            .map(DocumentBlob::getSha256)
+            .filter(this::deleteFile)
+            .toList();
+        if (!deleted.isEmpty()) {
+            documentBlobRepository.deleteUnreferenced(deleted);
+            log.info("Removed {} unreferenced document blobs", deleted.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${documents.blobs.metrics-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void refreshUsage() {
+        BlobUsage usage = documentBlobRepository.usage();
+        logicalBytes.set(usage.getLogicalBytes());
+        storedBytes.set(usage.getStoredBytes());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ioExecutor.shutdown();
+    }
+
+    // Staged copies left behind by a crash or an interrupted request
+    private void sweepStaging() {
+        if (!Files.isDirectory(staging)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - STAGING_MAX_AGE_MILLIS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(staging, "*.tmp")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep blob staging area: {}", e.getMessage());
+        }
+    }
+
+    private double dedupRatio() {
+        long stored = storedBytes.get();
+        return stored == 0 ? 1.0 : (double) logicalBytes.get() / stored;
+    }
+
+    // Called before and again after the blob's row is locked
+    private boolean storeIfMissing(String sha256, ContentWriter writer) throws IOException {
+        if (storage.exists(sha256)) {
+            return false;
+        }
+        Files.createDirectories(staging);
+        Path temp = staging.resolve(sha256 + "." + UUID.randomUUID() + ".tmp");
+        try {
+            writer.writeTo(temp);
+            storage.put(sha256, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        deleteIfRolledBack(sha256);
+        return true;
+    }
+
+    /**
+     * Deletes a blob this transaction wrote if the transaction rolls back. The row lock is gone by
+     * then, so the row is locked again and the file is kept if a committed reference now uses it.
+     */
+    private void deleteIfRolledBack(String sha256) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    deleteUnlessReferenced(sha256);
+                }
+            }
+        });
+    }
+
+    private void deleteUnlessReferenced(String sha256) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                DocumentBlob blob = documentBlobRepository.findForUpdate(sha256).orElse(null);
+                if (blob == null || blob.getRefCount() == 0) {
+                    deleteFile(sha256);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not remove blob {} after a rolled back upload: {}", sha256, e.getMessage());
+        }
+    }
+
+    private boolean deleteFile(String sha256) {
+        try {
+            storage.delete(sha256);
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not delete blob {}: {}", sha256, e.getMessage());
+            return false;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static ThreadFactory namedThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "document-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
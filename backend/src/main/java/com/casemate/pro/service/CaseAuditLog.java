@@ -0,0 +1,213 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.CaseEvent;
+import com.casemate.pro.repository.CaseEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records case events off the request path. Services call {@link #record} inside their
+ * transaction; the event is queued when that transaction commits, and a background writer
+ * inserts queued events in batches every {@code audit.flush-interval-ms} or as soon as a
+ * batch fills. When the queue is full, callers wait up to {@code audit.offer-timeout-ms} and
+ * then write their event themselves, so events are delayed under load but never dropped.
+ * On shutdown the writer stops taking new work and flushes what is queued.
+ */
+@Component
+@Slf4j
+public class CaseAuditLog {
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final CaseEventRepository caseEventRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final BlockingQueue<CaseEvent> queue;
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    @Value("${audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${audit.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    @Value("${audit.offer-timeout-ms:200}")
+    private long offerTimeoutMillis;
+
+    @Value("${audit.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMillis;
+
+    public CaseAuditLog(CaseEventRepository caseEventRepository,
+                        ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${audit.queue-capacity:10000}") int queueCapacity) {
+        this.caseEventRepository = caseEventRepository;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        writer = new Thread(this::run, "case-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records an event for the case once the current transaction commits; changes that roll
+     * back leave no trace. Outside a transaction the event is queued immediately.
+     */
+    public void record(UUID caseId, UUID actorId, CaseEvent.Type type, Map<String, Object> details) {
+        CaseEvent event = new CaseEvent();
+        event.setCaseId(caseId);
+        event.setActorId(actorId);
+        event.setType(type);
+        event.setDetails(toJson(details));
+        event.setCreatedAt(LocalDateTime.now());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    /**
+     * Builds the details for an update from the fields that actually changed.
+     */
+    public static Map<String, Object> changes(Object... fieldFromTo) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (int i = 0; i + 2 < fieldFromTo.length; i += 3) {
+            Object from = fieldFromTo[i + 1];
+            Object to = fieldFromTo[i + 2];
+            if (!Objects.equals(from, to)) {
+                Map<String, Object> change = new LinkedHashMap<>();
+                change.put("from", from);
+                change.put("to", to);
+                changes.put((String) fieldFromTo[i], change);
+            }
+        }
+        return changes;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        // Wakes the writer if it is waiting for a batch to fill, so it flushes now
+        writer.interrupt();
+        writer.join(shutdownTimeoutMillis);
+        if (writer.isAlive()) {
+            log.error("Audit writer did not finish within {} ms; {} events not written", shutdownTimeoutMillis, queue.size());
+        }
+    }
+
+    private void enqueue(CaseEvent event) {
+        try {
+            if (running && queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Queue full (or shutting down): pay for the insert here rather than lose the event
+        write(List.of(event));
+    }
+
+    private void run() {
+        List<CaseEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                CaseEvent first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (running && batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    CaseEvent next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                // Only the shutdown path stops the writer; keep draining until the queue is empty
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<CaseEvent> events) {
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                transaction.executeWithoutResult(status -> caseEventRepository.saveAll(events));
+                return;
+            } catch (RuntimeException e) {
+                // Ids assigned by the failed attempt would make the retry look like an update
+                events.forEach(event -> event.setId(null));
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    log.error("Could not write {} case audit events: {}", events.size(), e.getMessage());
+                    events.forEach(event -> log.error("Unwritten case event: case={} actor={} type={} at={} details={}",
+                        event.getCaseId(), event.getActorId(), event.getType(), event.getCreatedAt(), event.getDetails()));
+                    return;
+                }
+                try {
+                    Thread.sleep(200L * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private String toJson(Map<String, Object> details) {
+        if (details == null || details.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(details);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Audit details are not serializable", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.CaseNumberSequence;
+import com.casemate.pro.repository.CaseNumberSequenceRepository;
+import com.casemate.pro.repository.CaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Year;
+
+/**
+ * Hands out case numbers of the form {@code CS-<year>-NNN} using hi/lo allocation: each node
+ * reserves a block of numbers from {@code case_number_sequences} in its own short transaction
+ * and serves the block from memory, so numbers are unique across nodes without probing
+ * the cases table. The sequence restarts every calendar year. Numbers are zero-padded to three
+ * digits and simply get longer past 999, so they do not sort correctly as strings.
+ */
+@Component
+public class CaseNumberGenerator {
+
+    private static final String PREFIX = "CS-";
+
+    private final CaseNumberSequenceRepository sequenceRepository;
+    private final CaseRepository caseRepository;
+    private final TransactionTemplate newTransaction;
+    private final int blockSize;
+    private final Clock clock;
+
+    private int currentYear;
+    private long nextValue;
+    private long blockLimit;
+
+    @Autowired
+    public CaseNumberGenerator(CaseNumberSequenceRepository sequenceRepository,
+                               CaseRepository caseRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${cases.number-block-size:50}") int blockSize) {
+        this(sequenceRepository, caseRepository, transactionManager, blockSize, Clock.systemDefaultZone());
+    }
+
+    CaseNumberGenerator(CaseNumberSequenceRepository sequenceRepository,
+                        CaseRepository caseRepository,
+                        PlatformTransactionManager transactionManager,
+                        int blockSize,
+                        Clock clock) {
+        this.sequenceRepository = sequenceRepository;
+        this.caseRepository = caseRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        this.clock = clock;
+    }
+
+    public synchronized String nextCaseNumber() {
+        int year = Year.now(clock).getValue();
+        if (year != currentYear || nextValue >= blockLimit) {
+            long start = reserveBlock(year);
+            currentYear = year;
+            nextValue = start;
+            blockLimit = start + blockSize;
+        }
+        return PREFIX + year + "-" + String.format("%03d", nextValue++);
+    }
+
+    private long reserveBlock(int year) {
+        try {
+            return newTransaction.execute(status -> reserveBlockInTransaction(year));
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            // Another node created this year's row at the same time; it exists now
+            return newTransaction.execute(status -> reserveBlockInTransaction(year));
+        }
+    }
+
+    private long reserveBlockInTransaction(int year) {
+        CaseNumberSequence sequence = sequenceRepository.findForUpdate(year)
+            .orElseGet(() -> new CaseNumberSequence(year, firstFreeNumber(year)));
+
+        long start = sequence.getNextValue();
+        sequence.setNextValue(start + blockSize);
+        sequenceRepository.saveAndFlush(sequence);
+        return start;
+    }
+
+    // Numbers issued before the sequence existed were random, so start above the highest one
+    private long firstFreeNumber(int year) {
+        String prefix = PREFIX + year + "-";
+        for (String caseNumber : caseRepository.findHighestCaseNumbers(prefix, PageRequest.of(0, 10))) {
+            try {
+                return Long.parseLong(caseNumber.substring(prefix.length())) + 1;
+            } catch (NumberFormatException ignored) {
+                // Not one of ours
+            }
+        }
+        return 1;
+    }
+}
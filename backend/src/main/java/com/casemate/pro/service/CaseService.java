@@ -1,69 +1,127 @@
 package com.casemate.pro.service;
 
+import com.casemate.pro.dto.BatchStatusResult;
+import com.casemate.pro.dto.CaseEventResponse;
+import com.casemate.pro.dto.CaseResponse;
+import com.casemate.pro.dto.CaseSummary;
+import com.casemate.pro.dto.CursorPage;
 import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.CaseEvent;
+import com.casemate.pro.entity.Document;
+import com.casemate.pro.entity.Notification;
 import com.casemate.pro.entity.User;
+import com.casemate.pro.entity.UserStats;
+import com.casemate.pro.exception.PreconditionFailedException;
+import com.casemate.pro.repository.CaseEventRepository;
 import com.casemate.pro.repository.CaseRepository;
-import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.search.CaseSearchIndex;
+import com.casemate.pro.search.SearchHit;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class CaseService {
 
     private final CaseRepository caseRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
     private final NotificationService notificationService;
-
-    public Page<Case> getCasesByLawyer(User lawyer, int page, int size, String status, String sort) {
-        Pageable pageable = createPageable(page, size, sort);
-
+    private final CaseNumberGenerator caseNumberGenerator;
+    private final UserStatsService userStatsService;
+    private final PaginationSupport paginationSupport;
+    private final CaseSearchIndex caseSearchIndex;
+    private final CaseStatusNotifier caseStatusNotifier;
+    private final CaseAuditLog caseAuditLog;
+    private final CaseEventRepository caseEventRepository;
+    private final BlobStore blobStore;
+
+    @Value("${cases.batch-status.max-size:500}")
+    private int maxBatchStatusSize;
+
+    public CursorPage<CaseSummary> getCasesByLawyer(User lawyer, String cursor, int page, int size,
+                                             String status, String sort, boolean includeTotal) {
+        int pageSize = paginationSupport.clampSize(size);
+        Case.Status caseStatus = null;
         if (status != null && !status.isEmpty()) {
-            Case.Status caseStatus = Case.Status.valueOf(status.toUpperCase());
-            return caseRepository.findByLawyerAndStatus(lawyer, caseStatus, pageable);
+            caseStatus = Case.Status.valueOf(status.toUpperCase());
+        }
+
+        String order = normalizeSort(sort);
+        PageCursor after = PageCursor.decode(cursor, order);
+        Pageable request = paginationSupport.request(after, page, pageSize);
+        UUID afterId = after != null ? after.id() : null;
+
+        List<CaseSummary> rows;
+        Function<CaseSummary, String> cursorOf;
+        switch (order) {
+            case "name" -> {
+                rows = caseRepository.findPageByLawyerTitle(lawyer, caseStatus,
+                    after != null ? after.key() : null, afterId, request);
+                cursorOf = c -> PageCursor.encode(order, c.getId(), c.getTitle());
+            }
+            case "status" -> {
+                rows = caseRepository.findPageByLawyerStatus(lawyer, caseStatus,
+                    after != null ? Case.Status.valueOf(after.key()) : null, afterId, request);
+                cursorOf = c -> PageCursor.encode(order, c.getId(), c.getStatus());
+            }
+            default -> {
+                rows = caseRepository.findPageByLawyerRecent(lawyer, caseStatus,
+                    after != null ? LocalDateTime.parse(after.key()) : null, afterId, request);
+                cursorOf = c -> PageCursor.encode(order, c.getId(), c.getUpdatedAt());
+            }
         }
 
-        return caseRepository.findByLawyer(lawyer, pageable);
+        Long total = includeTotal ? countCases(lawyer, caseStatus) : null;
+        return paginationSupport.toPage(rows, request, pageSize, cursorOf, total);
     }
 
-    public Page<Case> getCasesByClient(User client, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("updatedAt").descending());
-        return caseRepository.findByClient(client, pageable);
+    public CursorPage<CaseSummary> getCasesByClient(User client, String cursor, int page, int size, boolean includeTotal) {
+        int pageSize = paginationSupport.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor, "recent");
+        Pageable request = paginationSupport.request(after, page, pageSize);
+
+        List<CaseSummary> rows = caseRepository.findPageByClientRecent(client,
+            after != null ? LocalDateTime.parse(after.key()) : null,
+            after != null ? after.id() : null, request);
+
+        Long total = includeTotal ? countCases(client, null) : null;
+        return paginationSupport.toPage(rows, request, pageSize,
+            c -> PageCursor.encode("recent", c.getId(), c.getUpdatedAt()), total);
     }
 
-    public List<Case> getRecentCasesByLawyer(User lawyer, int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return caseRepository.findRecentCasesByLawyer(lawyer, pageable);
+    public List<CaseSummary> getRecentCasesByLawyer(User lawyer, int limit) {
+        Pageable pageable = PageRequest.of(0, paginationSupport.clampSize(limit));
+        return caseRepository.findRecentSummariesByLawyer(lawyer, pageable);
     }
 
-    public List<Case> getRecentCasesByClient(User client, int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return caseRepository.findRecentCasesByClient(client, pageable);
+    public List<CaseSummary> getRecentCasesByClient(User client, int limit) {
+        Pageable pageable = PageRequest.of(0, paginationSupport.clampSize(limit));
+        return caseRepository.findRecentSummariesByClient(client, pageable);
     }
 
     @Transactional
     public Case getCaseById(UUID caseId, User user) {
-        Case caseEntity = caseRepository.findById(caseId)
+        // Client and lawyer are fetched in the same query so responses can be built outside the session
+        Case caseEntity = caseRepository.findWithParticipantsById(caseId)
             .orElseThrow(() -> new RuntimeException("Case not found"));
 
-        // Eagerly load client and lawyer to prevent LazyInitializationException
-        // Accessing their IDs ensures they are loaded within the transaction
-        if (caseEntity.getClient() != null) {
-            caseEntity.getClient().getId();
-        }
-        if (caseEntity.getLawyer() != null) {
-            caseEntity.getLawyer().getId();
-        }
-
         if (!hasAccessToCase(caseEntity, user)) {
             throw new RuntimeException("Access denied to this case");
         }
@@ -71,16 +129,24 @@ public class CaseService {
         return caseEntity;
     }
 
+    /**
+     * Returns the case's current version if the user can see it, without loading the case.
+     */
+    public Optional<Long> getCaseVersion(UUID caseId, User user) {
+        return caseRepository.findVersionForUser(caseId, user.getId());
+    }
+
     @Transactional
     public Case createCase(Case caseData, User client, User lawyer) {
-        User managedLawyer = userRepository.findById(lawyer.getId())
+        User assignedLawyer = userCache.findById(lawyer.getId())
                 .orElseThrow(() -> new RuntimeException("Lawyer not found"));
 
         Case newCase = new Case();
+        newCase.setCaseNumber(caseNumberGenerator.nextCaseNumber());
         newCase.setTitle(caseData.getTitle());
         newCase.setDescription(caseData.getDescription());
         newCase.setClient(client);
-        newCase.setLawyer(managedLawyer);
+        newCase.setLawyer(assignedLawyer);
         newCase.setStatus(Case.Status.PENDING);
 
         if (caseData.getNextHearing() != null) {
@@ -91,67 +157,264 @@ public class CaseService {
             newCase.setCaseValue(caseData.getCaseValue());
         }
 
-        return caseRepository.save(newCase);
+        Case savedCase = caseRepository.save(newCase);
+        userStatsService.caseCreated(savedCase);
+        caseSearchIndex.indexAfterCommit(savedCase);
+        caseAuditLog.record(savedCase.getId(), client.getId(), CaseEvent.Type.CREATED, Map.of(
+            "caseNumber", savedCase.getCaseNumber(),
+            "title", savedCase.getTitle(),
+            "lawyerId", assignedLawyer.getId()));
+        return savedCase;
     }
 
     @Transactional
-    public Case updateCase(UUID caseId, Case updateData, User user) {
+    public Case updateCase(UUID caseId, Case updateData, User user, Set<Long> expectedVersions) {
         Case existingCase = getCaseById(caseId, user);
 
         if (user.getRole() != User.Role.LAWYER || !existingCase.getLawyer().getId().equals(user.getId())) {
             throw new RuntimeException("Only the assigned lawyer can update this case");
         }
+        requireVersion(existingCase, expectedVersions);
 
+        Case.Status previousStatus = existingCase.getStatus();
+        String previousTitle = existingCase.getTitle();
+        String previousDescription = existingCase.getDescription();
+        LocalDateTime previousHearing = existingCase.getNextHearing();
+        String previousNotes = existingCase.getNotes();
         if (updateData.getTitle() != null) existingCase.setTitle(updateData.getTitle());
         if (updateData.getDescription() != null) existingCase.setDescription(updateData.getDescription());
-        if (updateData.getStatus() != null) existingCase.setStatus(updateData.getStatus());
+        if (updateData.getStatus() != null && updateData.getStatus() != previousStatus) {
+            existingCase.setPreviousStatus(previousStatus);
+            existingCase.setStatus(updateData.getStatus());
+        }
         if (updateData.getNextHearing() != null) existingCase.setNextHearing(updateData.getNextHearing());
         if (updateData.getNotes() != null) existingCase.setNotes(updateData.getNotes());
 
         existingCase.setUpdatedAt(LocalDateTime.now());
+        userStatsService.caseStatusChanged(existingCase, previousStatus, existingCase.getStatus());
+
+        Case savedCase = caseRepository.save(existingCase);
+        caseSearchIndex.indexAfterCommit(savedCase);
+
+        Map<String, Object> changes = CaseAuditLog.changes(
+            "title", previousTitle, savedCase.getTitle(),
+            "description", previousDescription, savedCase.getDescription(),
+            "status", previousStatus, savedCase.getStatus(),
+            "nextHearing", previousHearing, savedCase.getNextHearing(),
+            "notes", previousNotes, savedCase.getNotes());
+        if (!changes.isEmpty()) {
+            caseAuditLog.record(caseId, user.getId(), CaseEvent.Type.UPDATED, changes);
+        }
+        return savedCase;
+    }
 
-        return caseRepository.save(existingCase);
+    @Transactional
+    public Case acceptCase(UUID caseId, User user, Set<Long> expectedVersions) {
+        return transitionStatus(caseId, Case.Status.ACTIVE, EnumSet.of(Case.Status.PENDING), user, expectedVersions);
     }
 
     @Transactional
-    public Case updateCaseStatus(UUID caseId, Case.Status newStatus, User user) {
-        Case existingCase = getCaseById(caseId, user);
+    public Case rejectCase(UUID caseId, User user, Set<Long> expectedVersions) {
+        return transitionStatus(caseId, Case.Status.CLOSED, EnumSet.of(Case.Status.PENDING), user, expectedVersions);
+    }
 
-        if (user.getRole() != User.Role.LAWYER || !existingCase.getLawyer().getId().equals(user.getId())) {
-            throw new RuntimeException("Only the assigned lawyer can update the case status");
+    @Transactional
+    public Case closeCase(UUID caseId, User user, Set<Long> expectedVersions) {
+        return transitionStatus(caseId, Case.Status.CLOSED, EnumSet.of(Case.Status.ACTIVE), user, expectedVersions);
+    }
+
+    /**
+     * Sets any status; every other status is an allowed predecessor.
+     */
+    @Transactional
+    public Case updateCaseStatus(UUID caseId, Case.Status newStatus, User user, Set<Long> expectedVersions) {
+        return transitionStatus(caseId, newStatus, EnumSet.complementOf(EnumSet.of(newStatus)), user, expectedVersions);
+    }
+
+    /**
+     * Moves a set of the lawyer's cases to one status. Ownership is checked, and the rows locked,
+     * in one query; the change is a single UPDATE and the client notifications go out as one
+     * batched insert. Ids that do not exist or belong to another lawyer come back as NOT_FOUND.
+     */
+    @Transactional
+    public List<BatchStatusResult> updateCaseStatuses(List<UUID> caseIds, Case.Status newStatus, User user) {
+        if (user.getRole() != User.Role.LAWYER) {
+            throw new RuntimeException("Only lawyers can update case statuses");
+        }
+        Set<UUID> requested = new LinkedHashSet<>(caseIds);
+        if (requested.size() > maxBatchStatusSize) {
+            throw new IllegalArgumentException("At most " + maxBatchStatusSize + " cases can be updated at once");
         }
 
-        existingCase.setStatus(newStatus);
-        existingCase.setUpdatedAt(LocalDateTime.now());
+        Map<UUID, Case> owned = new HashMap<>();
+        for (Case caseEntity : caseRepository.findAllForUpdate(requested, user)) {
+            owned.put(caseEntity.getId(), caseEntity);
+        }
 
-        if (newStatus == Case.Status.CLOSED) {
-            // Only create notification if client exists
-            if (existingCase.getClient() != null) {
-                notificationService.createNotification(existingCase.getClient(), "Your case \"" + existingCase.getTitle() + "\" has been rejected by the lawyer.");
-            } else {
-                System.err.println("Warning: Client is null for case " + caseId + ". Cannot send rejection notification.");
+        // The loaded cases keep the status they had before the UPDATE, which the deltas and results need
+        List<Case> changed = owned.values().stream()
+            .filter(caseEntity -> caseEntity.getStatus() != newStatus)
+            .toList();
+        if (!changed.isEmpty()) {
+            caseRepository.updateStatuses(changed.stream().map(Case::getId).toList(), newStatus, LocalDateTime.now());
+            userStatsService.caseStatusesChanged(user.getId(), changed, newStatus);
+
+            List<Notification> notifications = new ArrayList<>();
+            for (Case caseEntity : changed) {
+                caseAuditLog.record(caseEntity.getId(), user.getId(), CaseEvent.Type.STATUS_CHANGED,
+                    CaseAuditLog.changes("status", caseEntity.getStatus(), newStatus));
+                String message = CaseStatusNotifier.messageFor(caseEntity.getTitle(), newStatus);
+                if (message != null && caseEntity.getClient() != null) {
+                    notifications.add(notificationService.newNotification(caseEntity.getClient().getId(), message));
+                }
             }
-        } else if (newStatus == Case.Status.ACTIVE) {
-            // Only create notification if client exists
-            if (existingCase.getClient() != null) {
-                notificationService.createNotification(existingCase.getClient(), "Your case \"" + existingCase.getTitle() + "\" has been accepted by the lawyer.");
+            notificationService.createNotifications(notifications);
+        }
+
+        List<BatchStatusResult> results = new ArrayList<>(requested.size());
+        for (UUID caseId : requested) {
+            Case row = owned.get(caseId);
+            if (row == null) {
+                results.add(new BatchStatusResult(caseId, BatchStatusResult.Outcome.NOT_FOUND, null));
             } else {
-                System.err.println("Warning: Client is null for case " + caseId + ". Cannot send acceptance notification.");
+                BatchStatusResult.Outcome outcome = row.getStatus() == newStatus
+                    ? BatchStatusResult.Outcome.UNCHANGED
+                    : BatchStatusResult.Outcome.UPDATED;
+                results.add(new BatchStatusResult(caseId, outcome, row.getStatus().name().toLowerCase()));
             }
         }
-
-        return caseRepository.save(existingCase);
+        return results;
     }
 
     @Transactional
     public void deleteCase(UUID caseId, User user) {
-        Case caseEntity = getCaseById(caseId, user);
+        Case caseEntity = caseRepository.findForUpdate(caseId)
+            .orElseThrow(() -> new RuntimeException("Case not found"));
+        if (!hasAccessToCase(caseEntity, user)) {
+            throw new RuntimeException("Access denied to this case");
+        }
 
         if (user.getRole() != User.Role.LAWYER || !caseEntity.getLawyer().getId().equals(user.getId())) {
             throw new RuntimeException("Only the assigned lawyer can delete this case");
         }
 
+        int documentCount = caseEntity.getDocuments() != null ? caseEntity.getDocuments().size() : 0;
+        userStatsService.caseDeleted(caseEntity, documentCount);
+        if (documentCount > 0) {
+            // The cascaded document rows give up their references to stored files
+            caseEntity.getDocuments().stream()
+                .map(Document::getContentHash)
+                .filter(Objects::nonNull)
+                .forEach(blobStore::release);
+        }
         caseRepository.delete(caseEntity);
+        caseSearchIndex.removeAfterCommit(caseId);
+        caseAuditLog.record(caseId, user.getId(), CaseEvent.Type.DELETED, Map.of(
+            "caseNumber", caseEntity.getCaseNumber(),
+            "title", caseEntity.getTitle()));
+    }
+
+    /**
+     * Returns the case's audit trail, newest first. Events are written asynchronously, so the
+     * latest change can take up to {@code audit.flush-interval-ms} to appear.
+     */
+    public CursorPage<CaseEventResponse> getCaseHistory(UUID caseId, User user, String cursor, int size) {
+        if (caseRepository.findVersionForUser(caseId, user.getId()).isEmpty()) {
+            throw new RuntimeException("Case not found");
+        }
+        int pageSize = paginationSupport.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor, "recent");
+        Pageable request = paginationSupport.request(after, 0, pageSize);
+        List<CaseEventResponse> rows = caseEventRepository.findPageByCase(caseId,
+            after != null ? LocalDateTime.parse(after.key()) : null,
+            after != null ? after.id() : null,
+            request);
+        return paginationSupport.toPage(rows, request, pageSize,
+            e -> PageCursor.encode("recent", e.getId(), e.getCreatedAt()), null);
+    }
+
+    public List<CaseSummary> searchCases(User user, String query, int limit) {
+        boolean asLawyer = user.getRole() == User.Role.LAWYER;
+        List<SearchHit> hits = caseSearchIndex.search(query, user.getId(), asLawyer, limit);
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, CaseSummary> summaries = new HashMap<>();
+        for (CaseSummary summary : caseRepository.findSummariesByIdIn(hits.stream().map(SearchHit::caseId).toList())) {
+            summaries.put(summary.getId(), summary);
+        }
+
+        // Keep the index's ranking, and re-check ownership in case the index is behind the database
+        List<CaseSummary> results = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            CaseSummary summary = summaries.get(hit.caseId());
+            if (summary == null) {
+                continue;
+            }
+            CaseResponse.UserInfo owner = asLawyer ? summary.getLawyer() : summary.getClient();
+            if (owner != null && user.getId().toString().equals(owner.getId())) {
+                results.add(summary);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Checks an If-Match precondition; null means any version is accepted. Writes that race
+     * past this check are still caught by the {@code @Version} check when the update is flushed.
+     */
+    private static void requireVersion(Case caseEntity, Set<Long> expectedVersions) {
+        requireVersion(caseEntity.getVersion(), expectedVersions);
+    }
+
+    private static void requireVersion(Long version, Set<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(version)) {
+            throw new PreconditionFailedException("Case has been modified; reload it and retry");
+        }
+    }
+
+    /**
+     * Moves the case to {@code newStatus} with one guarded UPDATE. Ownership, the allowed current
+     * statuses and If-Match are all in its WHERE clause, and it keeps the status it replaced in
+     * {@code previousStatus}. The case is then read once, with its participants: that read gives
+     * the counter deltas and the client notification, and is returned for the response. When
+     * nothing matched, the same read reports why. The notification is sent after commit by
+     * {@link CaseStatusNotifier}.
+     */
+    private Case transitionStatus(UUID caseId, Case.Status newStatus, Set<Case.Status> allowedFrom,
+                                  User user, Set<Long> expectedVersions) {
+        if (user.getRole() != User.Role.LAWYER) {
+            throw new RuntimeException("Only the assigned lawyer can update the case status");
+        }
+        boolean anyVersion = expectedVersions == null;
+        // IN () is not valid SQL, so an empty set is padded with a version no row can have
+        Set<Long> versions = anyVersion || expectedVersions.isEmpty() ? Set.of(-1L) : expectedVersions;
+        int updated = caseRepository.transitionStatus(caseId, user.getId(), allowedFrom, newStatus,
+            LocalDateTime.now(), anyVersion, versions);
+
+        Case caseEntity = caseRepository.findWithParticipantsById(caseId)
+            .orElseThrow(() -> new RuntimeException("Case not found"));
+        if (updated == 1) {
+            // The UPDATE holds the row lock, so the counters move with the status in this transaction
+            Case.Status from = caseEntity.getPreviousStatus();
+            userStatsService.caseStatusChanged(caseEntity, from, newStatus);
+            caseStatusNotifier.notifyClientAfterCommit(caseEntity.getClient().getId(), caseEntity.getTitle(), newStatus);
+            caseAuditLog.record(caseId, user.getId(), CaseEvent.Type.STATUS_CHANGED,
+                CaseAuditLog.changes("status", from, newStatus));
+            return caseEntity;
+        }
+
+        if (!caseEntity.getLawyer().getId().equals(user.getId())) {
+            throw new RuntimeException("Only the assigned lawyer can update the case status");
+        }
+        requireVersion(caseEntity, expectedVersions);
+        if (caseEntity.getStatus() != newStatus) {
+            throw new IllegalStateException("A " + caseEntity.getStatus().name().toLowerCase() + " case cannot be moved to "
+                + newStatus.name().toLowerCase());
+        }
+        // Already in the requested status: nothing to do
+        return caseEntity;
     }
 
     private boolean hasAccessToCase(Case caseEntity, User user) {
@@ -159,38 +422,30 @@ public class CaseService {
                caseEntity.getClient().getId().equals(user.getId());
     }
 
-    private String generateUniqueCaseNumber() {
-        String caseNumber;
-        do {
-            caseNumber = "CS-" + java.time.Year.now() + "-" +
-                String.format("%03d", (int) (Math.random() * 1000));
-        } while (caseRepository.existsByCaseNumber(caseNumber));
-
-        return caseNumber;
+    // Totals come from the maintained user_stats counters rather than a COUNT query
+    private Long countCases(User user, Case.Status status) {
+        UserStats stats = userStatsService.statsFor(user);
+        if (status == null) {
+            return stats.getTotalCases();
+        }
+        return switch (status) {
+            case ACTIVE -> stats.getActiveCases();
+            case PENDING -> stats.getPendingCases();
+            case CLOSED -> stats.getClosedCases();
+        };
     }
 
-    private Pageable createPageable(int page, int size, String sort) {
-        Sort.Direction direction = Sort.Direction.DESC;
-        String property = "updatedAt";
-
+    private String normalizeSort(String sort) {
         if (sort != null) {
             switch (sort.toLowerCase()) {
                 case "name":
-                    property = "title";
-                    direction = Sort.Direction.ASC;
-                    break;
+                    return "name";
                 case "status":
-                    property = "status";
-                    direction = Sort.Direction.ASC;
-                    break;
-                case "recent":
+                    return "status";
                 default:
-                    property = "updatedAt";
-                    direction = Sort.Direction.DESC;
                     break;
             }
         }
-
-        return PageRequest.of(page, size, Sort.by(direction, property));
+        return "recent";
     }
 }
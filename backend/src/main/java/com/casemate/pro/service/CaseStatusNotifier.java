@@ -0,0 +1,98 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.Case;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the client notification for a direct status UPDATE. It runs after the status change
+ * commits, on a single background worker, so the request does not wait for the insert. When the
+ * queue is full the caller's thread does the work instead of dropping it. The user_stats deltas
+ * are not deferred here; they are applied in the transaction that changes the status.
+ */
+@Component
+@Slf4j
+public class CaseStatusNotifier {
+
+    private final NotificationService notificationService;
+    private final TransactionTemplate transaction;
+    private final ThreadPoolExecutor executor;
+
+    public CaseStatusNotifier(NotificationService notificationService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${cases.status-events.queue-capacity:1000}") int queueCapacity) {
+        this.notificationService = notificationService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = new ThreadPoolExecutor(
+            1, 1,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "case-status-events");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    /**
+     * Queues the client's notification once the surrounding transaction commits. Statuses that
+     * the client is not told about are ignored.
+     */
+    public void notifyClientAfterCommit(UUID clientId, String title, Case.Status to) {
+        String message = messageFor(title, to);
+        if (message == null || clientId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executor.execute(() -> publish(clientId, message));
+                }
+            });
+        } else {
+            executor.execute(() -> publish(clientId, message));
+        }
+    }
+
+    static String messageFor(String title, Case.Status status) {
+        return switch (status) {
+            case ACTIVE -> "Your case \"" + title + "\" has been accepted by the lawyer.";
+            case CLOSED -> "Your case \"" + title + "\" has been rejected by the lawyer.";
+            case PENDING -> null;
+        };
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Dropped {} pending case status events on shutdown", executor.getQueue().size());
+        }
+    }
+
+    private void publish(UUID clientId, String message) {
+        try {
+            transaction.executeWithoutResult(status ->
+                notificationService.createNotifications(List.of(notificationService.newNotification(clientId, message))));
+        } catch (RuntimeException e) {
+            log.warn("Could not notify client {} of a case status change: {}", clientId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.UploadSessionRequest;
+import com.casemate.pro.dto.UploadSessionResponse;
+import com.casemate.pro.entity.Document;
+import com.casemate.pro.entity.UploadChunk;
+import com.casemate.pro.entity.UploadSession;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.exception.ResourceNotFoundException;
+import com.casemate.pro.repository.UploadChunkRepository;
+import com.casemate.pro.repository.UploadSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Resumable uploads in three steps: a session preallocates a temp file of the final size,
+ * numbered chunks are written into it at their offsets (in any order, in parallel), and a
+ * commit turns the completed file into a {@link Document}. Each chunk is verified against its
+ * SHA-256 before it counts as received, so a client only resends what is missing. Sessions
+ * that receive nothing for {@code documents.upload.session-ttl-hours} are removed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadService {
+
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int PURGE_BATCH_SIZE = 500;
+    private static final String TEMP_SUFFIX = ".part";
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final DocumentService documentService;
+
+    @Value("${documents.upload.temp-dir:uploads/tmp}")
+    private String tempDir;
+
+    @Value("${documents.upload.max-size:5368709120}")
+    private long maxSize;
+
+    @Value("${documents.upload.default-chunk-size:8388608}")
+    private int defaultChunkSize;
+
+    @Value("${documents.upload.max-chunk-size:67108864}")
+    private int maxChunkSize;
+
+    @Value("${documents.upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Transactional
+    public UploadSessionResponse createSession(UploadSessionRequest request, User user) {
+        documentService.findAccessibleCase(request.getCaseId(), user);
+
+        int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk size must be between " + MIN_CHUNK_SIZE + " and " + maxChunkSize + " bytes");
+        }
+        if (request.getSize() > maxSize) {
+            throw new IllegalArgumentException("File is larger than the " + maxSize + " byte limit");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setCaseId(request.getCaseId());
+        session.setUserId(user.getId());
+        session.setFileName(request.getFileName());
+        session.setDescription(request.getDescription());
+        session.setCategory(request.getCategory());
+        session.setSize(request.getSize());
+        session.setChunkSize(chunkSize);
+        session.setChunkCount((int) ((request.getSize() + chunkSize - 1) / chunkSize));
+        session = uploadSessionRepository.save(session);
+
+        try {
+            Files.createDirectories(Paths.get(tempDir));
+            // Sized up front so chunks can be written at their offsets in any order
+            try (RandomAccessFile file = new RandomAccessFile(tempFile(session.getId()).toFile(), "rw")) {
+                file.setLength(session.getSize());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to allocate upload: " + e.getMessage());
+        }
+
+        return toResponse(session, List.of(), LocalDateTime.now());
+    }
+
+    public UploadSessionResponse getSession(UUID uploadId, User user) {
+        UploadSession session = requireSession(uploadId, user);
+        List<UploadChunk> chunks = uploadChunkRepository.findByIdSessionIdOrderByIdChunkIndex(uploadId);
+        LocalDateTime lastActivity = session.getCreatedAt();
+        for (UploadChunk chunk : chunks) {
+            if (chunk.getReceivedAt().isAfter(lastActivity)) {
+                lastActivity = chunk.getReceivedAt();
+            }
+        }
+        return toResponse(session, chunks.stream().map(chunk -> chunk.getId().getChunkIndex()).toList(), lastActivity);
+    }
+
+    /**
+     * Writes one chunk at its offset and records it once its checksum matches. Sending a chunk
+     * that was already received with the same checksum is a no-op, so retries are safe.
+     *
+     * @return false when the chunk had already been received
+     */
+    public boolean putChunk(UUID uploadId, int index, String sha256, InputStream body, User user) throws IOException {
+        UploadSession session = requireSession(uploadId, user);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk " + index + " is out of range 0-" + (session.getChunkCount() - 1));
+        }
+        String expected = sha256 == null ? "" : sha256.trim().toLowerCase();
+        if (!expected.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Chunk checksum must be a hex SHA-256");
+        }
+
+        UploadChunk.Key key = new UploadChunk.Key(uploadId, index);
+        Optional<UploadChunk> existing = uploadChunkRepository.findById(key);
+        if (existing.isPresent()) {
+            if (existing.get().getSha256().equals(expected)) {
+                return false;
+            }
+            throw new IllegalStateException("Chunk " + index + " was already received with different content");
+        }
+
+        int length = session.chunkLength(index);
+        String actual = writeAt(tempFile(uploadId), session.chunkOffset(index), length, body);
+        if (!actual.equals(expected)) {
+            throw new IllegalArgumentException("Checksum mismatch for chunk " + index);
+        }
+
+        try {
+            uploadChunkRepository.save(new UploadChunk(key, length, actual, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            UploadChunk winner = uploadChunkRepository.findById(key).orElse(null);
+            if (winner == null) {
+                throw new ResourceNotFoundException("Upload", "id", uploadId);
+            }
+            if (!winner.getSha256().equals(actual)) {
+                // Two different bodies raced for this chunk; what ended up on disk is unknown
+                uploadChunkRepository.delete(winner);
+                throw new IllegalStateException("Chunk " + index + " was sent twice with different content; send it again");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Turns a fully received upload into a document on its case.
+     */
+    @Transactional
+    public Document commit(UUID uploadId, User user) {
+        UploadSession session = uploadSessionRepository.findForUpdate(uploadId)
+            .filter(found -> found.getUserId().equals(user.getId()))
+            .orElseThrow(() -> new ResourceNotFoundException("Upload", "id", uploadId));
+
+        long received = uploadChunkRepository.countBySessionId(uploadId);
+        if (received < session.getChunkCount()) {
+            throw new IllegalStateException("Upload is incomplete: " + received + " of " + session.getChunkCount() + " chunks received");
+        }
+
+        Document document = documentService.addUploadedFile(tempFile(uploadId), session.getFileName(), session.getSize(),
+            session.getCaseId(), session.getDescription(), session.getCategory(), user);
+        deleteSessions(List.of(uploadId));
+        return document;
+    }
+
+    @Transactional
+    public void abort(UUID uploadId, User user) {
+        requireSession(uploadId, user);
+        deleteSessions(List.of(uploadId));
+        deleteTempFile(uploadId);
+    }
+
+    /**
+     * Removes sessions with no activity within the TTL, then temp files left without a session.
+     */
+    @Scheduled(fixedDelayString = "${documents.upload.gc-interval-ms:900000}")
+    @Transactional
+    public void purgeAbandonedUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(sessionTtlHours);
+        List<UUID> abandoned = uploadSessionRepository.findAbandoned(cutoff, PageRequest.of(0, PURGE_BATCH_SIZE));
+        if (!abandoned.isEmpty()) {
+            deleteSessions(abandoned);
+            abandoned.forEach(this::deleteTempFile);
+            log.info("Removed {} abandoned uploads", abandoned.size());
+        }
+
+        Path dir = Paths.get(tempDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                UUID sessionId = parseSessionId(name.substring(0, name.length() - TEMP_SUFFIX.length()));
+                if (Files.getLastModifiedTime(file).toMillis() < cutoffMillis
+                        && (sessionId == null || !uploadSessionRepository.existsById(sessionId))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep upload temp files: {}", e.getMessage());
+        }
+    }
+
+    private UploadSession requireSession(UUID uploadId, User user) {
+        return uploadSessionRepository.findById(uploadId)
+            .filter(session -> session.getUserId().equals(user.getId()))
+            .orElseThrow(() -> new ResourceNotFoundException("Upload", "id", uploadId));
+    }
+
+    private void deleteSessions(List<UUID> sessionIds) {
+        uploadChunkRepository.deleteBySessionIdIn(sessionIds);
+        uploadSessionRepository.deleteByIdIn(sessionIds);
+    }
+
+    private void deleteTempFile(UUID sessionId) {
+        try {
+            Files.deleteIfExists(tempFile(sessionId));
+        } catch (IOException e) {
+            log.warn("Could not delete upload temp file for {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private Path tempFile(UUID sessionId) {
+        return Paths.get(tempDir).resolve(sessionId + TEMP_SUFFIX);
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session, List<Integer> receivedChunks, LocalDateTime lastActivity) {
+        List<long[]> ranges = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        int next = 0;
+        for (int index : receivedChunks) {
+            for (; next < index; next++) {
+                missing.add(next);
+            }
+            long start = session.chunkOffset(index);
+            long end = start + session.chunkLength(index) - 1;
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] + 1 == start) {
+                last[1] = end;
+            } else {
+                ranges.add(new long[] {start, end});
+            }
+            next = index + 1;
+        }
+        for (; next < session.getChunkCount(); next++) {
+            missing.add(next);
+        }
+        return new UploadSessionResponse(session.getId(), session.getFileName(), session.getSize(), session.getChunkSize(),
+            session.getChunkCount(), ranges, missing, lastActivity.plusHours(sessionTtlHours));
+    }
+
+    /**
+     * Streams the body into the file at {@code offset} with positional writes, never past the
+     * chunk's own region, and returns the hex SHA-256 of what was written.
+     */
+    private static String writeAt(Path file, long offset, int length, InputStream body) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer chunk = ByteBuffer.wrap(buffer);
+        long position = offset;
+        long end = offset + length;
+        // No CREATE: if the session was committed or removed meanwhile, the write fails
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (position + read > end) {
+                    throw new IllegalArgumentException("Chunk is larger than " + length + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                chunk.clear().limit(read);
+                while (chunk.hasRemaining()) {
+                    position += channel.write(chunk, position);
+                }
+            }
+        }
+        if (position != end) {
+            throw new IllegalArgumentException("Chunk is " + (position - offset) + " bytes, expected " + length);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static UUID parseSessionId(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
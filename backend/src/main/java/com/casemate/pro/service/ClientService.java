@@ -1,14 +1,12 @@
 package com.casemate.pro.service;
 
-import com.casemate.pro.entity.Case;
+import com.casemate.pro.dto.CaseSummary;
+import com.casemate.pro.dto.CursorPage;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.repository.CaseRepository;
 import com.casemate.pro.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -20,15 +18,27 @@ public class ClientService {
 
     private final UserRepository userRepository;
     private final CaseRepository caseRepository;
-
-    public Page<User> getAllClients(int page, int size, String search) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-
-        if (search != null && !search.trim().isEmpty()) {
-            return userRepository.findClientsBySearch(search.trim(), pageable);
+    private final PaginationSupport paginationSupport;
+
+    public CursorPage<User> getAllClients(String cursor, int page, int size, String search, boolean includeTotal) {
+        int pageSize = paginationSupport.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor, "name");
+        Pageable request = paginationSupport.request(after, page, pageSize);
+        String term = search != null && !search.trim().isEmpty() ? search.trim() : null;
+
+        List<User> rows = userRepository.findClientPage(term,
+            after != null ? after.key() : null, after != null ? after.id() : null, request);
+
+        Long total = null;
+        if (includeTotal) {
+            total = term == null
+                ? paginationSupport.cachedTotal("clients", userRepository::countClients)
+                : paginationSupport.cachedTotal("clients:search:" + term.toLowerCase(),
+                    () -> userRepository.countClientsBySearch(term));
         }
 
-        return userRepository.findAllClients(pageable);
+        return paginationSupport.toPage(rows, request, pageSize,
+            u -> PageCursor.encode("name", u.getId(), u.getName()), total);
     }
 
     public User getClientById(UUID clientId) {
@@ -46,7 +56,7 @@ public class ClientService {
         return userRepository.countClients();
     }
 
-    public List<Case> getCasesByClientId(UUID clientId) {
-        return caseRepository.findByClientId(clientId);
+    public List<CaseSummary> getCasesByClientId(UUID clientId) {
+        return caseRepository.findSummariesByClientId(clientId);
     }
 }
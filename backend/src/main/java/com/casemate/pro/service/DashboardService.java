@@ -4,17 +4,25 @@ import com.casemate.pro.dto.CaseResponse;
 import com.casemate.pro.dto.ClientDashboardResponse;
 import com.casemate.pro.dto.DashboardStatsResponse;
 import com.casemate.pro.dto.LawyerDashboardResponse;
+import com.casemate.pro.dto.MonthlyRevenue;
+import com.casemate.pro.dto.RevenueBreakdownResponse;
 import com.casemate.pro.entity.Case;
 import com.casemate.pro.entity.User;
+import com.casemate.pro.entity.UserStats;
 import com.casemate.pro.repository.CaseRepository;
-import com.casemate.pro.repository.DocumentRepository;
 import com.casemate.pro.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,24 +31,30 @@ public class DashboardService {
 
     private final CaseRepository caseRepository;
     private final UserRepository userRepository;
-    private final DocumentRepository documentRepository;
+    private final UserStatsService userStatsService;
+
+    @Value("${stats.revenue.max-months:36}")
+    private int maxRevenueMonths;
 
     public DashboardStatsResponse getLawyerDashboardStats(User lawyer) {
-        Long activeCases = caseRepository.countActiveCasesByLawyer(lawyer);
+        UserStats statistics = userStatsService.statsFor(lawyer);
         Long totalClients = userRepository.countClients(); // All clients for this lawyer
-        Double monthlyRevenue = calculateMonthlyRevenue(lawyer); // Placeholder calculation
-        Long pendingTasks = calculatePendingTasks(lawyer); // Placeholder calculation
 
-        return new DashboardStatsResponse(activeCases, totalClients, monthlyRevenue, pendingTasks);
+        return new DashboardStatsResponse(
+            statistics.getActiveCases(),
+            totalClients,
+            statistics.getActiveCaseValue(),
+            statistics.getPendingCases()
+        );
     }
 
     public DashboardStatsResponse getClientDashboardStats(User client) {
-        Long activeCases = caseRepository.countCasesByClient(client);
-        Long totalDocuments = documentRepository.countDocumentsByClient(client);
+        UserStats statistics = userStatsService.statsFor(client);
+        Long totalDocuments = statistics.getDocuments();
         
         // For clients, we'll use different metrics
         return new DashboardStatsResponse(
-            activeCases,
+            statistics.getTotalCases(),
             totalDocuments, // Using document count instead of client count
             0.0, // Clients don't need revenue data
             0L // Clients don't need pending tasks
@@ -48,91 +62,87 @@ public class DashboardService {
     }
 
     public LawyerDashboardResponse getLawyerFullDashboard(User lawyer) {
-        Long activeCases = caseRepository.countActiveCasesByLawyer(lawyer);
-        Long pendingCases = caseRepository.countPendingCasesByLawyer(lawyer);
-        Long closedCases = caseRepository.countClosedCasesByLawyer(lawyer);
+        // Per-status counts and the active case value come from the maintained counters row
+        UserStats statistics = userStatsService.statsFor(lawyer);
         Long totalClients = userRepository.countClients();
-        Double monthlyRevenue = calculateMonthlyRevenue(lawyer);
-        Long pendingTasks = calculatePendingTasks(lawyer);
         
         // Get recent 4 cases
         List<Case> recentCases = caseRepository.findRecentCasesByLawyer(lawyer, PageRequest.of(0, 4));
         List<CaseResponse> caseResponses = recentCases.stream()
-            .map(this::convertToCaseResponse)
+            .map(CaseResponse::from)
             .collect(Collectors.toList());
 
-        return new LawyerDashboardResponse(activeCases, pendingCases, closedCases, totalClients, monthlyRevenue, pendingTasks, caseResponses);
+        return new LawyerDashboardResponse(
+            statistics.getActiveCases(),
+            statistics.getPendingCases(),
+            statistics.getClosedCases(),
+            totalClients,
+            statistics.getActiveCaseValue(),
+            statistics.getPendingCases(),
+            caseResponses
+        );
     }
 
     public ClientDashboardResponse getClientFullDashboard(User client) {
-        Long activeCases = caseRepository.countActiveCasesByClient(client);
-        Long pendingCases = caseRepository.countPendingCasesByClient(client);
-        Long closedCases = caseRepository.countClosedCasesByClient(client);
-        Long totalDocuments = documentRepository.countDocumentsByClient(client);
-        Long upcomingAppointments = countUpcomingAppointments(client);
+        UserStats statistics = userStatsService.statsFor(client);
+        Long totalDocuments = statistics.getDocuments();
+        // Upcoming hearings depend on the clock, so they are counted rather than maintained
+        Long upcomingHearings = caseRepository.countUpcomingHearingsByClient(client, LocalDateTime.now());
         Long unreadMessages = 0L; // Placeholder - implement when message system is ready
         
         // Get recent cases
         List<Case> recentCases = caseRepository.findRecentCasesByClient(client, PageRequest.of(0, 6));
         List<CaseResponse> caseResponses = recentCases.stream()
-            .map(this::convertToCaseResponse)
+            .map(CaseResponse::from)
             .collect(Collectors.toList());
 
-        return new ClientDashboardResponse(activeCases, pendingCases, closedCases, totalDocuments, upcomingAppointments, unreadMessages, caseResponses);
+        return new ClientDashboardResponse(
+            statistics.getActiveCases(),
+            statistics.getPendingCases(),
+            statistics.getClosedCases(),
+            totalDocuments,
+            upcomingHearings,
+            unreadMessages,
+            caseResponses
+        );
     }
 
-    private CaseResponse convertToCaseResponse(Case caseEntity) {
-        CaseResponse response = new CaseResponse();
-        response.setId(caseEntity.getId());
-        response.setCaseNumber(caseEntity.getCaseNumber());
-        response.setTitle(caseEntity.getTitle());
-        response.setDescription(caseEntity.getDescription());
-        response.setStatus(caseEntity.getStatus().name());
-        
-        // Set client info
-        if (caseEntity.getClient() != null) {
-            CaseResponse.UserInfo clientInfo = new CaseResponse.UserInfo();
-            clientInfo.setId(caseEntity.getClient().getId().toString());
-            clientInfo.setName(caseEntity.getClient().getName());
-            response.setClient(clientInfo);
+    /**
+     * Revenue from the lawyer's active cases, bucketed by the month the case was opened. The
+     * grouping and sums run in the database; months without cases are filled in with zero.
+     */
+    public RevenueBreakdownResponse getRevenueBreakdown(User lawyer, YearMonth from, YearMonth to) {
+        if (to == null) {
+            to = YearMonth.now();
         }
-        
-        // Set lawyer info
-        if (caseEntity.getLawyer() != null) {
-            CaseResponse.UserInfo lawyerInfo = new CaseResponse.UserInfo();
-            lawyerInfo.setId(caseEntity.getLawyer().getId().toString());
-            lawyerInfo.setName(caseEntity.getLawyer().getName());
-            response.setLawyer(lawyerInfo);
+        if (from == null) {
+            from = to.minusMonths(11);
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.MONTHS.between(from, to) >= maxRevenueMonths) {
+            throw new IllegalArgumentException("Revenue range is limited to " + maxRevenueMonths + " months");
         }
-        
-        response.setCaseValue(caseEntity.getCaseValue());
-        response.setNextHearing(caseEntity.getNextHearing());
-        response.setUpdatedAt(caseEntity.getUpdatedAt());
-        response.setCreatedAt(caseEntity.getCreatedAt());
-        return response;
-    }
 
-    private Double calculateMonthlyRevenue(User lawyer) {
-        // Calculate total value from all active cases
-        List<Case> allCases = caseRepository.findRecentCasesByLawyer(lawyer, PageRequest.of(0, 1000));
-        
-        return allCases.stream()
-            .filter(c -> c.getStatus() == Case.Status.ACTIVE && c.getCaseValue() != null)
-            .mapToDouble(Case::getCaseValue)
-            .sum();
-    }
+        List<MonthlyRevenue> rows = caseRepository.getMonthlyRevenueByLawyer(
+            lawyer, from.atDay(1).atStartOfDay(), to.plusMonths(1).atDay(1).atStartOfDay());
+        Map<YearMonth, MonthlyRevenue> byMonth = new HashMap<>();
+        for (MonthlyRevenue row : rows) {
+            byMonth.put(YearMonth.of(row.getRevenueYear(), row.getRevenueMonth()), row);
+        }
 
-    private Long calculatePendingTasks(User lawyer) {
-        // Count PENDING cases for the lawyer
-        return caseRepository.countPendingCasesByLawyer(lawyer);
-    }
+        List<RevenueBreakdownResponse.MonthEntry> months = new ArrayList<>();
+        double total = 0.0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            MonthlyRevenue row = byMonth.get(month);
+            double revenue = row != null ? row.getRevenue() : 0.0;
+            long cases = row != null ? row.getCases() : 0L;
+            months.add(new RevenueBreakdownResponse.MonthEntry(month.toString(), revenue, cases));
+            total += revenue;
+        }
 
-    private Long countUpcomingAppointments(User client) {
-        // Count cases with upcoming hearings
-        List<Case> cases = caseRepository.findRecentCasesByClient(client, PageRequest.of(0, 100));
-        return cases.stream()
-            .filter(c -> c.getNextHearing() != null && c.getNextHearing().isAfter(LocalDateTime.now()))
-            .count();
+        return new RevenueBreakdownResponse(from.toString(), to.toString(), total, months);
     }
 
     public List<ActivityResponse> getRecentActivities(User user) {
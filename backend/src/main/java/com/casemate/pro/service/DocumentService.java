@@ -1,37 +1,78 @@
 package com.casemate.pro.service;
 
+import com.casemate.pro.dto.CursorPage;
+import com.casemate.pro.dto.DocumentDownload;
 import com.casemate.pro.entity.Document;
 import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.CaseEvent;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.repository.DocumentRepository;
 import com.casemate.pro.repository.CaseRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import com.casemate.pro.storage.DocumentStorage;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class DocumentService {
 
     private final DocumentRepository documentRepository;
     private final CaseRepository caseRepository;
-    private final String uploadDir = "uploads/documents/";
+    private final UserStatsService userStatsService;
+    private final PaginationSupport paginationSupport;
+    private final CaseAuditLog caseAuditLog;
+    private final BlobStore blobStore;
+    private final DocumentStorage documentStorage;
+    private final TransactionTemplate transaction;
+
+    public DocumentService(DocumentRepository documentRepository,
+                           CaseRepository caseRepository,
+                           UserStatsService userStatsService,
+                           PaginationSupport paginationSupport,
+                           CaseAuditLog caseAuditLog,
+                           BlobStore blobStore,
+                           DocumentStorage documentStorage,
+                           PlatformTransactionManager transactionManager) {
+        this.documentRepository = documentRepository;
+        this.caseRepository = caseRepository;
+        this.userStatsService = userStatsService;
+        this.paginationSupport = paginationSupport;
+        this.caseAuditLog = caseAuditLog;
+        this.blobStore = blobStore;
+        this.documentStorage = documentStorage;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
 
-    public Page<Document> getDocuments(User user, UUID caseId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("uploadedAt").descending());
+    public CursorPage<Document> getDocuments(User user, UUID caseId, String cursor, int page, int size, boolean includeTotal) {
+        int pageSize = paginationSupport.clampSize(size);
+        PageCursor after = PageCursor.decode(cursor, "recent");
+        Pageable request = paginationSupport.request(after, page, pageSize);
+        LocalDateTime afterKey = after != null ? LocalDateTime.parse(after.key()) : null;
+        UUID afterId = after != null ? after.id() : null;
 
+        List<Document> rows;
+        Long total = null;
         if (caseId != null) {
             Case caseEntity = caseRepository.findById(caseId)
                 .orElseThrow(() -> new RuntimeException("Case not found"));
@@ -40,10 +81,21 @@ public class DocumentService {
                 throw new RuntimeException("Access denied to this case");
             }
 
-            return documentRepository.findByCaseEntity(caseEntity, pageable);
+            rows = documentRepository.findPageByCase(caseEntity, afterKey, afterId, request);
+            if (includeTotal) {
+                total = paginationSupport.cachedTotal("documents:case:" + caseId,
+                    () -> documentRepository.countByCaseEntity(caseEntity));
+            }
+        } else {
+            rows = documentRepository.findPageByUploader(user, afterKey, afterId, request);
+            if (includeTotal) {
+                total = paginationSupport.cachedTotal("documents:uploader:" + user.getId(),
+                    () -> documentRepository.countByUploadedBy(user));
+            }
         }
 
-        return documentRepository.findByUploadedBy(user, pageable);
+        return paginationSupport.toPage(rows, request, pageSize,
+            d -> PageCursor.encode("recent", d.getId(), d.getUploadedAt()), total);
     }
 
     public List<Document> getDocumentsByCase(UUID caseId, User user) {
@@ -57,55 +109,125 @@ public class DocumentService {
         return documentRepository.findByCaseEntity(caseEntity);
     }
 
+    // Not transactional: the files are stored before uploadFiles opens its own, short transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Document uploadDocument(MultipartFile file, UUID caseId, String description, Document.DocumentCategory category, User user) {
-        return uploadSingleFile(file, caseId, description, category, user);
+        return uploadFiles(List.of(file), caseId, description, category, user).get(0);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<Document> uploadMultipleDocuments(List<MultipartFile> files, UUID caseId, String description, Document.DocumentCategory category, User user) {
-        List<Document> uploadedDocuments = new ArrayList<>();
-        for (MultipartFile file : files) {
-            uploadedDocuments.add(uploadSingleFile(file, caseId, description, category, user));
-        }
-        return uploadedDocuments;
+        return uploadFiles(files, caseId, description, category, user);
     }
 
-    private Document uploadSingleFile(MultipartFile file, UUID caseId, String description, Document.DocumentCategory category, User user) {
-        Case caseEntity = caseRepository.findById(caseId)
-            .orElseThrow(() -> new RuntimeException("Case not found"));
+    /**
+     * Stores the files and records them on the case as one unit. The case is read and checked
+     * first, and the files are hashed and written to storage concurrently, all before the
+     * transaction opens; it covers only the reference counts and the batched document insert.
+     * If any step fails, nothing is recorded and the blobs this call wrote are deleted again.
+     */
+    private List<Document> uploadFiles(List<MultipartFile> files, UUID caseId, String description, Document.DocumentCategory category, User user) {
+        Case caseEntity = findAccessibleCase(caseId, user);
 
-        if (!hasAccessToCase(caseEntity, user)) {
-            throw new RuntimeException("Access denied to this case");
+        List<BlobStore.Stored> blobs;
+        try {
+            blobs = blobStore.storeAll(files);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
         }
 
         try {
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            return transaction.execute(status -> {
+                try {
+                    blobStore.reference(blobs, i -> target -> {
+                        try (InputStream in = files.get(i).getInputStream()) {
+                            Files.copy(in, target);
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                List<Document> documents = new ArrayList<>(files.size());
+                for (int i = 0; i < files.size(); i++) {
+                    MultipartFile file = files.get(i);
+                    documents.add(newDocument(caseEntity, file.getOriginalFilename(), blobs.get(i), file.getSize(), description, category, user));
+                }
+                List<Document> savedDocuments = documentRepository.saveAll(documents);
+                recordAdded(caseEntity, savedDocuments, user);
+                return savedDocuments;
+            });
+        } catch (RuntimeException e) {
+            blobStore.discardUnreferenced(blobs);
+            if (e instanceof UncheckedIOException io) {
+                throw new RuntimeException("Failed to upload file: " + io.getCause().getMessage());
             }
+            throw e;
+        }
+    }
 
-            String filename = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Path filePath = uploadPath.resolve(filename);
-            Files.copy(file.getInputStream(), filePath);
-
-            Document document = new Document();
-            document.setName(file.getOriginalFilename());
-            document.setFilePath(filePath.toString());
-            document.setType(getFileExtension(file.getOriginalFilename()));
-            document.setSize(file.getSize());
-            document.setDescription(description);
-            document.setCategory(category);
-            document.setCaseEntity(caseEntity);
-            document.setUploadedBy(user);
+    /**
+     * Moves a completely received file into document storage and records it on the case.
+     */
+    @Transactional
+    public Document addUploadedFile(Path source, String fileName, long size, UUID caseId, String description,
+                                    Document.DocumentCategory category, User user) {
+        Case caseEntity = findAccessibleCase(caseId, user);
 
-            return documentRepository.save(document);
+        try {
+            String contentHash;
+            try (InputStream in = Files.newInputStream(source)) {
+                contentHash = BlobStore.sha256(in);
+            }
+            BlobStore.Stored blob = blobStore.acquire(contentHash, size, target -> Files.move(source, target));
+            // Still there when the content was already stored
+            Files.deleteIfExists(source);
 
+            Document savedDocument = documentRepository.save(newDocument(caseEntity, fileName, blob, size, description, category, user));
+            recordAdded(caseEntity, List.of(savedDocument), user);
+            return savedDocument;
         } catch (IOException e) {
-            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+            throw new RuntimeException("Failed to store file: " + e.getMessage());
+        }
+    }
+
+    public Case findAccessibleCase(UUID caseId, User user) {
+        Case caseEntity = caseRepository.findById(caseId)
+            .orElseThrow(() -> new RuntimeException("Case not found"));
+
+        if (!hasAccessToCase(caseEntity, user)) {
+            throw new RuntimeException("Access denied to this case");
+        }
+        return caseEntity;
+    }
+
+    private Document newDocument(Case caseEntity, String name, BlobStore.Stored blob, long size, String description,
+                                 Document.DocumentCategory category, User user) {
+        Document document = new Document();
+        document.setName(name);
+        document.setStorageKey(blob.sha256());
+        document.setContentHash(blob.sha256());
+        document.setType(getFileExtension(name));
+        document.setSize(size);
+        document.setDescription(description);
+        document.setCategory(category);
+        document.setCaseEntity(caseEntity);
+        document.setUploadedBy(user);
+        return document;
+    }
+
+    private void recordAdded(Case caseEntity, List<Document> documents, User user) {
+        userStatsService.documentsAdded(caseEntity, documents.size());
+        for (Document document : documents) {
+            caseAuditLog.record(caseEntity.getId(), user.getId(), CaseEvent.Type.DOCUMENT_ADDED, Map.of(
+                "documentId", document.getId(),
+                "name", document.getName(),
+                "size", document.getSize()));
         }
     }
 
     public Document getDocumentById(UUID documentId, User user) {
-        Document document = documentRepository.findById(documentId)
+        Document document = documentRepository.findWithCaseById(documentId)
             .orElseThrow(() -> new RuntimeException("Document not found"));
 
         if (!hasAccessToCase(document.getCaseEntity(), user)) {
@@ -115,35 +237,61 @@ public class DocumentService {
         return document;
     }
 
+    @Transactional
     public void deleteDocument(UUID documentId, User user) {
-        Document document = getDocumentById(documentId, user);
+        // Locked so the storage migrator cannot move the file while it is being deleted
+        Document document = documentRepository.findWithCaseForUpdate(documentId)
+            .orElseThrow(() -> new RuntimeException("Document not found"));
+
+        if (!hasAccessToCase(document.getCaseEntity(), user)) {
+            throw new RuntimeException("Access denied to this document");
+        }
 
         if (!document.getUploadedBy().getId().equals(user.getId()) &&
             !document.getCaseEntity().getLawyer().getId().equals(user.getId())) {
             throw new RuntimeException("You don't have permission to delete this document");
         }
 
-        try {
-            Path filePath = Paths.get(document.getFilePath());
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+        if (document.getContentHash() != null) {
+            // Shared with any other document holding the same content
+            blobStore.release(document.getContentHash());
+        } else if (document.getFilePath() != null) {
+            try {
+                Path filePath = Paths.get(document.getFilePath());
+                if (Files.exists(filePath)) {
+                    Files.delete(filePath);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to delete physical file: " + e.getMessage());
             }
-        } catch (IOException e) {
-            System.err.println("Failed to delete physical file: " + e.getMessage());
         }
 
         documentRepository.delete(document);
+        userStatsService.documentsRemoved(document.getCaseEntity(), 1);
+        caseAuditLog.record(document.getCaseEntity().getId(), user.getId(), CaseEvent.Type.DOCUMENT_REMOVED, Map.of(
+            "documentId", document.getId(),
+            "name", document.getName()));
     }
 
-    public byte[] downloadDocument(UUID documentId, User user) throws IOException {
+    /**
+     * Locates the document's file for streaming; the bytes are never loaded into memory.
+     * Files the storage migrator has not reached yet are still read from their old path.
+     */
+    public DocumentDownload openDownload(UUID documentId, User user) {
         Document document = getDocumentById(documentId, user);
-        Path filePath = Paths.get(document.getFilePath());
 
-        if (!Files.exists(filePath)) {
-            throw new RuntimeException("File not found on disk");
+        try {
+            Resource resource = document.getStorageKey() != null
+                ? documentStorage.get(document.getStorageKey())
+                : new FileSystemResource(document.getFilePath());
+            if (!resource.exists()) {
+                throw new FileNotFoundException(document.getFilePath());
+            }
+            return new DocumentDownload(document.getName(), resource, resource.contentLength(),
+                Instant.ofEpochMilli(resource.lastModified()));
+        } catch (IOException e) {
+            throw new RuntimeException("File not found in storage");
         }
-
-        return Files.readAllBytes(filePath);
     }
 
     private boolean hasAccessToCase(Case caseEntity, User user) {
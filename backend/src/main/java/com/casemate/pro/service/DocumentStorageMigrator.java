@@ -0,0 +1,135 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.Document;
+import com.casemate.pro.repository.DocumentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Moves files of documents that still have a local path into {@link com.casemate.pro.storage.DocumentStorage},
+ * a batch at a time in the background, so storage can be switched without downtime.
+ *
+ * Each document is migrated in its own transaction with its row locked: the file is copied
+ * into storage, the row is pointed at the storage key, and only after that commits is the old
+ * file removed. Until then downloads keep reading the old path, and a download that already
+ * opened it finishes normally. Running on several nodes at once is safe; the row lock and the
+ * re-check under it mean each document is migrated once.
+ */
+@Component
+@Slf4j
+public class DocumentStorageMigrator {
+
+    private final DocumentRepository documentRepository;
+    private final BlobStore blobStore;
+    private final TransactionTemplate newTransaction;
+    private final boolean enabled;
+    private final int batchSize;
+
+    // Position in the id order, and documents whose file could not be read; both reset each pass
+    private UUID cursor;
+    private final Set<UUID> skipped = new HashSet<>();
+
+    public DocumentStorageMigrator(DocumentRepository documentRepository,
+                                   BlobStore blobStore,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${documents.storage.migration.enabled:true}") boolean enabled,
+                                   @Value("${documents.storage.migration.batch-size:100}") int batchSize) {
+        this.documentRepository = documentRepository;
+        this.blobStore = blobStore;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${documents.storage.migration.interval-ms:60000}")
+    public synchronized void migrateBatch() {
+        if (!enabled) {
+            return;
+        }
+
+        List<UUID> ids = documentRepository.findIdsWithoutStorageKey(cursor, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            cursor = null;
+            skipped.clear();
+            return;
+        }
+        cursor = ids.get(ids.size() - 1);
+
+        int migrated = 0;
+        for (UUID id : ids) {
+            try {
+                Path oldFile = newTransaction.execute(status -> migrate(id));
+                if (oldFile != null) {
+                    Files.deleteIfExists(oldFile);
+                    migrated++;
+                }
+            } catch (IOException | RuntimeException e) {
+                // Warn once per pass; the document keeps its old path and is retried next pass
+                if (skipped.add(id)) {
+                    log.warn("Could not move document {} into storage: {}", id, e.getMessage());
+                }
+            }
+        }
+        if (migrated > 0) {
+            log.info("Moved {} document files into storage", migrated);
+        }
+    }
+
+    /**
+     * Copies one document's file into storage and switches the row over to its storage key.
+     *
+     * @return the old file, to delete once the transaction has committed; null if there is
+     * nothing to delete
+     */
+    private Path migrate(UUID id) {
+        Document document = documentRepository.findWithCaseForUpdate(id).orElse(null);
+        if (document == null || document.getStorageKey() != null) {
+            // Deleted or migrated by another node since the batch was listed
+            return null;
+        }
+
+        Path oldFile = Paths.get(document.getFilePath());
+        try {
+            String sha256 = document.getContentHash();
+            if (sha256 == null) {
+                // A file of its own; content already in storage just gains a reference
+                try (InputStream in = Files.newInputStream(oldFile)) {
+                    sha256 = BlobStore.sha256(in);
+                }
+                blobStore.acquire(sha256, document.getSize(), target -> Files.copy(oldFile, target));
+                document.setContentHash(sha256);
+                document.setStorageKey(sha256);
+                document.setFilePath(null);
+                documentRepository.save(document);
+                return oldFile;
+            }
+
+            // A shared blob file, already counted. With local storage it is usually the stored
+            // file itself, so it is only removed when it had to be copied somewhere else.
+            long references = documentRepository.countByContentHash(sha256);
+            boolean copied = blobStore.ensureStored(sha256, document.getSize(), references, target -> Files.copy(oldFile, target));
+            documentRepository.assignStorageKey(sha256);
+            return copied ? oldFile : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
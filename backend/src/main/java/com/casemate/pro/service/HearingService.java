@@ -0,0 +1,154 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.HearingList;
+import com.casemate.pro.dto.HearingSummary;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.CaseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class HearingService {
+
+    private static final DateTimeFormatter ICS_UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final CaseRepository caseRepository;
+
+    @Value("${hearings.default-range-days:30}")
+    private int defaultRangeDays;
+
+    @Value("${hearings.max-range-days:366}")
+    private int maxRangeDays;
+
+    @Value("${hearings.max-results:500}")
+    private int maxResults;
+
+    @Value("${hearings.feed-past-days:30}")
+    private int feedPastDays;
+
+    @Value("${hearings.feed-future-days:365}")
+    private int feedFutureDays;
+
+    @Value("${hearings.duration-minutes:60}")
+    private int durationMinutes;
+
+    /**
+     * Hearings of the user's cases between {@code from} (inclusive) and {@code to} (exclusive),
+     * in date order. Defaults to the next {@code hearings.default-range-days} days from today.
+     */
+    public HearingList getHearings(User user, LocalDate from, LocalDate to) {
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start.plusDays(defaultRangeDays);
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        if (ChronoUnit.DAYS.between(start, end) > maxRangeDays) {
+            throw new IllegalArgumentException("Hearing range is limited to " + maxRangeDays + " days");
+        }
+        return findHearings(user, start.atStartOfDay(), end.atStartOfDay());
+    }
+
+    /**
+     * The user's hearings from {@code hearings.feed-past-days} ago to
+     * {@code hearings.feed-future-days} ahead as an iCalendar (RFC 5545) document. A feed cut
+     * short at {@code hearings.max-results} says so in its calendar description.
+     */
+    public byte[] getCalendarFeed(User user) {
+        LocalDate today = LocalDate.now();
+        HearingList hearings = findHearings(user,
+            today.minusDays(feedPastDays).atStartOfDay(), today.plusDays(feedFutureDays).atStartOfDay());
+
+        StringBuilder ics = new StringBuilder();
+        line(ics, "BEGIN:VCALENDAR");
+        line(ics, "VERSION:2.0");
+        line(ics, "PRODID:-//CaseMate Pro//Hearings//EN");
+        line(ics, "CALSCALE:GREGORIAN");
+        line(ics, "X-WR-CALNAME:" + escape("CaseMate hearings - " + user.getName()));
+        if (hearings.isTruncated()) {
+            line(ics, "X-WR-CALDESC:" + escape("Only the first " + maxResults + " hearings are shown"));
+            line(ics, "X-CASEMATE-TRUNCATED:TRUE");
+        }
+        boolean lawyer = user.getRole() == User.Role.LAWYER;
+        for (HearingSummary hearing : hearings.getHearings()) {
+            line(ics, "BEGIN:VEVENT");
+            line(ics, "UID:" + hearing.getCaseId() + "-" + utc(hearing.getHearingAt()) + "@casemate");
+            // From the case rather than the clock, so an unchanged feed renders identically
+            line(ics, "DTSTAMP:" + utc(hearing.getUpdatedAt() != null ? hearing.getUpdatedAt() : hearing.getHearingAt()));
+            line(ics, "DTSTART:" + utc(hearing.getHearingAt()));
+            line(ics, "DTEND:" + utc(hearing.getHearingAt().plusMinutes(durationMinutes)));
+            line(ics, "SUMMARY:" + escape("Hearing: " + hearing.getTitle() + " (" + hearing.getCaseNumber() + ")"));
+            line(ics, "DESCRIPTION:" + escape(description(hearing, lawyer)));
+            line(ics, "END:VEVENT");
+        }
+        line(ics, "END:VCALENDAR");
+        return ics.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private HearingList findHearings(User user, LocalDateTime from, LocalDateTime to) {
+        // One row past the limit tells a full range from a cut one
+        PageRequest limit = PageRequest.of(0, maxResults + 1);
+        List<HearingSummary> hearings = user.getRole() == User.Role.LAWYER
+            ? caseRepository.findHearingsByLawyer(user, from, to, limit)
+            : caseRepository.findHearingsByClient(user, from, to, limit);
+        boolean truncated = hearings.size() > maxResults;
+        return new HearingList(truncated ? hearings.subList(0, maxResults) : hearings, truncated);
+    }
+
+    // The other party and the status, leaving out whatever is missing
+    private static String description(HearingSummary hearing, boolean lawyer) {
+        List<String> lines = new ArrayList<>();
+        String otherParty = lawyer ? hearing.getClientName() : hearing.getLawyerName();
+        if (otherParty != null && !otherParty.isBlank()) {
+            lines.add((lawyer ? "Client: " : "Lawyer: ") + otherParty);
+        }
+        if (hearing.getStatus() != null) {
+            lines.add("Status: " + hearing.getStatus().toLowerCase());
+        }
+        return String.join("\n", lines);
+    }
+
+    // Hearing times are stored in server-local time
+    private static String utc(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).format(ICS_UTC);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\")
+            .replace(";", "\\;")
+            .replace(",", "\\,")
+            .replace("\r\n", "\\n")
+            .replace("\n", "\\n");
+    }
+
+    /**
+     * Appends a content line, folded at 75 octets as RFC 5545 requires.
+     */
+    private static void line(StringBuilder ics, String content) {
+        int octets = 0;
+        for (int i = 0; i < content.length(); ) {
+            int codePoint = content.codePointAt(i);
+            int size = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length;
+            if (octets + size > 75) {
+                ics.append("\r\n ");
+                octets = 1;
+            }
+            ics.appendCodePoint(codePoint);
+            octets += size;
+            i += Character.charCount(codePoint);
+        }
+        ics.append("\r\n");
+    }
+}
@@ -3,16 +3,20 @@ package com.casemate.pro.service;
 import com.casemate.pro.entity.Notification;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.repository.NotificationRepository;
+import com.casemate.pro.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
 
     public Notification createNotification(User user, String message) {
         Notification notification = new Notification();
@@ -21,6 +25,24 @@ public class NotificationService {
         return notificationRepository.save(notification);
     }
 
+    /**
+     * Builds an unsaved notification for a user referenced by id, without loading the user.
+     */
+    public Notification newNotification(UUID userId, String message) {
+        Notification notification = new Notification();
+        notification.setUser(userRepository.getReferenceById(userId));
+        notification.setMessage(message);
+        return notification;
+    }
+
+    /**
+     * Inserts the notifications in batched writes ({@code hibernate.jdbc.batch_size}).
+     */
+    @Transactional
+    public void createNotifications(List<Notification> notifications) {
+        notificationRepository.saveAll(notifications);
+    }
+
     public List<Notification> getUnreadNotifications(User user) {
         return notificationRepository.findByUserAndIsReadFalseOrderByCreatedAtDesc(user);
     }
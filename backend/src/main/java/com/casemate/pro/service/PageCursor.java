@@ -0,0 +1,37 @@
+package com.casemate.pro.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor: the sort order it was issued for, the id of the last row returned and
+ * that row's sort key, base64url-encoded so clients treat it as a token rather than parse it.
+ */
+public record PageCursor(String sort, UUID id, String key) {
+
+    public static String encode(String sort, UUID id, Object key) {
+        String raw = sort + "|" + id + "|" + (key instanceof Enum<?> e ? e.name() : String.valueOf(key));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor issued for {@code expectedSort}. Returns null for a missing cursor and
+     * throws IllegalArgumentException for one that is malformed or was issued for another order.
+     */
+    public static PageCursor decode(String cursor, String expectedSort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(parts[0], UUID.fromString(parts[1]), parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.CursorPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shared plumbing for keyset-paginated listings: page size capping, the one-row over-fetch
+ * used to detect a following page, and a short-lived cache for the optional totals so
+ * clients that ask for a total on every page do not run a COUNT per page.
+ */
+@Component
+public class PaginationSupport {
+
+    private record CachedTotal(long value, long expiresAt) {
+    }
+
+    private final Map<String, CachedTotal> totals = new ConcurrentHashMap<>();
+
+    @Value("${pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${pagination.total-cache-ttl-seconds:60}")
+    private long totalTtlSeconds;
+
+    @Value("${pagination.total-cache-size:10000}")
+    private int totalCacheSize;
+
+    public int clampSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    /**
+     * Seek pages fetch one extra row from the start of the keyset range. Offset pages are only
+     * used for legacy {@code page} requests without a cursor.
+     */
+    public Pageable request(PageCursor cursor, int page, int size) {
+        if (cursor != null || page <= 0) {
+            return PageRequest.of(0, size + 1);
+        }
+        return PageRequest.of(page, size);
+    }
+
+    public <T> CursorPage<T> toPage(List<T> rows, Pageable request, int size,
+                                    Function<T, String> cursorOf, Long total) {
+        boolean hasMore = request.getPageSize() > size ? rows.size() > size : rows.size() == size;
+        List<T> items = rows.size() > size ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = hasMore && !items.isEmpty() ? cursorOf.apply(items.get(items.size() - 1)) : null;
+        return new CursorPage<>(items, nextCursor, hasMore, total);
+    }
+
+    public long cachedTotal(String key, Supplier<Long> counter) {
+        long now = System.currentTimeMillis();
+        CachedTotal cached = totals.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.value();
+        }
+
+        Long counted = counter.get();
+        long value = counted != null ? counted : 0L;
+        if (totals.size() >= totalCacheSize) {
+            totals.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (totals.size() >= totalCacheSize) {
+                totals.clear();
+            }
+        }
+        totals.put(key, new CachedTotal(value, now + totalTtlSeconds * 1000));
+        return value;
+    }
+}
@@ -0,0 +1,109 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.RefreshToken;
+import com.casemate.pro.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpirationMs;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh-expiration:1209600000}") long refreshExpirationMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpirationMs = refreshExpirationMs;
+    }
+
+    /**
+     * Issues a new opaque refresh token for the user. Only its hash is stored.
+     */
+    @Transactional
+    public String issue(UUID userId) {
+        byte[] random = new byte[32];
+        secureRandom.nextBytes(random);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUserId(userId);
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationMs)));
+        refreshTokenRepository.save(refreshToken);
+
+        return rawToken;
+    }
+
+    /**
+     * Consumes a refresh token and returns the id of the user it belongs to. The token is revoked
+     * so the caller must hand out a replacement. Presenting an already revoked token is treated
+     * as theft and revokes every refresh token of that user.
+     *
+     * The token is revoked with one conditional UPDATE, so of two requests racing with the same
+     * token only one gets through; the other is handled as a reuse.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public UUID consume(String rawToken) {
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(hash(rawToken))
+            .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        LocalDateTime now = LocalDateTime.now();
+        if (refreshTokenRepository.consume(refreshToken.getId(), now) == 1) {
+            return refreshToken.getUserId();
+        }
+
+        if (!refreshToken.getExpiresAt().isAfter(now)) {
+            throw new BadCredentialsException("Refresh token expired");
+        }
+        log.warn("Revoked refresh token reused for user {}; revoking all sessions", refreshToken.getUserId());
+        refreshTokenRepository.revokeAllByUserId(refreshToken.getUserId());
+        throw new BadCredentialsException("Invalid refresh token");
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken)).ifPresent(refreshToken -> {
+            refreshToken.setRevoked(true);
+            refreshTokenRepository.save(refreshToken);
+        });
+    }
+
+    @Transactional
+    public void revokeAllForUser(UUID userId) {
+        refreshTokenRepository.revokeAllByUserId(userId);
+    }
+
+    @Scheduled(cron = "${jwt.refresh-cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
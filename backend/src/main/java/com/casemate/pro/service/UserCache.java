@@ -0,0 +1,200 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of {@link User} snapshots. Lookups are memoized for the current request
+ * and backed by a shared, size-bounded cache whose entries expire after a fixed TTL.
+ *
+ * Snapshots are detached copies without the lazy collections. They can be read and used as
+ * association targets, but updates must go through {@link UserRepository} followed by {@link #evict}.
+ */
+@Component
+public class UserCache {
+
+    private static final String REQUEST_MEMO = UserCache.class.getName() + ".memo";
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxSize;
+
+    private final Map<UUID, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, UUID> idsByEmail = new ConcurrentHashMap<>();
+
+    private final Counter requestHits;
+    private final Counter sharedHits;
+    private final Counter misses;
+
+    public UserCache(UserRepository userRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${users.cache.ttl-seconds:300}") long ttlSeconds,
+                     @Value("${users.cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+        this.requestHits = meterRegistry.counter("users.cache.hits", "level", "request");
+        this.sharedHits = meterRegistry.counter("users.cache.hits", "level", "shared");
+        this.misses = meterRegistry.counter("users.cache.misses");
+        Gauge.builder("users.cache.size", byId, Map::size).register(meterRegistry);
+    }
+
+    public Optional<User> findById(UUID id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+
+        Map<UUID, User> memo = requestMemo();
+        if (memo != null && memo.containsKey(id)) {
+            requestHits.increment();
+            return Optional.of(memo.get(id));
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = byId.get(id);
+        User snapshot;
+        if (entry != null && entry.expiresAt() > now) {
+            sharedHits.increment();
+            snapshot = copy(entry.user());
+        } else {
+            misses.increment();
+            Optional<User> loaded = userRepository.findById(id);
+            if (loaded.isEmpty()) {
+                return Optional.empty();
+            }
+            snapshot = put(loaded.get(), now);
+        }
+
+        if (memo != null) {
+            memo.put(id, snapshot);
+        }
+        return Optional.of(snapshot);
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+
+        UUID id = idsByEmail.get(email);
+        if (id != null) {
+            Optional<User> cached = findById(id);
+            if (cached.isPresent() && email.equals(cached.get().getEmail())) {
+                return cached;
+            }
+            idsByEmail.remove(email, id);
+        }
+
+        misses.increment();
+        return userRepository.findByEmail(email).map(user -> {
+            User snapshot = put(user, System.currentTimeMillis());
+            Map<UUID, User> memo = requestMemo();
+            if (memo != null) {
+                memo.put(snapshot.getId(), snapshot);
+            }
+            return snapshot;
+        });
+    }
+
+    /**
+     * Drops the user from the shared cache and the current request memo. Inside a transaction
+     * the eviction is repeated after commit so a concurrent read cannot re-cache the old row.
+     */
+    public void evict(User user) {
+        evictNow(user.getId(), user.getEmail());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            UUID id = user.getId();
+            String email = user.getEmail();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(id, email);
+                }
+            });
+        }
+    }
+
+    private void evictNow(UUID id, String email) {
+        Entry removed = byId.remove(id);
+        if (removed != null) {
+            idsByEmail.remove(removed.user().getEmail(), id);
+        }
+        if (email != null) {
+            idsByEmail.remove(email, id);
+        }
+        Map<UUID, User> memo = requestMemo();
+        if (memo != null) {
+            memo.remove(id);
+        }
+    }
+
+    private User put(User user, long now) {
+        if (byId.size() >= maxSize) {
+            makeRoom(now);
+        }
+        User snapshot = copy(user);
+        byId.put(snapshot.getId(), new Entry(snapshot, now + ttlMillis));
+        idsByEmail.put(snapshot.getEmail(), snapshot.getId());
+        return copy(snapshot);
+    }
+
+    private void makeRoom(long now) {
+        byId.entrySet().removeIf(e -> e.getValue().expiresAt() <= now);
+        Iterator<Map.Entry<UUID, Entry>> it = byId.entrySet().iterator();
+        while (byId.size() >= maxSize && it.hasNext()) {
+            Map.Entry<UUID, Entry> victim = it.next();
+            it.remove();
+            idsByEmail.remove(victim.getValue().user().getEmail(), victim.getKey());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<UUID, User> requestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<UUID, User> memo = (Map<UUID, User>) attributes.getAttribute(REQUEST_MEMO, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new HashMap<>();
+            attributes.setAttribute(REQUEST_MEMO, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+
+    private static User copy(User source) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setEmail(source.getEmail());
+        user.setPasswordHash(source.getPasswordHash());
+        user.setName(source.getName());
+        user.setRole(source.getRole());
+        user.setPhone(source.getPhone());
+        user.setAddress(source.getAddress());
+        user.setAge(source.getAge());
+        user.setAboutClient(source.getAboutClient());
+        user.setSecurityStamp(source.getSecurityStamp());
+        user.setCreatedAt(source.getCreatedAt());
+        user.setUpdatedAt(source.getUpdatedAt());
+        return user;
+    }
+
+    private record Entry(User user, long expiresAt) {
+    }
+}
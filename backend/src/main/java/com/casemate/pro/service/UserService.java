@@ -3,19 +3,39 @@ package com.casemate.pro.service;
 import com.casemate.pro.controller.UserController;
 import com.casemate.pro.entity.User;
 import com.casemate.pro.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.casemate.pro.security.PasswordHasher;
+import com.casemate.pro.security.SecurityStampRegistry;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final SecurityStampRegistry securityStampRegistry;
+    private final UserCache userCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TransactionTemplate transaction;
+
+    public UserService(UserRepository userRepository,
+                       PasswordHasher passwordHasher,
+                       SecurityStampRegistry securityStampRegistry,
+                       UserCache userCache,
+                       RefreshTokenService refreshTokenService,
+                       PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.securityStampRegistry = securityStampRegistry;
+        this.userCache = userCache;
+        this.refreshTokenService = refreshTokenService;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
 
     @Transactional
     public User updateUserProfile(UUID userId, String authenticatedEmail, UserController.UpdateProfileRequest request) {
@@ -34,6 +54,10 @@ public class UserService {
                 throw new RuntimeException("Email is already taken");
             }
             user.setEmail(request.getEmail());
+            // Tokens name the user by email, so outstanding ones must not survive the change
+            user.rotateSecurityStamp();
+            securityStampRegistry.stampChanged(user.getId(), user.getSecurityStamp());
+            refreshTokenService.revokeAllForUser(user.getId());
         }
 
         // Update user fields
@@ -53,10 +77,17 @@ public class UserService {
             user.setAboutClient(request.getAboutClient());
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.evict(savedUser);
+        return savedUser;
     }
 
-    @Transactional
+    /**
+     * Verifies the current password and hashes the new one before opening the transaction, so no
+     * connection is held while waiting on the hashing pool. The update then locks the row and only
+     * goes ahead if the password was not changed in the meantime.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void changePassword(UUID userId, String authenticatedEmail, UserController.ChangePasswordRequest request) {
         // Find the user
         User user = userRepository.findById(userId)
@@ -68,7 +99,7 @@ public class UserService {
         }
 
         // Verify current password
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPasswordHash())) {
+        if (!passwordHasher.matches(request.getCurrentPassword(), user.getPasswordHash())) {
             throw new RuntimeException("Current password is incorrect");
         }
 
@@ -77,14 +108,49 @@ public class UserService {
             throw new RuntimeException("New password must be at least 6 characters long");
         }
 
+        String verifiedHash = user.getPasswordHash();
+        String newHash = passwordHasher.encode(request.getNewPassword());
+
         // Update password
-        user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
-        userRepository.save(user);
+        transaction.executeWithoutResult(status -> {
+            User locked = userRepository.findForUpdate(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (!locked.getPasswordHash().equals(verifiedHash)) {
+                throw new RuntimeException("Password was changed by another request, please try again");
+            }
+            locked.setPasswordHash(newHash);
+            locked.rotateSecurityStamp();
+            userRepository.save(locked);
+            userCache.evict(locked);
+            securityStampRegistry.stampChanged(locked.getId(), locked.getSecurityStamp());
+            refreshTokenService.revokeAllForUser(locked.getId());
+        });
     }
 
-    public User getUserById(UUID userId, String authenticatedEmail) {
+    /**
+     * Gives the user another role. Their outstanding access and refresh tokens carry the old
+     * role and stop working; the user signs in again to get tokens for the new one.
+     */
+    @Transactional
+    public User changeRole(UUID userId, User.Role role) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        if (user.getRole() == role) {
+            return user;
+        }
+
+        // Also rotates the security stamp
+        user.setRole(role);
+        User savedUser = userRepository.save(user);
+        userCache.evict(savedUser);
+        securityStampRegistry.stampChanged(savedUser.getId(), savedUser.getSecurityStamp());
+        refreshTokenService.revokeAllForUser(savedUser.getId());
+        return savedUser;
+    }
+
+    public User getUserById(UUID userId, String authenticatedEmail) {
+        User user = userCache.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Verify that the authenticated user is the same as the user being retrieved
         if (!user.getEmail().equals(authenticatedEmail)) {
@@ -0,0 +1,279 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.CaseStatistics;
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.entity.UserStats;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.DocumentRepository;
+import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.repository.UserStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the {@code user_stats} counters. Case and document mutations apply deltas in the
+ * caller's transaction (or a fresh one when the caller has none); a repair job recomputes rows from the source tables, both for users
+ * whose row went missing and, on a schedule, for everyone.
+ */
+@Service
+@Slf4j
+public class UserStatsService {
+
+    private final UserStatsRepository userStatsRepository;
+    private final CaseRepository caseRepository;
+    private final DocumentRepository documentRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate newTransaction;
+    private final TransactionTemplate rebuildTransaction;
+
+    private final Set<UUID> pendingRepairs = ConcurrentHashMap.newKeySet();
+
+    public UserStatsService(UserStatsRepository userStatsRepository,
+                            CaseRepository caseRepository,
+                            DocumentRepository documentRepository,
+                            UserRepository userRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.userStatsRepository = userStatsRepository;
+        this.caseRepository = caseRepository;
+        this.documentRepository = documentRepository;
+        this.userRepository = userRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Each count sees what was committed when it runs, not a snapshot from before the row lock
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+        this.rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * Creates the empty counter row for a newly registered user.
+     */
+    @Transactional
+    public void createFor(User user) {
+        userStatsRepository.save(new UserStats(user.getId()));
+    }
+
+    @Transactional
+    public void caseCreated(Case caseEntity) {
+        Delta delta = new Delta();
+        delta.totalCases = 1;
+        delta.countStatus(caseEntity.getStatus(), 1, caseEntity.getCaseValue());
+        apply(caseEntity, delta);
+    }
+
+    @Transactional
+    public void caseStatusChanged(Case caseEntity, Case.Status from, Case.Status to) {
+        if (from == to) {
+            return;
+        }
+        Delta delta = new Delta();
+        delta.countStatus(from, -1, caseEntity.getCaseValue());
+        delta.countStatus(to, 1, caseEntity.getCaseValue());
+        apply(caseEntity, delta);
+    }
+
+    /**
+     * Applies a batch status change: one combined delta for the lawyer and one per client.
+     */
+    @Transactional
+    public void caseStatusesChanged(UUID lawyerId, List<Case> changed, Case.Status to) {
+        Delta lawyerDelta = new Delta();
+        Map<UUID, Delta> clientDeltas = new HashMap<>();
+        for (Case caseEntity : changed) {
+            if (caseEntity.getStatus() == to) {
+                continue;
+            }
+            lawyerDelta.countStatus(caseEntity.getStatus(), -1, caseEntity.getCaseValue());
+            lawyerDelta.countStatus(to, 1, caseEntity.getCaseValue());
+            if (caseEntity.getClient() != null) {
+                Delta clientDelta = clientDeltas.computeIfAbsent(caseEntity.getClient().getId(), id -> new Delta());
+                clientDelta.countStatus(caseEntity.getStatus(), -1, caseEntity.getCaseValue());
+                clientDelta.countStatus(to, 1, caseEntity.getCaseValue());
+            }
+        }
+        apply(List.of(lawyerId), lawyerDelta);
+        clientDeltas.forEach((clientId, delta) -> apply(List.of(clientId), delta));
+    }
+
+    @Transactional
+    public void caseDeleted(Case caseEntity, int documentCount) {
+        Delta delta = new Delta();
+        delta.totalCases = -1;
+        delta.countStatus(caseEntity.getStatus(), -1, caseEntity.getCaseValue());
+        delta.documents = -documentCount;
+        apply(caseEntity, delta);
+    }
+
+    @Transactional
+    public void documentsAdded(Case caseEntity, int count) {
+        Delta delta = new Delta();
+        delta.documents = count;
+        apply(caseEntity, delta);
+    }
+
+    @Transactional
+    public void documentsRemoved(Case caseEntity, int count) {
+        Delta delta = new Delta();
+        delta.documents = -count;
+        apply(caseEntity, delta);
+    }
+
+    /**
+     * Returns the user's counters. If the row is missing it is computed on the fly from the
+     * case aggregate and queued for repair.
+     */
+    public UserStats statsFor(User user) {
+        return userStatsRepository.findById(user.getId()).orElseGet(() -> {
+            pendingRepairs.add(user.getId());
+            return compute(user);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMissingRows() {
+        List<UUID> missing = userStatsRepository.findUserIdsWithoutStats();
+        if (!missing.isEmpty()) {
+            log.info("Building stats rows for {} users", missing.size());
+            missing.forEach(this::rebuild);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.repair-pending-interval-ms:60000}")
+    public void repairPending() {
+        List<UUID> userIds = new ArrayList<>(pendingRepairs);
+        for (UUID userId : userIds) {
+            pendingRepairs.remove(userId);
+            rebuild(userId);
+        }
+    }
+
+    /**
+     * Recomputes every user's counters from scratch.
+     */
+    @Scheduled(cron = "${stats.repair-cron:0 0 4 * * *}")
+    public void rebuildAll() {
+        List<UUID> userIds = newTransaction.execute(status -> userRepository.findAllIds());
+        log.info("Rebuilding stats for {} users", userIds.size());
+        userIds.forEach(this::rebuild);
+    }
+
+    /**
+     * Recomputes one user's row in its own transaction. The row is locked before anything is
+     * read, and the counts run at READ COMMITTED, so a delta committed while the rebuild waited
+     * for the lock is in the counts, and one that comes later waits and is applied on top.
+     * Under MySQL's default REPEATABLE READ an earlier plain read would fix the snapshot before
+     * the lock and lose such deltas.
+     */
+    public void rebuild(UUID userId) {
+        try {
+            rebuildTransaction.executeWithoutResult(status -> {
+                Optional<UserStats> locked = userStatsRepository.findForUpdate(userId);
+                User user = userRepository.findById(userId).orElse(null);
+                if (user == null) {
+                    locked.ifPresent(userStatsRepository::delete);
+                    return;
+                }
+                UserStats stats = locked.orElseGet(() -> new UserStats(userId));
+                UserStats fresh = compute(user);
+                stats.setTotalCases(fresh.getTotalCases());
+                stats.setActiveCases(fresh.getActiveCases());
+                stats.setPendingCases(fresh.getPendingCases());
+                stats.setClosedCases(fresh.getClosedCases());
+                stats.setActiveCaseValue(fresh.getActiveCaseValue());
+                stats.setDocuments(fresh.getDocuments());
+                userStatsRepository.save(stats);
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not rebuild stats for user {}: {}", userId, e.getMessage());
+            pendingRepairs.add(userId);
+        }
+    }
+
+    private UserStats compute(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean lawyer = user.getRole() == User.Role.LAWYER;
+        CaseStatistics statistics = lawyer
+            ? caseRepository.getStatisticsByLawyer(user, now)
+            : caseRepository.getStatisticsByClient(user, now);
+        Long documents = lawyer
+            ? documentRepository.countDocumentsByLawyer(user)
+            : documentRepository.countDocumentsByClient(user);
+
+        UserStats stats = new UserStats(user.getId());
+        stats.setTotalCases(statistics.getTotalCases());
+        stats.setActiveCases(statistics.getActiveCases());
+        stats.setPendingCases(statistics.getPendingCases());
+        stats.setClosedCases(statistics.getClosedCases());
+        stats.setActiveCaseValue(statistics.getActiveCaseValue());
+        stats.setDocuments(documents != null ? documents : 0L);
+        return stats;
+    }
+
+    private void apply(Case caseEntity, Delta delta) {
+        List<UUID> userIds = new ArrayList<>(2);
+        if (caseEntity.getLawyer() != null) {
+            userIds.add(caseEntity.getLawyer().getId());
+        }
+        if (caseEntity.getClient() != null) {
+            userIds.add(caseEntity.getClient().getId());
+        }
+        apply(userIds, delta);
+    }
+
+    private void apply(List<UUID> userIds, Delta delta) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        int updated = userStatsRepository.applyDelta(userIds,
+            delta.totalCases, delta.activeCases, delta.pendingCases, delta.closedCases,
+            delta.activeCaseValue, delta.documents);
+        if (updated < userIds.size()) {
+            // A row is missing; let the repair job create it from the source tables
+            log.warn("Stats row missing for one of {}; scheduling repair", userIds);
+            pendingRepairs.addAll(userIds);
+        }
+    }
+
+    private static final class Delta {
+        private long totalCases;
+        private long activeCases;
+        private long pendingCases;
+        private long closedCases;
+        private double activeCaseValue;
+        private long documents;
+
+        private void countStatus(Case.Status status, int sign, Double caseValue) {
+            if (status == null) {
+                return;
+            }
+            switch (status) {
+                case ACTIVE -> {
+                    activeCases += sign;
+                    activeCaseValue += sign * (caseValue != null ? caseValue : 0.0);
+                }
+                case PENDING -> pendingCases += sign;
+                case CLOSED -> closedCases += sign;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.casemate.pro.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Where document files are kept. Files are addressed by a storage key, which is what
+ * {@code Document.storageKey} holds; keys are lowercase hex content hashes, so
+ * implementations can shard on their leading characters. Which implementation is active
+ * is chosen with {@code documents.storage.type} ({@code local} or {@code s3}).
+ */
+public interface DocumentStorage {
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Stores the file under the key, replacing any object already there. The source is a local
+     * temp file owned by the caller; implementations may move it instead of copying it.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * The stored object for streaming, with its {@code contentLength()} and {@code lastModified()}.
+     *
+     * @throws java.io.FileNotFoundException if nothing is stored under the key
+     */
+    Resource get(String key) throws IOException;
+
+    /**
+     * Deletes the object; deleting a missing key is not an error.
+     */
+    void delete(String key) throws IOException;
+}
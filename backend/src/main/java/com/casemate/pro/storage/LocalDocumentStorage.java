@@ -0,0 +1,76 @@
+package com.casemate.pro.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Files on the local filesystem under {@code documents.storage.local.dir}, sharded two levels
+ * deep by the key's leading characters ({@code ab/cd/abcd...}) so no directory grows past
+ * 65,536 entries per level.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalDocumentStorage implements DocumentStorage {
+
+    private final Path root;
+
+    public LocalDocumentStorage(@Value("${documents.storage.local.dir:${documents.blob-dir:uploads/blobs}}") String dir) {
+        this.root = Paths.get(dir);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(pathOf(key));
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = pathOf(key);
+        Files.createDirectories(target.getParent());
+        // Land next to the target first, so readers never see a partly written file
+        Path temp = target.resolveSibling(key + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.move(source, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Resource get(String key) throws IOException {
+        Path path = pathOf(key);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException("No stored file for " + key);
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(pathOf(key));
+    }
+
+    private Path pathOf(String key) {
+        if (!key.matches("[0-9a-f]{4,}")) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
@@ -0,0 +1,418 @@
+package com.casemate.pro.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Objects in an S3-compatible bucket (AWS S3, MinIO, Ceph and the like), addressed path-style
+ * as {@code <endpoint>/<bucket>/<prefix><key>} and signed with AWS Signature Version 4.
+ * Downloads are streamed, and a read that starts part-way into an object asks the store for
+ * just that range rather than skipping through the bytes before it. Files above
+ * {@code multipart-threshold-bytes} are uploaded in parts, since a single PUT is capped at 5 GB.
+ *
+ * Every request has a timeout: {@code request-timeout-ms} for lookups, deletes and the start
+ * of a download, and {@code transfer-timeout-ms} for each request that carries a file or a part.
+ */
+@Component
+@ConditionalOnProperty(name = "documents.storage.type", havingValue = "s3")
+public class S3DocumentStorage implements DocumentStorage {
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    // S3's limits for multipart uploads
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private final HttpClient httpClient;
+    private final SigV4Signer signer;
+    private final URI endpoint;
+    private final String host;
+    private final String bucket;
+    private final String prefix;
+    private final Duration requestTimeout;
+    private final Duration transferTimeout;
+    private final long multipartThreshold;
+    private final long partSize;
+
+    public S3DocumentStorage(@Value("${documents.storage.s3.endpoint}") String endpoint,
+                             @Value("${documents.storage.s3.bucket}") String bucket,
+                             @Value("${documents.storage.s3.prefix:documents/}") String prefix,
+                             @Value("${documents.storage.s3.region:us-east-1}") String region,
+                             @Value("${documents.storage.s3.access-key}") String accessKey,
+                             @Value("${documents.storage.s3.secret-key}") String secretKey,
+                             @Value("${documents.storage.s3.connect-timeout-ms:5000}") long connectTimeoutMillis,
+                             @Value("${documents.storage.s3.request-timeout-ms:30000}") long requestTimeoutMillis,
+                             @Value("${documents.storage.s3.transfer-timeout-ms:300000}") long transferTimeoutMillis,
+                             @Value("${documents.storage.s3.multipart-threshold-bytes:104857600}") long multipartThreshold,
+                             @Value("${documents.storage.s3.part-size-bytes:67108864}") long partSize) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.host = this.endpoint.getPort() == -1 ? this.endpoint.getHost() : this.endpoint.getHost() + ":" + this.endpoint.getPort();
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.signer = new SigV4Signer(accessKey, secretKey, region, "s3");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.transferTimeout = Duration.ofMillis(transferTimeoutMillis);
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+            .build();
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return head(key) != null;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size > multipartThreshold) {
+            putMultipart(key, source, size);
+        } else {
+            HttpRequest request = signed("PUT", key, Map.of(), HttpRequest.BodyPublishers.ofFile(source), transferTimeout).build();
+            expectSuccess(send(request, HttpResponse.BodyHandlers.ofString()), "Storing " + key);
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public Resource get(String key) throws IOException {
+        ObjectInfo info = head(key);
+        if (info == null) {
+            throw new FileNotFoundException("No stored object for " + key);
+        }
+        return new ObjectResource(key, info);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpRequest request = signed("DELETE", key, Map.of(), HttpRequest.BodyPublishers.noBody(), requestTimeout).build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2 && response.statusCode() != 404) {
+            throw new IOException("Deleting " + key + " failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    /**
+     * Uploads the file in parts of at least {@code part-size-bytes}, then joins them. A failed
+     * upload is aborted, so its parts are not kept (and billed) in the bucket.
+     */
+    private void putMultipart(String key, Path source, long size) throws IOException {
+        HttpRequest start = signed("POST", key, Map.of("uploads", ""), HttpRequest.BodyPublishers.noBody(), requestTimeout).build();
+        HttpResponse<String> started = expectSuccess(send(start, HttpResponse.BodyHandlers.ofString()), "Starting upload of " + key);
+        Matcher uploadIdMatch = UPLOAD_ID.matcher(started.body());
+        if (!uploadIdMatch.find()) {
+            throw new IOException("Starting upload of " + key + " returned no upload id");
+        }
+        String uploadId = uploadIdMatch.group(1);
+
+        try {
+            // Grown for very large files, which would otherwise need more parts than S3 allows
+            long uploadPartSize = Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+            StringBuilder parts = new StringBuilder("<CompleteMultipartUpload>");
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += uploadPartSize, partNumber++) {
+                HttpRequest request = signed("PUT", key, Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId),
+                    filePart(source, offset, Math.min(uploadPartSize, size - offset)), transferTimeout).build();
+                String description = "Storing part " + partNumber + " of " + key;
+                HttpResponse<String> response = expectSuccess(send(request, HttpResponse.BodyHandlers.ofString()), description);
+                String etag = response.headers().firstValue("ETag")
+                    .orElseThrow(() -> new IOException(description + " returned no ETag"));
+                parts.append("<Part><PartNumber>").append(partNumber).append("</PartNumber><ETag>")
+                    .append(etag).append("</ETag></Part>");
+            }
+            parts.append("</CompleteMultipartUpload>");
+
+            HttpRequest complete = signed("POST", key, Map.of("uploadId", uploadId),
+                HttpRequest.BodyPublishers.ofString(parts.toString()), transferTimeout).build();
+            HttpResponse<String> completed = expectSuccess(send(complete, HttpResponse.BodyHandlers.ofString()), "Completing upload of " + key);
+            // A completion that fails after it has started is reported in the body of a 200
+            if (completed.body().contains("<Error>")) {
+                throw new IOException("Completing upload of " + key + " failed: " + completed.body());
+            }
+        } catch (IOException | RuntimeException e) {
+            abortMultipart(key, uploadId, e);
+            throw e;
+        }
+    }
+
+    private void abortMultipart(String key, String uploadId, Exception failure) {
+        try {
+            HttpRequest request = signed("DELETE", key, Map.of("uploadId", uploadId), HttpRequest.BodyPublishers.noBody(), requestTimeout).build();
+            send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    // One part of the file, read from disk as it is sent
+    private static HttpRequest.BodyPublisher filePart(Path source, long offset, long length) {
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                InputStream in = Files.newInputStream(source);
+                in.skipNBytes(offset);
+                return new PartInputStream(in, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return HttpRequest.BodyPublishers.fromPublisher(stream, length);
+    }
+
+    private ObjectInfo head(String key) throws IOException {
+        HttpRequest request = signed("HEAD", key, Map.of(), HttpRequest.BodyPublishers.noBody(), requestTimeout).build();
+        HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Looking up " + key + " failed with HTTP " + response.statusCode());
+        }
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        long lastModified = response.headers().firstValue("Last-Modified")
+            .map(S3DocumentStorage::parseHttpDate)
+            .orElse(0L);
+        return new ObjectInfo(size, lastModified);
+    }
+
+    private InputStream openAt(String key, long offset) throws IOException {
+        // The timeout covers the wait for the response headers, not the streaming of the body
+        HttpRequest.Builder builder = signed("GET", key, Map.of(), HttpRequest.BodyPublishers.noBody(), requestTimeout);
+        if (offset > 0) {
+            builder.header("Range", "bytes=" + offset + "-");
+        }
+        HttpResponse<InputStream> response = send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 != 2) {
+            response.body().close();
+            throw new IOException("Reading " + key + " failed with HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static <T> HttpResponse<T> expectSuccess(HttpResponse<T> response, String action) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(action + " failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while talking to object storage");
+        }
+    }
+
+    private String canonicalPath(String key) {
+        if (!key.matches("[0-9a-f]{4,}")) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        StringBuilder path = new StringBuilder("/").append(SigV4Signer.encode(bucket));
+        for (String segment : (prefix + key).split("/")) {
+            if (!segment.isEmpty()) {
+                path.append('/').append(SigV4Signer.encode(segment));
+            }
+        }
+        return path.toString();
+    }
+
+    /**
+     * A request with the Signature Version 4 headers added. The payload is left unsigned so
+     * files can be streamed without hashing them a second time.
+     */
+    private HttpRequest.Builder signed(String method, String key, Map<String, String> query,
+                                       HttpRequest.BodyPublisher body, Duration timeout) {
+        String path = canonicalPath(key);
+        String queryString = query.isEmpty() ? "" : "?" + SigV4Signer.canonicalQuery(query);
+        String amzDate = ZonedDateTime.now(ZoneOffset.UTC).format(AMZ_DATE);
+        String authorization = signer.authorization(method, path, query, Map.of(
+            "host", host,
+            "x-amz-content-sha256", SigV4Signer.UNSIGNED_PAYLOAD,
+            "x-amz-date", amzDate
+        ), SigV4Signer.UNSIGNED_PAYLOAD);
+
+        return HttpRequest.newBuilder(URI.create(endpoint + path + queryString))
+            .method(method, body)
+            .timeout(timeout)
+            .header("x-amz-date", amzDate)
+            .header("x-amz-content-sha256", SigV4Signer.UNSIGNED_PAYLOAD)
+            .header("Authorization", authorization);
+    }
+
+    private static long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Instant.EPOCH.toEpochMilli();
+        }
+    }
+
+    private record ObjectInfo(long size, long lastModified) {
+    }
+
+    /**
+     * At most {@code length} bytes of the underlying stream.
+     */
+    private static final class PartInputStream extends InputStream {
+
+        private final InputStream in;
+        private long remaining;
+
+        private PartInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * A stored object as a Spring resource. Its stream only sends the GET on the first read,
+     * so bytes skipped before that (a Range request) are never transferred.
+     */
+    private final class ObjectResource extends AbstractResource {
+
+        private final String key;
+        private final ObjectInfo info;
+
+        private ObjectResource(String key, ObjectInfo info) {
+            this.key = key;
+            this.info = info;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return info.size();
+        }
+
+        @Override
+        public long lastModified() {
+            return info.lastModified();
+        }
+
+        @Override
+        public String getDescription() {
+            return "stored object [" + key + "]";
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long position;
+                private InputStream body;
+
+                @Override
+                public int read() throws IOException {
+                    if (!open()) {
+                        return -1;
+                    }
+                    int b = body.read();
+                    if (b >= 0) {
+                        position++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    if (!open()) {
+                        return -1;
+                    }
+                    int read = body.read(buffer, offset, length);
+                    if (read > 0) {
+                        position += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    if (body != null) {
+                        long skipped = body.skip(n);
+                        position += skipped;
+                        return skipped;
+                    }
+                    long skipped = Math.max(0, Math.min(n, info.size() - position));
+                    position += skipped;
+                    return skipped;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (body != null) {
+                        body.close();
+                    }
+                }
+
+                private boolean open() throws IOException {
+                    if (body == null) {
+                        if (position >= info.size()) {
+                            return false;
+                        }
+                        body = openAt(key, position);
+                    }
+                    return true;
+                }
+            };
+        }
+    }
+}
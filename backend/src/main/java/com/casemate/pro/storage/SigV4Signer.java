@@ -0,0 +1,122 @@
+package com.casemate.pro.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * AWS Signature Version 4, for requests that carry the signature in the Authorization header.
+ * Kept apart from the storage client so it can be checked against the published test vectors.
+ */
+final class SigV4Signer {
+
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+    private final String service;
+
+    SigV4Signer(String accessKey, String secretKey, String region, String service) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+        this.service = service;
+    }
+
+    /**
+     * The Authorization header for a request.
+     *
+     * @param path        the request path, already percent-encoded
+     * @param query       query parameters as sent, before encoding; a bare name such as
+     *                    {@code ?uploads} has an empty value
+     * @param headers     the headers to sign, which must include {@code host} and {@code x-amz-date}
+     * @param payloadHash hex SHA-256 of the body, or {@link #UNSIGNED_PAYLOAD}
+     */
+    String authorization(String method, String path, Map<String, String> query,
+                         Map<String, String> headers, String payloadHash) {
+        SortedMap<String, String> canonicalHeaders = new TreeMap<>();
+        headers.forEach((name, value) ->
+            canonicalHeaders.put(name.toLowerCase(Locale.ROOT), value.trim().replaceAll(" +", " ")));
+        String amzDate = canonicalHeaders.get("x-amz-date");
+        if (amzDate == null) {
+            throw new IllegalArgumentException("x-amz-date must be signed");
+        }
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/" + service + "/aws4_request";
+        String signedHeaders = String.join(";", canonicalHeaders.keySet());
+
+        StringBuilder canonicalRequest = new StringBuilder()
+            .append(method).append('\n')
+            .append(path).append('\n')
+            .append(canonicalQuery(query)).append('\n');
+        canonicalHeaders.forEach((name, value) -> canonicalRequest.append(name).append(':').append(value).append('\n'));
+        canonicalRequest.append('\n')
+            .append(signedHeaders).append('\n')
+            .append(payloadHash);
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest.toString());
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, service);
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return ALGORITHM + " Credential=" + accessKey + "/" + scope
+            + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+    }
+
+    /**
+     * Query parameters encoded and joined the way they are signed, so what is sent matches.
+     */
+    static String canonicalQuery(Map<String, String> query) {
+        SortedMap<String, String> encoded = new TreeMap<>();
+        query.forEach((name, value) -> encoded.put(encode(name), encode(value)));
+        return encoded.entrySet().stream()
+            .map(parameter -> parameter.getKey() + "=" + parameter.getValue())
+            .collect(Collectors.joining("&"));
+    }
+
+    // RFC 3986 unreserved characters pass through; everything else is percent-encoded
+    static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static String sha256Hex(String data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
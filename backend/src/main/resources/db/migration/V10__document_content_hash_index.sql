@@ -0,0 +1,2 @@
+-- Documents sharing a blob are found by content hash when their files move into storage.
+CREATE INDEX idx_documents_content_hash ON documents (content_hash);
@@ -0,0 +1,2 @@
+-- Status before the most recent status change, written by the same UPDATE that changes it
+ALTER TABLE cases ADD COLUMN previous_status VARCHAR(50);
@@ -0,0 +1,2 @@
+-- Bumped whenever a user's credentials or role change; tokens carrying an older stamp are rejected.
+ALTER TABLE users ADD COLUMN security_stamp INT DEFAULT 0 NOT NULL;
@@ -0,0 +1,17 @@
+-- Refresh tokens are stored by hash and used once; revoked access tokens are kept until they expire.
+CREATE TABLE refresh_tokens (
+    id         BINARY(16)  NOT NULL,
+    user_id    BINARY(16)  NOT NULL,
+    token_hash VARCHAR(44) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    revoked    BOOLEAN     NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash)
+);
+
+CREATE TABLE revoked_tokens (
+    jti        VARCHAR(36) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (jti)
+);
@@ -0,0 +1,6 @@
+-- Next case number per year; nodes reserve numbers from it a block at a time.
+CREATE TABLE case_number_sequences (
+    sequence_year INT    NOT NULL,
+    next_value    BIGINT NOT NULL,
+    PRIMARY KEY (sequence_year)
+);
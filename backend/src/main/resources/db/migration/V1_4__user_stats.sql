@@ -0,0 +1,12 @@
+-- Per-user case and document counters, kept up to date by the writes that change them.
+CREATE TABLE user_stats (
+    user_id           BINARY(16) NOT NULL,
+    total_cases       BIGINT     NOT NULL,
+    active_cases      BIGINT     NOT NULL,
+    pending_cases     BIGINT     NOT NULL,
+    closed_cases      BIGINT     NOT NULL,
+    active_case_value DOUBLE     NOT NULL,
+    documents         BIGINT     NOT NULL,
+    updated_at        DATETIME(6),
+    PRIMARY KEY (user_id)
+);
@@ -0,0 +1,9 @@
+-- Keyset pagination: equality on the owner, then the sort key and id, so the seek and the
+-- ORDER BY are both served by the index.
+CREATE INDEX idx_users_role_name ON users (role, name, id);
+CREATE INDEX idx_cases_lawyer_updated ON cases (lawyer_id, updated_at, id);
+CREATE INDEX idx_cases_lawyer_title ON cases (lawyer_id, title, id);
+CREATE INDEX idx_cases_lawyer_status ON cases (lawyer_id, status, id);
+CREATE INDEX idx_cases_client_updated ON cases (client_id, updated_at, id);
+CREATE INDEX idx_documents_case_uploaded ON documents (case_id, uploaded_at, id);
+CREATE INDEX idx_documents_uploader_uploaded ON documents (uploaded_by, uploaded_at, id);
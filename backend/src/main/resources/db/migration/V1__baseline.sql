@@ -0,0 +1,64 @@
+-- Schema as previously generated by Hibernate auto-DDL, before any of the later migrations.
+-- Existing databases are baselined at this version instead of running it. Written to run on
+-- MySQL and on H2 in MySQL mode.
+
+CREATE TABLE users (
+    id             BINARY(16)   NOT NULL,
+    email          VARCHAR(255) NOT NULL,
+    password_hash  VARCHAR(255) NOT NULL,
+    name           VARCHAR(255) NOT NULL,
+    role           VARCHAR(32)  NOT NULL,
+    phone          VARCHAR(255),
+    address        VARCHAR(255),
+    age            INT,
+    about_client   TEXT,
+    created_at     DATETIME(6),
+    updated_at     DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE cases (
+    id           BINARY(16)   NOT NULL,
+    case_number  VARCHAR(255) NOT NULL,
+    title        VARCHAR(255) NOT NULL,
+    description  TEXT,
+    status       VARCHAR(32)  NOT NULL,
+    next_hearing DATETIME(6),
+    notes        TEXT,
+    case_value   DOUBLE,
+    created_at   DATETIME(6),
+    updated_at   DATETIME(6),
+    lawyer_id    BINARY(16)   NOT NULL,
+    client_id    BINARY(16)   NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_cases_case_number UNIQUE (case_number),
+    CONSTRAINT fk_cases_lawyer FOREIGN KEY (lawyer_id) REFERENCES users (id),
+    CONSTRAINT fk_cases_client FOREIGN KEY (client_id) REFERENCES users (id)
+);
+
+CREATE TABLE documents (
+    id          BINARY(16)   NOT NULL,
+    name        VARCHAR(255) NOT NULL,
+    file_path   VARCHAR(255) NOT NULL,
+    type        VARCHAR(255) NOT NULL,
+    size        BIGINT       NOT NULL,
+    description VARCHAR(255),
+    category    VARCHAR(32)  NOT NULL,
+    uploaded_at DATETIME(6),
+    case_id     BINARY(16)   NOT NULL,
+    uploaded_by BINARY(16)   NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_documents_case FOREIGN KEY (case_id) REFERENCES cases (id),
+    CONSTRAINT fk_documents_uploaded_by FOREIGN KEY (uploaded_by) REFERENCES users (id)
+);
+
+CREATE TABLE notifications (
+    id         BINARY(16)   NOT NULL,
+    user_id    BINARY(16)   NOT NULL,
+    message    VARCHAR(255) NOT NULL,
+    is_read    BOOLEAN      NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_notifications_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
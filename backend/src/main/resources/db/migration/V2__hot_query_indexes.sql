@@ -0,0 +1,11 @@
+-- Status-filtered case lists ordered by recency: equality on (lawyer_id, status), then the
+-- keyset columns, so the seek and the ORDER BY are both served by the index.
+CREATE INDEX idx_cases_lawyer_status_updated ON cases (lawyer_id, status, updated_at, id);
+
+-- Unread notifications newest first.
+CREATE INDEX idx_notifications_user_read_created ON notifications (user_id, is_read, created_at);
+
+-- Refresh token revocation by user and the expiry purges.
+CREATE INDEX idx_refresh_tokens_user ON refresh_tokens (user_id);
+CREATE INDEX idx_refresh_tokens_expires ON refresh_tokens (expires_at);
+CREATE INDEX idx_revoked_tokens_expires ON revoked_tokens (expires_at);
@@ -0,0 +1,2 @@
+-- Optimistic locking for cases; existing rows start at version 0
+ALTER TABLE cases ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
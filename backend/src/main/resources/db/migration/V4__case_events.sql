@@ -0,0 +1,12 @@
+-- Append-only audit trail for cases. No foreign key to cases: history is kept after a case is deleted.
+CREATE TABLE case_events (
+    id         BINARY(16)  NOT NULL,
+    case_id    BINARY(16)  NOT NULL,
+    actor_id   BINARY(16),
+    type       VARCHAR(32) NOT NULL,
+    details    MEDIUMTEXT,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_case_events_case_created ON case_events (case_id, created_at, id);
@@ -0,0 +1,3 @@
+-- Hearing calendar and upcoming-hearing counts: equality on the participant, range on next_hearing.
+CREATE INDEX idx_cases_lawyer_hearing ON cases (lawyer_id, next_hearing);
+CREATE INDEX idx_cases_client_hearing ON cases (client_id, next_hearing);
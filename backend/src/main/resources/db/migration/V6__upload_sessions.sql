@@ -0,0 +1,26 @@
+-- Resumable chunked uploads. Rows are removed when the upload is committed or abandoned.
+CREATE TABLE upload_sessions (
+    id          BINARY(16)   NOT NULL,
+    case_id     BINARY(16)   NOT NULL,
+    user_id     BINARY(16)   NOT NULL,
+    file_name   VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    category    VARCHAR(32)  NOT NULL,
+    size        BIGINT       NOT NULL,
+    chunk_size  INT          NOT NULL,
+    chunk_count INT          NOT NULL,
+    created_at  DATETIME(6),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_upload_sessions_created ON upload_sessions (created_at);
+
+CREATE TABLE upload_chunks (
+    session_id  BINARY(16)  NOT NULL,
+    chunk_index INT         NOT NULL,
+    size        INT         NOT NULL,
+    sha256      VARCHAR(64) NOT NULL,
+    received_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (session_id, chunk_index),
+    CONSTRAINT fk_upload_chunks_session FOREIGN KEY (session_id) REFERENCES upload_sessions (id)
+);
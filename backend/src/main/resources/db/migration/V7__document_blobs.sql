@@ -0,0 +1,13 @@
+-- Content-addressed document storage: one row per unique file, counted by the documents using it.
+CREATE TABLE document_blobs (
+    sha256     VARCHAR(64) NOT NULL,
+    size       BIGINT      NOT NULL,
+    ref_count  INT         NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (sha256)
+);
+
+CREATE INDEX idx_document_blobs_ref_count ON document_blobs (ref_count);
+
+-- Null for documents stored before this change; those keep their own file.
+ALTER TABLE documents ADD COLUMN content_hash VARCHAR(64);
@@ -0,0 +1,6 @@
+-- Documents address their file by storage key. Existing rows keep file_path until the
+-- background migrator has copied the file into document storage.
+ALTER TABLE documents ADD COLUMN storage_key VARCHAR(255);
+ALTER TABLE documents MODIFY COLUMN file_path VARCHAR(255) NULL;
+
+CREATE INDEX idx_documents_storage_key ON documents (storage_key);
@@ -0,0 +1,96 @@
+package com.casemate.pro.config;
+
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+    "jpa.query-budget.enabled=true",
+    "jpa.query-budget.enforce=true",
+    "jpa.query-budget.max-per-request=5"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(QueryBudget.class)
+class QueryBudgetTest {
+
+    private static final int CASES = 10;
+
+    @Autowired
+    private QueryBudget queryBudget;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User lawyer;
+
+    @BeforeEach
+    void setUp() {
+        lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        // One client per case, so loading them lazily takes a statement each
+        for (int i = 0; i < CASES; i++) {
+            User client = userRepository.save(user("client" + i + "@example.com", User.Role.CLIENT));
+            Case caseEntity = new Case();
+            caseEntity.setCaseNumber("CASE-" + i);
+            caseEntity.setTitle("Case " + i);
+            caseEntity.setLawyer(lawyer);
+            caseEntity.setClient(client);
+            caseRepository.save(caseEntity);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryBudget.end();
+    }
+
+    @Test
+    void lazyLoadingParticipantsPerCaseExceedsTheBudget() {
+        queryBudget.begin("N+1");
+
+        assertThatThrownBy(() -> caseRepository.findAll().forEach(c -> c.getClient().getName()))
+            .hasStackTraceContaining("Query budget of 5 statements exceeded by N+1");
+    }
+
+    @Test
+    void entityGraphLoadsParticipantsInOneStatement() {
+        queryBudget.begin("entity graph");
+
+        List<Case> cases = caseRepository.findRecentCasesByLawyer(lawyer, PageRequest.of(0, CASES));
+        cases.forEach(c -> c.getClient().getName());
+
+        assertThat(cases).hasSize(CASES);
+        assertThat(queryBudget.end()).isEqualTo(1);
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,163 @@
+package com.casemate.pro.controller;
+
+import com.casemate.pro.dto.DocumentDownload;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.service.AuthService;
+import com.casemate.pro.service.DocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Writes download bodies the way Spring MVC does, through the resource message converters, into
+ * a sink that only counts bytes, and checks that heap allocation stays flat however large the file is.
+ */
+class DocumentControllerDownloadTest {
+
+    private static final long FILE_SIZE = 256L * 1024 * 1024;
+    // Far below the file size: the body must be copied through a fixed buffer, not loaded
+    private static final long MAX_ALLOCATED = 16L * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private final UUID documentId = UUID.randomUUID();
+    private DocumentController controller;
+    private FileSystemResource file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path path = dir.resolve("large.bin");
+        // Sparse, so the test does not write 256 MB to disk
+        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
+            raf.setLength(FILE_SIZE);
+        }
+        file = new FileSystemResource(path);
+
+        User user = new User();
+        AuthService authService = mock(AuthService.class);
+        when(authService.getCurrentUser()).thenReturn(user);
+        DocumentService documentService = mock(DocumentService.class);
+        when(documentService.openDownload(eq(documentId), any())).thenAnswer(invocation ->
+            new DocumentDownload("large.bin", file, file.contentLength(), Instant.ofEpochMilli(file.lastModified())));
+        controller = new DocumentController(documentService, authService);
+    }
+
+    @Test
+    void fullDownloadStreamsWithBoundedHeap() throws IOException {
+        ResponseEntity<Resource> response = controller.downloadDocument(documentId, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETags.ofFile(FILE_SIZE, file.lastModified()));
+        assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+
+        CountingOutput output = new CountingOutput();
+        long allocated = allocatedWhile(() ->
+            new ResourceHttpMessageConverter().write(response.getBody(), MediaType.APPLICATION_OCTET_STREAM, output));
+
+        assertThat(output.count).isEqualTo(FILE_SIZE);
+        assertThat(allocated).isLessThan(MAX_ALLOCATED);
+    }
+
+    @Test
+    void rangeDownloadStreamsOnlyTheRangeWithBoundedHeap() throws IOException {
+        ResponseEntity<Resource> response = controller.downloadDocument(documentId, null);
+        long start = FILE_SIZE / 2;
+        List<ResourceRegion> regions = HttpRange.toResourceRegions(
+            HttpRange.parseRanges("bytes=" + start + "-"), response.getBody());
+
+        CountingOutput output = new CountingOutput();
+        long allocated = allocatedWhile(() ->
+            new ResourceRegionHttpMessageConverter().write(regions.get(0), MediaType.APPLICATION_OCTET_STREAM, output));
+
+        assertThat(output.count).isEqualTo(FILE_SIZE - start);
+        assertThat(output.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE))
+            .isEqualTo("bytes " + start + "-" + (FILE_SIZE - 1) + "/" + FILE_SIZE);
+        assertThat(allocated).isLessThan(MAX_ALLOCATED);
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeFileAsAPlainStream() throws IOException {
+        ResponseEntity<Resource> response = controller.downloadDocument(documentId, "\"stale\"");
+
+        // A stream body cannot be split into regions, so Spring ignores the Range header
+        assertThat(response.getBody()).isInstanceOf(InputStreamResource.class);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(FILE_SIZE);
+
+        CountingOutput output = new CountingOutput();
+        long allocated = allocatedWhile(() ->
+            new ResourceHttpMessageConverter().write(response.getBody(), MediaType.APPLICATION_OCTET_STREAM, output));
+
+        assertThat(output.count).isEqualTo(FILE_SIZE);
+        assertThat(allocated).isLessThan(MAX_ALLOCATED);
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static long allocatedWhile(IoAction action) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        action.run();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * A response body that discards what is written and counts it.
+     */
+    private static final class CountingOutput implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private long count;
+
+        private final OutputStream body = new OutputStream() {
+            @Override
+            public void write(int b) {
+                count++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                count += len;
+            }
+        };
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.casemate.pro.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ETagsTest {
+
+    private static final long MODIFIED = Instant.parse("2025-03-01T10:15:30.250Z").toEpochMilli();
+
+    @Test
+    void tagsAreQuotedStrongTags() {
+        assertThat(ETags.of(7)).isEqualTo("\"v7\"");
+        assertThat(ETags.ofFile(255, 4096)).isEqualTo("\"ff-1000\"");
+        assertThat(ETags.ofContent("feed".getBytes(StandardCharsets.UTF_8)))
+            .startsWith("\"").endsWith("\"")
+            .isEqualTo(ETags.ofContent("feed".getBytes(StandardCharsets.UTF_8)))
+            .isNotEqualTo(ETags.ofContent("other".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        String etag = ETags.of(3);
+
+        assertThat(ETags.noneMatchHits(null, etag)).isFalse();
+        assertThat(ETags.noneMatchHits("\"v3\"", etag)).isTrue();
+        assertThat(ETags.noneMatchHits("W/\"v3\"", etag)).isTrue();
+        assertThat(ETags.noneMatchHits("\"v1\", \"v3\"", etag)).isTrue();
+        assertThat(ETags.noneMatchHits("*", etag)).isTrue();
+        assertThat(ETags.noneMatchHits("\"v2\"", etag)).isFalse();
+    }
+
+    @Test
+    void ifMatchAcceptsAnyVersionWithoutAHeaderOrWithAStar() {
+        assertThat(ETags.ifMatchVersions(null)).isNull();
+        assertThat(ETags.ifMatchVersions(" ")).isNull();
+        assertThat(ETags.ifMatchVersions(" * ")).isNull();
+    }
+
+    @Test
+    void ifMatchCollectsStrongVersionTags() {
+        assertThat(ETags.ifMatchVersions("\"v1\", \"v12\"")).containsExactlyInAnyOrder(1L, 12L);
+    }
+
+    @Test
+    void ifMatchIgnoresWeakAndForeignTags() {
+        assertThat(ETags.ifMatchVersions("W/\"v1\", \"abc\", \"vx\", \"v\"")).isEmpty();
+        assertThat(ETags.ifMatchVersions("W/\"v1\", \"v2\"")).containsExactly(2L);
+    }
+
+    @Test
+    void ifRangeHoldsWithoutAHeaderOrForTheCurrentTag() {
+        String etag = ETags.ofFile(10, MODIFIED);
+
+        assertThat(ETags.ifRangeHolds(null, etag, MODIFIED)).isTrue();
+        assertThat(ETags.ifRangeHolds(etag, etag, MODIFIED)).isTrue();
+        assertThat(ETags.ifRangeHolds(ETags.ofFile(11, MODIFIED), etag, MODIFIED)).isFalse();
+    }
+
+    @Test
+    void ifRangeNeverMatchesAWeakTag() {
+        String etag = ETags.ofFile(10, MODIFIED);
+
+        assertThat(ETags.ifRangeHolds("W/" + etag, etag, MODIFIED)).isFalse();
+    }
+
+    @Test
+    void ifRangeDateMustEqualTheModificationSecond() {
+        String etag = ETags.ofFile(10, MODIFIED);
+
+        assertThat(ETags.ifRangeHolds(httpDate(MODIFIED), etag, MODIFIED)).isTrue();
+        assertThat(ETags.ifRangeHolds(httpDate(MODIFIED - 1000), etag, MODIFIED)).isFalse();
+        assertThat(ETags.ifRangeHolds("yesterday", etag, MODIFIED)).isFalse();
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,83 @@
+package com.casemate.pro.controller;
+
+import com.casemate.pro.entity.User;
+import com.casemate.pro.security.CalendarFeedTokens;
+import com.casemate.pro.service.AuthService;
+import com.casemate.pro.service.HearingService;
+import com.casemate.pro.service.UserCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class HearingControllerTest {
+
+    private static final byte[] FEED = "BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n".getBytes(StandardCharsets.UTF_8);
+
+    private final HearingService hearingService = mock(HearingService.class);
+    private final CalendarFeedTokens calendarFeedTokens = mock(CalendarFeedTokens.class);
+    private final UserCache userCache = mock(UserCache.class);
+    private HearingController controller;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        when(calendarFeedTokens.verify(any())).thenReturn(Optional.empty());
+        when(calendarFeedTokens.verify("valid")).thenReturn(Optional.of(user.getId()));
+        when(userCache.findById(user.getId())).thenReturn(Optional.of(user));
+        when(hearingService.getCalendarFeed(user)).thenReturn(FEED);
+        controller = new HearingController(hearingService, mock(AuthService.class), calendarFeedTokens, userCache);
+    }
+
+    @Test
+    void feedIsSentWithAContentTag() {
+        ResponseEntity<byte[]> response = controller.getCalendarFeed("valid", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETags.ofContent(FEED));
+        assertThat(response.getHeaders().getContentType()).hasToString("text/calendar;charset=UTF-8");
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache, private");
+        assertThat(response.getBody()).isEqualTo(FEED);
+    }
+
+    @Test
+    void unchangedFeedGetsNotModifiedWithoutABody() {
+        String etag = ETags.ofContent(FEED);
+
+        for (String ifNoneMatch : new String[] {etag, "W/" + etag, "\"older\", " + etag, "*"}) {
+            ResponseEntity<byte[]> response = controller.getCalendarFeed("valid", ifNoneMatch);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+            assertThat(response.getBody()).isNull();
+        }
+    }
+
+    @Test
+    void changedFeedIsSentAgain() {
+        ResponseEntity<byte[]> response = controller.getCalendarFeed("valid", "\"older\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(FEED);
+    }
+
+    @Test
+    void invalidTokenGetsNotFoundAndRendersNothing() {
+        ResponseEntity<byte[]> response = controller.getCalendarFeed("forged", ETags.ofContent(FEED));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(response.getHeaders().getETag()).isNull();
+        verifyNoInteractions(hearingService);
+    }
+}
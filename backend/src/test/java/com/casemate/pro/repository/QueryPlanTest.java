@@ -0,0 +1,279 @@
+package com.casemate.pro.repository;
+
+import com.casemate.pro.dto.CaseSummary;
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.service.PageCursor;
+import com.casemate.pro.service.PaginationSupport;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN on the SQL Hibernate generates for the hot repository queries and fails on any
+ * full table scan, so a dropped or mis-ordered index shows up here instead of under load. Keyset
+ * pages are also checked for OFFSET and for a deep page costing about as much as the first.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(QueryPlanTest.SqlCapture.class)
+class QueryPlanTest {
+
+    /**
+     * Records every statement Hibernate prepares.
+     */
+    static class SqlCapture implements StatementInspector, HibernatePropertiesCustomizer {
+
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void customize(Map<String, Object> hibernateProperties) {
+            hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    private static final PageRequest PAGE = PageRequest.of(0, 20);
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @Autowired
+    private SqlCapture sqlCapture;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private User lawyer;
+    private User client;
+    private Case caseEntity;
+
+    @BeforeEach
+    void setUp() {
+        lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        caseEntity = new Case();
+        caseEntity.setCaseNumber("CASE-1");
+        caseEntity.setTitle("Case 1");
+        caseEntity.setLawyer(lawyer);
+        caseEntity.setClient(client);
+        caseRepository.save(caseEntity);
+        entityManager.flush();
+        entityManager.clear();
+        sqlCapture.statements.clear();
+    }
+
+    @Test
+    void caseListsUseAnIndex() {
+        assertIndexed(() -> caseRepository.findPageByLawyerRecent(lawyer, null, null, null, PAGE));
+        assertIndexed(() -> caseRepository.findPageByLawyerRecent(lawyer, Case.Status.ACTIVE, NOW, UUID.randomUUID(), PAGE));
+        assertIndexed(() -> caseRepository.findPageByLawyerTitle(lawyer, null, "Case", UUID.randomUUID(), PAGE));
+        assertIndexed(() -> caseRepository.findPageByLawyerStatus(lawyer, null, Case.Status.ACTIVE, UUID.randomUUID(), PAGE));
+        assertIndexed(() -> caseRepository.findPageByClientRecent(client, NOW, UUID.randomUUID(), PAGE));
+        assertIndexed(() -> caseRepository.findRecentCasesByLawyer(lawyer, PageRequest.of(0, 4)));
+    }
+
+    @Test
+    void caseAggregatesUseAnIndex() {
+        assertIndexed(() -> caseRepository.getStatisticsByLawyer(lawyer, NOW));
+        assertIndexed(() -> caseRepository.getStatisticsByClient(client, NOW));
+        assertIndexed(() -> caseRepository.getMonthlyRevenueByLawyer(lawyer, NOW.minusYears(1), NOW));
+        assertIndexed(() -> caseRepository.countUpcomingHearingsByClient(client, NOW));
+    }
+
+    @Test
+    void hearingCalendarsUseAnIndex() {
+        assertIndexed(() -> caseRepository.findHearingsByLawyer(lawyer, NOW, NOW.plusMonths(1), PAGE));
+        assertIndexed(() -> caseRepository.findHearingsByClient(client, NOW, NOW.plusMonths(1), PAGE));
+    }
+
+    @Test
+    void documentAndClientListsUseAnIndex() {
+        assertIndexed(() -> documentRepository.findPageByCase(caseEntity, NOW, UUID.randomUUID(), PAGE));
+        assertIndexed(() -> documentRepository.findPageByUploader(lawyer, NOW, UUID.randomUUID(), PAGE));
+        assertIndexed(() -> documentRepository.countByContentHash("ab12"));
+        assertIndexed(() -> userRepository.findClientPage(null, "a", UUID.randomUUID(), PAGE));
+        assertIndexed(() -> notificationRepository.findByUserAndIsReadFalseOrderByCreatedAtDesc(lawyer));
+    }
+
+    @Test
+    void tokenPurgesUseAnIndex() {
+        assertIndexed(() -> refreshTokenRepository.revokeAllByUserId(lawyer.getId()));
+        assertIndexed(() -> refreshTokenRepository.deleteExpired(NOW));
+        assertIndexed(() -> revokedTokenRepository.deleteExpired(NOW));
+    }
+
+    @Test
+    void keysetPagesNeverSkipRows() {
+        // A cursor takes precedence over a legacy page number
+        Pageable request = new PaginationSupport().request(new PageCursor("recent", UUID.randomUUID(), NOW.toString()), 7, 20);
+        UUID afterId = UUID.randomUUID();
+
+        assertNoOffset(() -> caseRepository.findPageByLawyerRecent(lawyer, null, NOW, afterId, request));
+        assertNoOffset(() -> caseRepository.findPageByLawyerTitle(lawyer, null, "Case", afterId, request));
+        assertNoOffset(() -> caseRepository.findPageByLawyerStatus(lawyer, null, Case.Status.ACTIVE, afterId, request));
+        assertNoOffset(() -> caseRepository.findPageByClientRecent(client, NOW, afterId, request));
+        assertNoOffset(() -> documentRepository.findPageByCase(caseEntity, NOW, afterId, request));
+        assertNoOffset(() -> documentRepository.findPageByUploader(lawyer, NOW, afterId, request));
+        assertNoOffset(() -> userRepository.findClientPage(null, "a", afterId, request));
+    }
+
+    @Test
+    void page500CostsAboutTheSameAsPage1() {
+        int pageSize = 20;
+        List<Case> cases = new ArrayList<>();
+        List<Object[]> timestamps = new ArrayList<>();
+        for (int i = 0; i < 500 * pageSize; i++) {
+            Case row = new Case();
+            row.setCaseNumber("DEEP-" + i);
+            row.setTitle("Deep " + i);
+            row.setLawyer(lawyer);
+            row.setClient(client);
+            cases.add(row);
+            timestamps.add(new Object[] {NOW.minusMinutes(i), row.getCaseNumber()});
+            if (cases.size() == 500) {
+                caseRepository.saveAll(cases);
+                entityManager.flush();
+                entityManager.clear();
+                cases.clear();
+            }
+        }
+        // Spread the rows out in time; saved together they would share a handful of timestamps
+        jdbcTemplate.batchUpdate("UPDATE cases SET updated_at = ? WHERE case_number = ?", timestamps);
+        // The last row of page 499 is where a client walking the cursors would be
+        List<CaseSummary> page499 = caseRepository.findPageByLawyerRecent(lawyer, null, null, null, PageRequest.of(498, pageSize));
+        CaseSummary last = page499.get(page499.size() - 1);
+        Pageable seek = PageRequest.of(0, pageSize + 1);
+
+        long first = medianNanos(() -> caseRepository.findPageByLawyerRecent(lawyer, null, null, null, seek));
+        long deep = medianNanos(() -> caseRepository.findPageByLawyerRecent(lawyer, null, last.getUpdatedAt(), last.getId(), seek));
+
+        assertThat(caseRepository.findPageByLawyerRecent(lawyer, null, last.getUpdatedAt(), last.getId(), seek))
+            .hasSize(pageSize + 1);
+        // An offset page would read and discard the 9,980 rows before it
+        assertThat(deep).isLessThan(first * 4 + 1_000_000);
+    }
+
+    private long medianNanos(Runnable query) {
+        long[] samples = new long[21];
+        for (int i = 0; i < samples.length; i++) {
+            entityManager.clear();
+            long started = System.nanoTime();
+            query.run();
+            samples[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    /**
+     * Runs the repository call, then EXPLAINs each statement it prepared.
+     */
+    private void assertIndexed(Runnable repositoryCall) {
+        for (Map.Entry<String, String> plan : plans(repositoryCall).entrySet()) {
+            // H2 returns the rewritten statement with the chosen access path in a comment
+            assertThat(plan.getValue()).as("plan of %s", plan.getKey()).doesNotContain(".tableScan");
+        }
+    }
+
+    private void assertNoOffset(Runnable repositoryCall) {
+        for (Map.Entry<String, String> plan : plans(repositoryCall).entrySet()) {
+            assertThat(plan.getKey().toLowerCase(Locale.ROOT)).doesNotContain("offset");
+            assertThat(plan.getValue().toLowerCase(Locale.ROOT)).as("plan of %s", plan.getKey()).doesNotContain("offset");
+        }
+    }
+
+    // Each statement the call prepared, with its plan
+    private Map<String, String> plans(Runnable repositoryCall) {
+        sqlCapture.statements.clear();
+        repositoryCall.run();
+        List<String> statements = new ArrayList<>(sqlCapture.statements);
+
+        assertThat(statements).isNotEmpty();
+        Map<String, String> plans = new LinkedHashMap<>();
+        for (String sql : statements) {
+            plans.put(sql, explain(sql));
+        }
+        return plans;
+    }
+
+    private String explain(String sql) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            // The plan is chosen when the statement is prepared; the values only need to be set
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setObject(i, null);
+            }
+            try (ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not explain " + sql, e);
+        }
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,206 @@
+package com.casemate.pro.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvertedIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    private final UUID lawyer = UUID.randomUUID();
+    private final UUID otherLawyer = UUID.randomUUID();
+    private final UUID client = UUID.randomUUID();
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        UUID lease = add(lawyer, "Lease dispute", "Tenant withheld rent", T0);
+        add(lawyer, "Lease renewal", "Landlord wants higher rent", T0);
+
+        assertThat(ids(search("lease tenant", lawyer, true))).containsExactly(lease);
+        assertThat(search("lease probate", lawyer, true)).isEmpty();
+    }
+
+    @Test
+    void onlyReturnsTheCallersCases() {
+        UUID own = add(lawyer, "Contract breach", null, T0);
+        add(otherLawyer, "Contract breach", null, T0);
+
+        assertThat(ids(search("contract", lawyer, true))).containsExactly(own);
+        assertThat(ids(search("contract", client, false))).hasSize(2);
+        assertThat(search("contract", UUID.randomUUID(), true)).isEmpty();
+    }
+
+    @Test
+    void ownerWithFewCasesProbesACommonTermsPostings() {
+        for (int i = 0; i < 500; i++) {
+            add(otherLawyer, "Contract review " + i, null, T0);
+        }
+        UUID first = add(lawyer, "Contract breach", null, T0);
+        UUID second = add(lawyer, "Supply contract", null, T0);
+        add(lawyer, "Probate", null, T0);
+
+        assertThat(ids(search("contract", lawyer, true))).containsExactlyInAnyOrder(first, second);
+        assertThat(search("contract", otherLawyer, true)).hasSize(10);
+    }
+
+    @Test
+    void ownerWithManyCasesWalksARareTermsPostings() {
+        UUID rare = add(otherLawyer, "Maritime salvage", null, T0);
+        for (int i = 0; i < 500; i++) {
+            add(otherLawyer, "Contract review " + i, null, T0);
+        }
+        add(lawyer, "Salvage rights", null, T0);
+
+        assertThat(ids(search("salvage", otherLawyer, true))).containsExactly(rare);
+    }
+
+    @Test
+    void ownerListsFollowCompactionAndSnapshots() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            add(otherLawyer, "Lease " + i, null, T0);
+        }
+        UUID removed = add(lawyer, "Lease arrears", null, T0);
+        UUID kept = add(lawyer, "Lease renewal", null, T0);
+        index.remove(removed);
+        index.compact();
+
+        assertThat(ids(search("lease", lawyer, true))).containsExactly(kept);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        index = InvertedIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(ids(search("lease", lawyer, true))).containsExactly(kept);
+        assertThat(search("lease", lawyer, false)).isEmpty();
+    }
+
+    @Test
+    void prefixTermsMatchLongerTerms() {
+        UUID probate = add(lawyer, "Probate of estate", null, T0);
+
+        assertThat(ids(search("prob", lawyer, true))).containsExactly(probate);
+        assertThat(search("prob", lawyer, true, false)).isEmpty();
+    }
+
+    @Test
+    void titleMatchesRankAboveDescriptionMatches() {
+        UUID inDescription = add(lawyer, "Dispute", "Concerns an easement over the yard", T0);
+        UUID inTitle = add(lawyer, "Easement dispute", "Neighbours disagree over access", T0);
+
+        assertThat(ids(search("easement", lawyer, true))).containsExactly(inTitle, inDescription);
+    }
+
+    @Test
+    void limitKeepsTheBestHits() {
+        add(lawyer, "Merger", "Merger of two firms", T0);
+        UUID best = add(lawyer, "Merger merger", "Merger", T0);
+
+        assertThat(ids(index.search(List.of(new InvertedIndex.QueryTerm("merger", false)), lawyer, true, 1, 50)))
+            .containsExactly(best);
+    }
+
+    @Test
+    void olderVersionDoesNotReplaceNewerOne() {
+        UUID id = UUID.randomUUID();
+        assertThat(index.add(new IndexedCase(id, lawyer, client, "CS-1", "Custody hearing", null, null, T0.plusHours(1))))
+            .isTrue();
+
+        assertThat(index.add(new IndexedCase(id, lawyer, client, "CS-1", "Divorce", null, null, T0))).isFalse();
+        assertThat(ids(search("custody", lawyer, true))).containsExactly(id);
+        assertThat(search("divorce", lawyer, true)).isEmpty();
+    }
+
+    @Test
+    void newerVersionReplacesTheOldTerms() {
+        UUID id = add(lawyer, "Custody hearing", null, T0);
+        index.add(new IndexedCase(id, lawyer, client, "CS-1", "Divorce", null, null, T0.plusHours(1)));
+
+        assertThat(search("custody", lawyer, true)).isEmpty();
+        assertThat(ids(search("divorce", lawyer, true))).containsExactly(id);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removedCasesDisappearAndCompactionKeepsTheRest() {
+        UUID removed = add(lawyer, "Patent claim", null, T0);
+        UUID kept = add(lawyer, "Patent licence", null, T0);
+
+        assertThat(index.remove(removed)).isTrue();
+        assertThat(index.remove(removed)).isFalse();
+        assertThat(ids(search("patent", lawyer, true))).containsExactly(kept);
+
+        assertThat(index.hasTombstones()).isTrue();
+        index.compact();
+        assertThat(index.hasTombstones()).isFalse();
+        assertThat(ids(search("patent", lawyer, true))).containsExactly(kept);
+        assertThat(index.caseIds()).containsExactly(kept);
+    }
+
+    @Test
+    void snapshotRoundTripsTheIndex() throws IOException {
+        add(lawyer, "Insurance claim", "Flood damage to warehouse", T0);
+        add(lawyer, "Insurance appeal", "Denied claim for fire damage", T0);
+        add(otherLawyer, "Insurance audit", null, T0);
+        List<SearchHit> before = search("insurance dam", lawyer, true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        InvertedIndex restored = InvertedIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.size()).isEqualTo(3);
+        assertThat(restored.search(List.of(new InvertedIndex.QueryTerm("insurance", false),
+            new InvertedIndex.QueryTerm("dam", true)), lawyer, true, 10, 50)).isEqualTo(before);
+    }
+
+    @Test
+    void unrecognisedSnapshotIsRejected() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        assertThatThrownBy(() -> InvertedIndex.readFrom(new DataInputStream(new ByteArrayInputStream(garbage))))
+            .isInstanceOf(IOException.class);
+    }
+
+    private UUID add(UUID lawyerId, String title, String description, LocalDateTime updatedAt) {
+        UUID id = UUID.randomUUID();
+        index.add(new IndexedCase(id, lawyerId, client, "CS-2025-" + index.size(), title, description, null, updatedAt));
+        return id;
+    }
+
+    private List<SearchHit> search(String query, UUID userId, boolean asLawyer) {
+        return search(query, userId, asLawyer, true);
+    }
+
+    // Every term is exact except the last, which is a prefix when lastIsPrefix is set
+    private List<SearchHit> search(String query, UUID userId, boolean asLawyer, boolean lastIsPrefix) {
+        String[] words = query.split(" ");
+        List<InvertedIndex.QueryTerm> terms = new ArrayList<>();
+        for (int i = 0; i < words.length; i++) {
+            terms.add(new InvertedIndex.QueryTerm(words[i], lastIsPrefix && i == words.length - 1));
+        }
+        return index.search(terms, userId, asLawyer, 10, 50);
+    }
+
+    private static List<UUID> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::caseId).toList();
+    }
+}
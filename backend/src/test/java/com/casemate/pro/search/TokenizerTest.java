@@ -0,0 +1,34 @@
+package com.casemate.pro.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenizerTest {
+
+    @Test
+    void lowerCasesAndFoldsAccents() {
+        assertThat(Tokenizer.tokenize("Caf\u00e9 M\u00dcLLER")).containsExactly("cafe", "muller");
+    }
+
+    @Test
+    void dropsStopWordsAndSingleLetters() {
+        assertThat(Tokenizer.tokenize("The estate of a man")).containsExactly("estate", "man");
+    }
+
+    @Test
+    void splitsCaseNumbersAndKeepsShortNumbers() {
+        assertThat(Tokenizer.tokenize("CS-2025-001 part 7")).containsExactly("cs", "2025", "001", "part", "7");
+    }
+
+    @Test
+    void truncatesLongTerms() {
+        assertThat(Tokenizer.tokenize("x".repeat(100))).containsExactly("x".repeat(Tokenizer.MAX_TERM_LENGTH));
+    }
+
+    @Test
+    void emptyInputHasNoTerms() {
+        assertThat(Tokenizer.tokenize(null)).isEmpty();
+        assertThat(Tokenizer.tokenize(" -- ")).isEmpty();
+    }
+}
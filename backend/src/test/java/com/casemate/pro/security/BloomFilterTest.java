@@ -0,0 +1,62 @@
+package com.casemate.pro.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedValue() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<String> added = randomIds(10_000);
+        added.forEach(filter::add);
+
+        assertThat(added).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        randomIds(10_000).forEach(filter::add);
+
+        long falsePositives = randomIds(100_000).stream().filter(filter::mightContain).count();
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            batches.add(randomIds(10_000));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (List<String> batch : batches) {
+            pool.submit(() -> batch.forEach(filter::add));
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        for (List<String> batch : batches) {
+            assertThat(batch).allMatch(filter::mightContain);
+        }
+    }
+
+    private static List<String> randomIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return ids;
+    }
+}
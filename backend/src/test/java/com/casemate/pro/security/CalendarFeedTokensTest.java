@@ -0,0 +1,72 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CalendarFeedTokensTest {
+
+    private final SecurityStampRegistry securityStampRegistry = mock(SecurityStampRegistry.class);
+    private final User user = new User();
+    private CalendarFeedTokens tokens;
+
+    @BeforeEach
+    void setUp() {
+        user.setId(UUID.randomUUID());
+        tokens = tokens("secret");
+        when(securityStampRegistry.isCurrent(eq(user.getId()), anyInt()))
+            .thenAnswer(invocation -> (int) invocation.getArgument(1) >= user.getSecurityStamp());
+    }
+
+    @Test
+    void issuedTokenVerifiesToItsUser() {
+        assertThat(tokens.verify(tokens.issue(user))).contains(user.getId());
+    }
+
+    @Test
+    void tokenStopsWorkingWhenTheStampChanges() {
+        String token = tokens.issue(user);
+
+        user.rotateSecurityStamp();
+
+        assertThat(tokens.verify(token)).isEmpty();
+        assertThat(tokens.verify(tokens.issue(user))).contains(user.getId());
+    }
+
+    @Test
+    void tamperedTokensAreRejectedWithoutALookup() {
+        byte[] raw = Base64.getUrlDecoder().decode(tokens.issue(user));
+        // Someone else's id with the original signature
+        raw[0] ^= 1;
+        String otherUser = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+
+        assertThat(tokens.verify(otherUser)).isEmpty();
+        assertThat(tokens.verify(tokens.issue(user).substring(1))).isEmpty();
+        assertThat(tokens.verify("not a token")).isEmpty();
+        assertThat(tokens.verify("")).isEmpty();
+        verifyNoInteractions(securityStampRegistry);
+    }
+
+    @Test
+    void tokensFromAnotherSecretAreRejected() {
+        assertThat(tokens.verify(tokens("other-secret").issue(user))).isEmpty();
+        verifyNoInteractions(securityStampRegistry);
+    }
+
+    private CalendarFeedTokens tokens(String secret) {
+        CalendarFeedTokens feedTokens = new CalendarFeedTokens(securityStampRegistry);
+        ReflectionTestUtils.setField(feedTokens, "jwtSecret", secret);
+        return feedTokens;
+    }
+}
@@ -0,0 +1,224 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.entity.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTest {
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "test-secret-that-is-long-enough-for-hmac-sha-256");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 2);
+        jwtUtils.init();
+    }
+
+    @Test
+    void parsesTokenAndServesRepeatsFromCache() {
+        String token = issue("a@example.com");
+
+        Claims first = jwtUtils.verifyAndParse(token);
+        Claims second = jwtUtils.verifyAndParse(token);
+
+        assertThat(first.getSubject()).isEqualTo("a@example.com");
+        assertThat(second.getSubject()).isEqualTo("a@example.com");
+        assertThat(cache()).hasSize(1);
+    }
+
+    @Test
+    void callersCannotChangeCachedClaims() {
+        String token = issue("a@example.com");
+        jwtUtils.verifyAndParse(token);
+
+        Claims hit = jwtUtils.verifyAndParse(token);
+        hit.setSubject("mallory@example.com");
+
+        assertThat(jwtUtils.verifyAndParse(token)).isNotSameAs(hit);
+        assertThat(jwtUtils.verifyAndParse(token).getSubject()).isEqualTo("a@example.com");
+    }
+
+    @Test
+    void rejectsOtherPayloadCarryingACachedSignature() {
+        String token = issue("a@example.com");
+        jwtUtils.verifyAndParse(token);
+
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + issue("b@example.com").split("\\.")[1] + "." + parts[2];
+
+        assertThat(jwtUtils.verifyAndParse(forged)).isNull();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedTokenWhenFull() {
+        String a = issue("a@example.com");
+        String b = issue("b@example.com");
+        String c = issue("c@example.com");
+
+        jwtUtils.verifyAndParse(a);
+        jwtUtils.verifyAndParse(b);
+        jwtUtils.verifyAndParse(a);
+        jwtUtils.verifyAndParse(c);
+
+        assertThat(cache()).hasSize(2)
+            .containsKeys(signatureOf(a), signatureOf(c))
+            .doesNotContainKey(signatureOf(b));
+    }
+
+    @Test
+    void lookupsAndInsertsDoNotWaitForAnEvictingThread() throws Exception {
+        String cached = issue("a@example.com");
+        jwtUtils.verifyAndParse(cached);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread evictor = new Thread(() -> {
+            ReentrantLock lock = (ReentrantLock) ReflectionTestUtils.getField(jwtUtils, "evictionLock");
+            lock.lock();
+            try {
+                held.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        evictor.start();
+        assertThat(held.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Integer> work = executor.submit(() -> {
+                    assertThat(jwtUtils.verifyAndParse(cached).getSubject()).isEqualTo("a@example.com");
+                    for (int i = 0; i < 5; i++) {
+                        assertThat(jwtUtils.verifyAndParse(issue("u" + i + "@example.com"))).isNotNull();
+                    }
+                    return cache().size();
+                });
+                // Over the bound while eviction is held elsewhere, but nothing blocked
+                assertThat(work.get(5, TimeUnit.SECONDS)).isEqualTo(6);
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            release.countDown();
+            evictor.join();
+        }
+
+        jwtUtils.verifyAndParse(issue("b@example.com"));
+        assertThat(cache()).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void concurrentCallersGetTheirOwnClaimsAndTheCacheStaysBounded() throws Exception {
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 64);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tokens.add(issue("user" + i + "@example.com"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> work = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                work.add(executor.submit(() -> {
+                    for (int n = 0; n < 2000; n++) {
+                        int i = ThreadLocalRandom.current().nextInt(tokens.size());
+                        assertThat(jwtUtils.verifyAndParse(tokens.get(i)).getSubject()).isEqualTo("user" + i + "@example.com");
+                    }
+                }));
+            }
+            for (Future<?> future : work) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // A thread that skipped eviction can leave one extra entry per writer
+        assertThat(cache().size()).isLessThanOrEqualTo(64 + 8);
+    }
+
+    @Test
+    void cachedTokensAreAnsweredFasterThanTheyAreVerified() {
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 10_000);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tokens.add(issue("user" + i + "@example.com"));
+        }
+
+        long verifying = time(tokens);
+        long cached = time(tokens);
+
+        assertThat(cached).isLessThan(verifying / 2);
+    }
+
+    @Test
+    void principalTrustsOnlyStampGuardedClaims() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("a@example.com");
+        user.setName("Old Name");
+        user.setRole(User.Role.LAWYER);
+        String token = jwtUtils.generateTokenForPrincipal(UserPrincipal.create(user));
+
+        Claims claims = jwtUtils.verifyAndParse(token);
+        UserPrincipal principal = jwtUtils.toPrincipal(claims);
+
+        // A rename keeps the stamp, so the token must not vouch for the name
+        assertThat(claims).doesNotContainKey("name");
+        assertThat(principal.getName()).isNull();
+        assertThat(principal.getId()).isEqualTo(user.getId());
+        assertThat(principal.getEmail()).isEqualTo("a@example.com");
+        assertThat(principal.getRole()).isEqualTo(User.Role.LAWYER);
+        assertThat(principal.getSecurityStamp()).isEqualTo(user.getSecurityStamp());
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThat(jwtUtils.verifyAndParse("not.a.token")).isNull();
+        assertThat(jwtUtils.verifyAndParse("")).isNull();
+        assertThat(cache()).isEmpty();
+    }
+
+    private String issue(String email) {
+        return jwtUtils.generateTokenForPrincipal(
+            UserPrincipal.fromClaims(UUID.randomUUID(), email, User.Role.CLIENT, 0));
+    }
+
+    private long time(List<String> tokens) {
+        long started = System.nanoTime();
+        for (String token : tokens) {
+            assertThat(jwtUtils.verifyAndParse(token)).isNotNull();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private Map<?, ?> cache() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(jwtUtils, "verifiedTokens");
+    }
+
+    private static String signatureOf(String token) {
+        return token.substring(token.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,165 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hasher.shutdown();
+    }
+
+    @Test
+    void hashesAndVerifiesOnThePool() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(4), 2, 4, 5000);
+
+        String hash = hasher.encode("secret");
+
+        assertThat(hasher.matches("secret", hash)).isTrue();
+        assertThat(hasher.matches("wrong", hash)).isFalse();
+        assertThat(hasher.matches("secret", null)).isFalse();
+    }
+
+    @Test
+    void flagsHashesBelowTheConfiguredCost() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(6), 1, 1, 5000);
+
+        assertThat(hasher.needsRehash(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+        assertThat(hasher.needsRehash(hasher.encode("secret"))).isFalse();
+    }
+
+    @Test
+    void rejectsImmediatelyWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        hasher = new PasswordHasher(blockingEncoder(started), 1, 1, 5000);
+
+        // One hash running on the single worker and one waiting in the single queue slot
+        CompletableFuture.runAsync(() -> hasher.encode("running"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture.runAsync(() -> hasher.encode("queued"));
+        Thread.sleep(100);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> hasher.encode("rejected"))
+            .isInstanceOf(ServiceOverloadedException.class)
+            .extracting(e -> ((ServiceOverloadedException) e).getRetryAfterSeconds())
+            .isEqualTo(1);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+    }
+
+    @Test
+    void givesUpAfterTheTimeout() {
+        hasher = new PasswordHasher(blockingEncoder(new CountDownLatch(1)), 1, 1, 100);
+
+        assertThatThrownBy(() -> hasher.encode("slow"))
+            .isInstanceOf(ServiceOverloadedException.class)
+            .extracting(e -> ((ServiceOverloadedException) e).getRetryAfterSeconds())
+            .isEqualTo(2);
+    }
+
+    @Test
+    void loginThroughputMatchesHashingOnTheCallersWithBoundedConcurrency() throws Exception {
+        int workers = Runtime.getRuntime().availableProcessors();
+        int callers = Math.min(workers * 4, 32);
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(6);
+        String hash = bcrypt.encode("secret");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        hasher = new PasswordHasher(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return bcrypt.matches(rawPassword, encodedPassword);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        }, workers, 64, 30_000);
+
+        // Warm both paths up before timing them
+        logins(callers, 2, () -> bcrypt.matches("secret", hash));
+        logins(callers, 2, () -> hasher.matches("secret", hash));
+        peak.set(0);
+
+        long onCallers = logins(callers, 20, () -> bcrypt.matches("secret", hash));
+        long pooled = logins(callers, 20, () -> hasher.matches("secret", hash));
+
+        // BCrypt is CPU bound, so one worker per core keeps the throughput while the rest wait in the queue
+        assertThat(peak.get()).isLessThanOrEqualTo(workers);
+        assertThat(pooled).isLessThan(onCallers * 2);
+    }
+
+    // Nanoseconds for every caller thread to finish its logins
+    private static long logins(int callers, int perCaller, BooleanSupplier login) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < callers; c++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perCaller; i++) {
+                        assertThat(login.getAsBoolean()).isTrue();
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            return System.nanoTime() - started;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private PasswordEncoder blockingEncoder(CountDownLatch started) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return false;
+            }
+        };
+    }
+}
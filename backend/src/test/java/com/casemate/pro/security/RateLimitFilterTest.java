@@ -0,0 +1,62 @@
+package com.casemate.pro.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private static final int CHUNK_CAPACITY = 3;
+
+    // Generous limits everywhere except upload chunks, which refill too slowly to matter here
+    private final RateLimitFilter filter = new RateLimitFilter(new ObjectMapper(), true, false, 600,
+        100, 100, 100, 100, 100, 100, 100, 100, CHUNK_CAPACITY, 1, 100, 100);
+
+    @Test
+    void chunkPutsAreThrottledWhateverTheUploadAndChunk() throws Exception {
+        for (int i = 0; i < CHUNK_CAPACITY; i++) {
+            assertThat(putChunk(UUID.randomUUID(), i).getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = putChunk(UUID.randomUUID(), 0);
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+    }
+
+    @Test
+    void chunksDoNotUseUpTheSessionBucket() throws Exception {
+        for (int i = 0; i <= CHUNK_CAPACITY; i++) {
+            putChunk(UUID.randomUUID(), i);
+        }
+
+        assertThat(send("POST", "/api/documents/uploads").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void otherUploadPathsAreNotChunkRequests() throws Exception {
+        for (int i = 0; i <= CHUNK_CAPACITY; i++) {
+            assertThat(send("GET", "/api/documents/uploads/" + UUID.randomUUID()).getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse putChunk(UUID uploadId, int index) throws ServletException, IOException {
+        return send("PUT", "/api/documents/uploads/" + uploadId + "/chunks/" + index);
+    }
+
+    private MockHttpServletResponse send(String method, String path) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,86 @@
+package com.casemate.pro.security;
+
+import com.casemate.pro.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SecurityStampRegistryTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void readsStampOnceWhileEntryIsFresh() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findSecurityStampById(userId)).thenReturn(Optional.of(3));
+        SecurityStampRegistry registry = new SecurityStampRegistry(userRepository, 10, 60);
+
+        assertThat(registry.isCurrent(userId, 3)).isTrue();
+        assertThat(registry.isCurrent(userId, 2)).isFalse();
+        verify(userRepository, times(1)).findSecurityStampById(userId);
+    }
+
+    @Test
+    void stampChangeRejectsOlderTokens() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findSecurityStampById(userId)).thenReturn(Optional.of(0));
+        SecurityStampRegistry registry = new SecurityStampRegistry(userRepository, 10, 60);
+        assertThat(registry.isCurrent(userId, 0)).isTrue();
+
+        registry.stampChanged(userId, 1);
+
+        assertThat(registry.isCurrent(userId, 0)).isFalse();
+        assertThat(registry.isCurrent(userId, 1)).isTrue();
+    }
+
+    @Test
+    void expiredEntriesAreReadAgain() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findSecurityStampById(userId)).thenReturn(Optional.of(0), Optional.of(1));
+        // A zero TTL stands in for another node having changed the stamp meanwhile
+        SecurityStampRegistry registry = new SecurityStampRegistry(userRepository, 10, 0);
+
+        assertThat(registry.isCurrent(userId, 0)).isTrue();
+        assertThat(registry.isCurrent(userId, 0)).isFalse();
+    }
+
+    @Test
+    void unknownUsersAreNotRememberedForever() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findSecurityStampById(userId)).thenReturn(Optional.empty(), Optional.of(0));
+        SecurityStampRegistry registry = new SecurityStampRegistry(userRepository, 10, 0);
+
+        assertThat(registry.isCurrent(userId, 0)).isFalse();
+        assertThat(registry.isCurrent(userId, 0)).isTrue();
+    }
+
+    @Test
+    void evictsOneEntryAtATimeWhenFull() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        when(userRepository.findSecurityStampById(first)).thenReturn(Optional.of(0));
+        when(userRepository.findSecurityStampById(second)).thenReturn(Optional.of(0));
+        when(userRepository.findSecurityStampById(third)).thenReturn(Optional.of(0));
+        SecurityStampRegistry registry = new SecurityStampRegistry(userRepository, 2, 60);
+
+        registry.isCurrent(first, 0);
+        registry.isCurrent(second, 0);
+        registry.isCurrent(first, 0);
+        registry.isCurrent(third, 0);
+        registry.isCurrent(first, 0);
+        registry.isCurrent(second, 0);
+
+        // first stayed cached; only second, the least recently used, was evicted and read again
+        verify(userRepository, times(1)).findSecurityStampById(first);
+        verify(userRepository, times(2)).findSecurityStampById(second);
+        verify(userRepository, times(1)).findSecurityStampById(third);
+    }
+}
@@ -0,0 +1,151 @@
+package com.casemate.pro.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedTokenBucketsTest {
+
+    // One token per second
+    private static final double REFILL_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsCapacityThenReportsTheWait() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(16);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(buckets.tryAcquire("ip-1", 3, REFILL_PER_NANO, 0)).isZero();
+        }
+        assertThat(buckets.tryAcquire("ip-1", 3, REFILL_PER_NANO, 0)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(buckets.tryAcquire("ip-1", 3, REFILL_PER_NANO, TimeUnit.SECONDS.toNanos(1))).isZero();
+    }
+
+    @Test
+    void keysDoNotShareTokens() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(1);
+
+        assertThat(buckets.tryAcquire("ip-1", 1, REFILL_PER_NANO, 0)).isZero();
+        assertThat(buckets.tryAcquire("ip-2", 1, REFILL_PER_NANO, 0)).isZero();
+        assertThat(buckets.tryAcquire("ip-1", 1, REFILL_PER_NANO, 0)).isPositive();
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheCapacity() throws Exception {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(4);
+        int threads = 16;
+        int attemptsPerThread = 1_000;
+        int capacity = 500;
+        List<String> keys = List.of("a", "b", "c", "d", "e", "f", "g", "h");
+        AtomicInteger[] allowed = new AtomicInteger[keys.size()];
+        for (int i = 0; i < allowed.length; i++) {
+            allowed[i] = new AtomicInteger();
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    int k = i % keys.size();
+                    // Time stands still, so no tokens are refilled during the run
+                    if (buckets.tryAcquire(keys.get(k), capacity, REFILL_PER_NANO, 0) == 0) {
+                        allowed[k].incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // 16 x 1000 attempts spread over 8 keys is 2000 per key, against 500 tokens each
+        for (AtomicInteger count : allowed) {
+            assertThat(count.get()).isEqualTo(capacity);
+        }
+    }
+
+    @Test
+    void aHeldStripeOnlyBlocksItsOwnKeys() throws Exception {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(2);
+        String blocked = keyOnStripe(0, 2);
+        String free = keyOnStripe(1, 2);
+        ReentrantLock stripeLock = (ReentrantLock) ReflectionTestUtils.getField(
+            ((Object[]) ReflectionTestUtils.getField(buckets, "stripes"))[0], "lock");
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            stripeLock.lock();
+            try {
+                held.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stripeLock.unlock();
+            }
+        });
+        holder.start();
+        assertThat(held.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> sameStripe = pool.submit(() -> buckets.tryAcquire(blocked, 1, REFILL_PER_NANO, 0));
+            Future<Long> otherStripe = pool.submit(() -> buckets.tryAcquire(free, 1, REFILL_PER_NANO, 0));
+
+            assertThat(otherStripe.get(5, TimeUnit.SECONDS)).isZero();
+            assertThatThrownBy(() -> sameStripe.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+            release.countDown();
+            assertThat(sameStripe.get(5, TimeUnit.SECONDS)).isZero();
+        } finally {
+            release.countDown();
+            holder.join();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void evictsOnlyIdleBuckets() {
+        StripedTokenBuckets buckets = new StripedTokenBuckets(8);
+        long second = TimeUnit.SECONDS.toNanos(1);
+        buckets.tryAcquire("idle", 1, REFILL_PER_NANO, 0);
+        buckets.tryAcquire("busy", 1, REFILL_PER_NANO, 0);
+        buckets.tryAcquire("busy", 1, REFILL_PER_NANO, 10 * second);
+
+        buckets.evictIdle(11 * second, 5 * second);
+
+        // An evicted bucket starts full again; a kept one is still drained
+        assertThat(buckets.tryAcquire("idle", 1, REFILL_PER_NANO, 11 * second)).isZero();
+        assertThat(buckets.tryAcquire("busy", 1, 1e-18, 11 * second)).isPositive();
+    }
+
+    // Mirrors StripedTokenBuckets.stripeFor
+    private static String keyOnStripe(int stripe, int stripes) {
+        for (int i = 0; ; i++) {
+            String key = "ip-" + i;
+            int hash = key.hashCode();
+            if (((hash ^ (hash >>> 16)) & (stripes - 1)) == stripe) {
+                return key;
+            }
+        }
+    }
+}
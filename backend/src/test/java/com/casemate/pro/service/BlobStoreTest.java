@@ -0,0 +1,191 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.DocumentBlob;
+import com.casemate.pro.repository.DocumentBlobRepository;
+import com.casemate.pro.storage.DocumentStorage;
+import com.casemate.pro.storage.LocalDocumentStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BlobStore.class, LocalDocumentStorage.class, BlobStoreTest.Metrics.class})
+// Each step commits or rolls back on its own, as uploads do
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BlobStoreTest {
+
+    private static final Path ROOT = Path.of(System.getProperty("java.io.tmpdir"), "blob-store-test-" + UUID.randomUUID());
+    private static final Path STAGING = ROOT.resolve("staging");
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("documents.staging-dir", STAGING::toString);
+        registry.add("documents.storage.local.dir", () -> ROOT.resolve("blobs").toString());
+    }
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private DocumentStorage storage;
+
+    @Autowired
+    private DocumentBlobRepository documentBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        documentBlobRepository.deleteAll();
+        FileSystemUtils.deleteRecursively(ROOT);
+    }
+
+    @Test
+    void stageHashesWhileCopyingInOnePass() throws IOException {
+        byte[] content = "contract v1".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger opened = new AtomicInteger();
+        InputStreamSource source = () -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(content);
+        };
+
+        BlobStore.Staged staged = blobStore.stage(source, content.length);
+
+        assertThat(opened).hasValue(1);
+        assertThat(staged.sha256()).isEqualTo(BlobStore.sha256(new ByteArrayInputStream(content)));
+        assertThat(Files.readAllBytes(staged.file())).isEqualTo(content);
+    }
+
+    @Test
+    void stageDropsTheCopyWhenTheBlobIsAlreadyStored() throws IOException {
+        byte[] content = "contract v1".getBytes(StandardCharsets.UTF_8);
+        String sha256 = BlobStore.sha256(new ByteArrayInputStream(content));
+        commitAcquire(sha256, content);
+
+        BlobStore.Staged staged = blobStore.stage(() -> new ByteArrayInputStream(content), content.length);
+
+        assertThat(staged.file()).isNull();
+        try (var leftovers = Files.list(STAGING)) {
+            assertThat(leftovers).isEmpty();
+        }
+    }
+
+    @Test
+    void rolledBackUploadDeletesTheBlobItWrote() throws IOException {
+        byte[] content = "rolled back".getBytes(StandardCharsets.UTF_8);
+        String sha256 = BlobStore.sha256(new ByteArrayInputStream(content));
+
+        transaction.executeWithoutResult(status -> {
+            BlobStore.Stored stored = acquire(sha256, content);
+            assertThat(stored.written()).isTrue();
+            status.setRollbackOnly();
+        });
+
+        assertThat(storage.exists(sha256)).isFalse();
+        assertThat(documentBlobRepository.findById(sha256)).isEmpty();
+    }
+
+    @Test
+    void rolledBackUploadKeepsABlobOthersReference() throws IOException {
+        byte[] content = "shared".getBytes(StandardCharsets.UTF_8);
+        String sha256 = BlobStore.sha256(new ByteArrayInputStream(content));
+        commitAcquire(sha256, content);
+
+        transaction.executeWithoutResult(status -> {
+            assertThat(acquire(sha256, content).written()).isFalse();
+            status.setRollbackOnly();
+        });
+
+        assertThat(storage.exists(sha256)).isTrue();
+        assertThat(documentBlobRepository.findById(sha256)).map(DocumentBlob::getRefCount).contains(1);
+    }
+
+    @Test
+    void ensureStoredCreatesAMissingRowWithTheReferenceCount() throws IOException {
+        byte[] content = "migrated".getBytes(StandardCharsets.UTF_8);
+        String sha256 = BlobStore.sha256(new ByteArrayInputStream(content));
+
+        boolean written = transaction.execute(status -> ensureStored(sha256, content, 3));
+        blobStore.purgeUnreferenced();
+
+        assertThat(written).isTrue();
+        assertThat(storage.exists(sha256)).isTrue();
+        assertThat(documentBlobRepository.findById(sha256)).map(DocumentBlob::getRefCount).contains(3);
+    }
+
+    @Test
+    void ensureStoredKeepsTheCountOfAnExistingRow() throws IOException {
+        byte[] content = "already counted".getBytes(StandardCharsets.UTF_8);
+        String sha256 = BlobStore.sha256(new ByteArrayInputStream(content));
+        commitAcquire(sha256, content);
+
+        boolean written = transaction.execute(status -> ensureStored(sha256, content, 5));
+
+        assertThat(written).isFalse();
+        assertThat(documentBlobRepository.findById(sha256)).map(DocumentBlob::getRefCount).contains(1);
+    }
+
+    private void commitAcquire(String sha256, byte[] content) {
+        transaction.executeWithoutResult(status -> acquire(sha256, content));
+    }
+
+    private BlobStore.Stored acquire(String sha256, byte[] content) {
+        try {
+            return blobStore.acquire(sha256, content.length, target -> Files.write(target, content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean ensureStored(String sha256, byte[] content, long references) {
+        try {
+            return blobStore.ensureStored(sha256, content.length, references, target -> Files.write(target, content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
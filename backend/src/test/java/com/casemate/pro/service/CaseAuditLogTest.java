@@ -0,0 +1,208 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.CaseEvent;
+import com.casemate.pro.repository.CaseEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the audit writer against a repository that records what it is asked to save, with a
+ * transaction manager that only runs the synchronization callbacks, so commit, rollback and
+ * queue timing can be controlled directly.
+ */
+class CaseAuditLogTest {
+
+    private static final String WRITER_THREAD = "case-audit-writer";
+
+    private final CaseEventRepository repository = mock(CaseEventRepository.class);
+    private final TransactionTemplate transaction = new TransactionTemplate(new CallbackOnlyTransactionManager());
+    // Each saved event with the thread that saved it
+    private final List<Saved> saved = new CopyOnWriteArrayList<>();
+    private CaseAuditLog auditLog;
+
+    private record Saved(CaseEvent event, String thread) {
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (auditLog != null) {
+            auditLog.shutdown();
+        }
+    }
+
+    @Test
+    void onlyCommittedChangesAreRecorded() {
+        savesSucceed();
+        auditLog = start(100, 100, 20, 100);
+        UUID rolledBack = UUID.randomUUID();
+        UUID committed = UUID.randomUUID();
+
+        transaction.executeWithoutResult(status -> {
+            auditLog.record(rolledBack, null, CaseEvent.Type.CREATED, Map.of());
+            status.setRollbackOnly();
+        });
+        transaction.executeWithoutResult(status -> {
+            auditLog.record(committed, null, CaseEvent.Type.CREATED, Map.of());
+            // Nothing is queued before the commit
+            assertThat(queued()).isZero();
+        });
+
+        await(() -> saved.size() == 1);
+        assertThat(saved).extracting(s -> s.event().getCaseId()).containsExactly(committed);
+    }
+
+    @Test
+    void fullQueueMakesTheCallerWriteItsOwnEvent() throws InterruptedException {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            if (Thread.currentThread().getName().equals(WRITER_THREAD)) {
+                writerBusy.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return record(invocation.getArgument(0));
+        });
+        auditLog = start(1, 100, 20, 10);
+
+        auditLog.record(UUID.randomUUID(), null, CaseEvent.Type.CREATED, Map.of());
+        assertThat(writerBusy.await(5, TimeUnit.SECONDS)).isTrue();
+        // Fills the queue while the writer is stuck on the first event
+        auditLog.record(UUID.randomUUID(), null, CaseEvent.Type.UPDATED, Map.of());
+        UUID overflow = UUID.randomUUID();
+        auditLog.record(overflow, null, CaseEvent.Type.DELETED, Map.of());
+
+        assertThat(saved).singleElement().satisfies(s -> {
+            assertThat(s.event().getCaseId()).isEqualTo(overflow);
+            assertThat(s.thread()).isEqualTo(Thread.currentThread().getName());
+        });
+
+        release.countDown();
+        await(() -> saved.size() == 3);
+    }
+
+    @Test
+    void shutdownFlushesTheQueueWithoutWaitingForTheInterval() throws InterruptedException {
+        savesSucceed();
+        // Batches would otherwise wait a minute to fill
+        auditLog = start(100, 1000, 60_000, 100);
+        for (int i = 0; i < 5; i++) {
+            auditLog.record(UUID.randomUUID(), null, CaseEvent.Type.UPDATED, Map.of());
+        }
+
+        long started = System.nanoTime();
+        auditLog.shutdown();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(5000);
+        assertThat(saved).hasSize(5);
+
+        // Once stopped, callers write their events themselves
+        auditLog.record(UUID.randomUUID(), null, CaseEvent.Type.DELETED, Map.of());
+        assertThat(saved).hasSize(6);
+        auditLog = null;
+    }
+
+    @Test
+    void failedWriteIsRetriedAsAnInsert() {
+        List<List<UUID>> idsOnEntry = new CopyOnWriteArrayList<>();
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            List<CaseEvent> events = invocation.getArgument(0);
+            idsOnEntry.add(events.stream().map(CaseEvent::getId).toList());
+            if (idsOnEntry.size() == 1) {
+                // As Hibernate does: ids are assigned, then the flush fails
+                events.forEach(event -> event.setId(UUID.randomUUID()));
+                throw new IllegalStateException("connection lost");
+            }
+            return record(events);
+        });
+        auditLog = start(100, 100, 20, 100);
+
+        auditLog.record(UUID.randomUUID(), null, CaseEvent.Type.CREATED, Map.of());
+
+        await(() -> saved.size() == 1);
+        assertThat(idsOnEntry).hasSize(2);
+        assertThat(idsOnEntry.get(1)).containsOnlyNulls();
+    }
+
+    private CaseAuditLog start(int queueCapacity, int batchSize, long flushIntervalMillis, long offerTimeoutMillis) {
+        CaseAuditLog log = new CaseAuditLog(repository, new ObjectMapper(), new CallbackOnlyTransactionManager(), queueCapacity);
+        ReflectionTestUtils.setField(log, "batchSize", batchSize);
+        ReflectionTestUtils.setField(log, "flushIntervalMillis", flushIntervalMillis);
+        ReflectionTestUtils.setField(log, "offerTimeoutMillis", offerTimeoutMillis);
+        ReflectionTestUtils.setField(log, "shutdownTimeoutMillis", 10_000L);
+        log.start();
+        return log;
+    }
+
+    private void savesSucceed() {
+        when(repository.saveAll(any())).thenAnswer(invocation -> record(invocation.getArgument(0)));
+    }
+
+    private List<CaseEvent> record(List<CaseEvent> events) {
+        String thread = Thread.currentThread().getName();
+        List<CaseEvent> copies = new ArrayList<>(events);
+        copies.forEach(event -> saved.add(new Saved(event, thread)));
+        return copies;
+    }
+
+    private int queued() {
+        return ((Collection<?>) ReflectionTestUtils.getField(auditLog, "queue")).size();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waited for the audit writer").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * No resources, but commit and rollback run the registered synchronizations as a real
+     * transaction manager does.
+     */
+    private static final class CallbackOnlyTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.CaseNumberSequence;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.CaseNumberSequenceRepository;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Blocks are reserved in their own transactions, which must see each other's commits
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CaseNumberGeneratorTest {
+
+    @Autowired
+    private CaseNumberSequenceRepository sequenceRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SettableClock clock = new SettableClock(Instant.parse("2025-12-31T23:59:00Z"));
+
+    @AfterEach
+    void tearDown() {
+        caseRepository.deleteAll();
+        userRepository.deleteAll();
+        sequenceRepository.deleteAll();
+    }
+
+    @Test
+    void numbersRunOnAcrossBlocksAndRestartWithTheYear() {
+        CaseNumberGenerator generator = generator(3);
+
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            numbers.add(generator.nextCaseNumber());
+        }
+        clock.set(Instant.parse("2026-01-01T00:00:00Z"));
+        numbers.add(generator.nextCaseNumber());
+
+        assertThat(numbers).containsExactly("CS-2025-001", "CS-2025-002", "CS-2025-003", "CS-2025-004", "CS-2026-001");
+        assertThat(sequenceRepository.findById(2025)).map(CaseNumberSequence::getNextValue).contains(7L);
+        assertThat(sequenceRepository.findById(2026)).map(CaseNumberSequence::getNextValue).contains(4L);
+    }
+
+    @Test
+    void firstBlockOfAYearStartsAboveNumbersAlreadyIssued() {
+        User lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        User client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        // CS-2025-1000 sorts before CS-2025-999 as text but is the highest
+        for (String caseNumber : List.of("CS-2025-007", "CS-2025-999", "CS-2025-1000", "CS-2024-5000")) {
+            Case caseEntity = new Case();
+            caseEntity.setCaseNumber(caseNumber);
+            caseEntity.setTitle(caseNumber);
+            caseEntity.setLawyer(lawyer);
+            caseEntity.setClient(client);
+            caseRepository.save(caseEntity);
+        }
+
+        assertThat(generator(10).nextCaseNumber()).isEqualTo("CS-2025-1001");
+    }
+
+    @Test
+    void reservedBlockOutlivesTheCallersRollback() {
+        CaseNumberGenerator first = generator(5);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        String issued = transaction.execute(status -> {
+            String number = first.nextCaseNumber();
+            status.setRollbackOnly();
+            return number;
+        });
+
+        assertThat(issued).isEqualTo("CS-2025-001");
+        // Another node never gets a number from the block the rolled back caller reserved
+        assertThat(generator(5).nextCaseNumber()).isEqualTo("CS-2025-006");
+    }
+
+    @Test
+    void concurrentCallersOnSeveralNodesNeverShareANumber() throws Exception {
+        int nodes = 3;
+        int perNode = 60;
+        List<CaseNumberGenerator> generators = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            generators.add(generator(5));
+        }
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> work = new ArrayList<>();
+            for (CaseNumberGenerator generator : generators) {
+                for (int i = 0; i < perNode; i++) {
+                    work.add(executor.submit(() -> assertThat(issued.add(generator.nextCaseNumber())).isTrue()));
+                }
+            }
+            for (Future<?> future : work) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every node used up whole blocks, so together they issued exactly 1..180
+        assertThat(issued).hasSize(nodes * perNode);
+        assertThat(issued).allSatisfy(number -> assertThat(Integer.parseInt(number.substring("CS-2025-".length())))
+            .isBetween(1, nodes * perNode));
+    }
+
+    private CaseNumberGenerator generator(int blockSize) {
+        return new CaseNumberGenerator(sequenceRepository, caseRepository, transactionManager, blockSize, clock);
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+
+    private static final class SettableClock extends Clock {
+
+        private volatile Instant now;
+
+        SettableClock(Instant now) {
+            this.now = now;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
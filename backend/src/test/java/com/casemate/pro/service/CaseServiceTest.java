@@ -0,0 +1,358 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.BatchStatusResult;
+import com.casemate.pro.dto.CaseEventResponse;
+import com.casemate.pro.dto.CursorPage;
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.CaseEvent;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.entity.UserStats;
+import com.casemate.pro.exception.PreconditionFailedException;
+import com.casemate.pro.repository.CaseEventRepository;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.NotificationRepository;
+import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.repository.UserStatsRepository;
+import com.casemate.pro.search.CaseSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.casemate.pro.service.RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CaseService.class, UserStatsService.class, NotificationService.class, PaginationSupport.class})
+class CaseServiceTest {
+
+    @MockBean
+    private UserCache userCache;
+
+    @MockBean
+    private CaseNumberGenerator caseNumberGenerator;
+
+    @MockBean
+    private CaseSearchIndex caseSearchIndex;
+
+    @MockBean
+    private CaseStatusNotifier caseStatusNotifier;
+
+    @MockBean
+    private CaseAuditLog caseAuditLog;
+
+    @MockBean
+    private BlobStore blobStore;
+
+    @Autowired
+    private CaseService caseService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private CaseEventRepository caseEventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User lawyer;
+    private User client;
+
+    @BeforeEach
+    void setUp() {
+        lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+    }
+
+    @Test
+    void acceptMovesAPendingCaseAndItsCounters() {
+        Case pending = seed(Case.Status.PENDING, 1000.0);
+
+        Case accepted = caseService.acceptCase(pending.getId(), lawyer, null);
+
+        assertThat(accepted.getStatus()).isEqualTo(Case.Status.ACTIVE);
+        assertThat(accepted.getPreviousStatus()).isEqualTo(Case.Status.PENDING);
+        assertThat(accepted.getVersion()).isEqualTo(pending.getVersion() + 1);
+        for (User participant : new User[]{lawyer, client}) {
+            UserStats stats = stats(participant);
+            assertThat(stats.getPendingCases()).isZero();
+            assertThat(stats.getActiveCases()).isEqualTo(1);
+            assertThat(stats.getActiveCaseValue()).isEqualTo(1000.0);
+            assertThat(stats.getTotalCases()).isEqualTo(1);
+        }
+        verify(caseStatusNotifier).notifyClientAfterCommit(client.getId(), pending.getTitle(), Case.Status.ACTIVE);
+        verify(caseAuditLog).record(eq(pending.getId()), eq(lawyer.getId()), eq(CaseEvent.Type.STATUS_CHANGED), anyMap());
+    }
+
+    @Test
+    void anyStatusChangeIsOneUpdateOneReadAndOneCounterUpdate() {
+        Case active = seed(Case.Status.ACTIVE, 500.0);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Case changed = caseService.updateCaseStatus(active.getId(), Case.Status.PENDING, lawyer, Set.of(active.getVersion()));
+
+        // The guarded case UPDATE, the read of the changed case, and one user_stats UPDATE for both users
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(changed.getStatus()).isEqualTo(Case.Status.PENDING);
+        assertThat(changed.getPreviousStatus()).isEqualTo(Case.Status.ACTIVE);
+        UserStats stats = stats(lawyer);
+        assertThat(stats.getActiveCases()).isZero();
+        assertThat(stats.getActiveCaseValue()).isZero();
+        assertThat(stats.getPendingCases()).isEqualTo(1);
+    }
+
+    @Test
+    void transitionTheStatusDoesNotAllowIsAConflict() {
+        Case pending = seed(Case.Status.PENDING, 1000.0);
+
+        assertThatThrownBy(() -> caseService.closeCase(pending.getId(), lawyer, null))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("A pending case cannot be moved to closed");
+
+        assertUnchanged(pending);
+    }
+
+    @Test
+    void staleIfMatchVersionFailsThePrecondition() {
+        Case pending = seed(Case.Status.PENDING, 1000.0);
+
+        assertThatThrownBy(() -> caseService.acceptCase(pending.getId(), lawyer, Set.of(pending.getVersion() + 5)))
+            .isInstanceOf(PreconditionFailedException.class);
+
+        assertUnchanged(pending);
+    }
+
+    @Test
+    void movingToTheCurrentStatusIsANoOp() {
+        Case pending = seed(Case.Status.PENDING, 1000.0);
+
+        Case unchanged = caseService.updateCaseStatus(pending.getId(), Case.Status.PENDING, lawyer, Set.of(pending.getVersion()));
+
+        assertThat(unchanged.getVersion()).isEqualTo(pending.getVersion());
+        assertUnchanged(pending);
+        verify(caseStatusNotifier, never()).notifyClientAfterCommit(any(), any(), any());
+    }
+
+    @Test
+    void onlyTheAssignedLawyerCanChangeTheStatus() {
+        Case pending = seed(Case.Status.PENDING, 1000.0);
+        User otherLawyer = userRepository.save(user("other@example.com", User.Role.LAWYER));
+
+        assertThatThrownBy(() -> caseService.acceptCase(pending.getId(), otherLawyer, null))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessage("Only the assigned lawyer can update the case status");
+
+        assertUnchanged(pending);
+    }
+
+    @Test
+    void deleteTakesTheLockedStatusOffTheCounters() {
+        Case active = seed(Case.Status.ACTIVE, 500.0);
+
+        caseService.deleteCase(active.getId(), lawyer);
+
+        assertThat(caseRepository.findById(active.getId())).isEmpty();
+        for (User participant : new User[]{lawyer, client}) {
+            UserStats stats = stats(participant);
+            assertThat(stats.getTotalCases()).isZero();
+            assertThat(stats.getActiveCases()).isZero();
+            assertThat(stats.getActiveCaseValue()).isZero();
+        }
+    }
+
+    @Test
+    void batchStatusChangeLocksTheOwnedRowsAndReportsEveryId() {
+        User otherLawyer = userRepository.save(user("other@example.com", User.Role.LAWYER));
+        Case pending = newCase("CASE-1", Case.Status.PENDING, 1000.0, lawyer);
+        Case active = newCase("CASE-2", Case.Status.ACTIVE, 500.0, lawyer);
+        Case closed = newCase("CASE-3", Case.Status.CLOSED, 200.0, lawyer);
+        Case foreign = newCase("CASE-4", Case.Status.PENDING, 300.0, otherLawyer);
+        UUID missing = UUID.randomUUID();
+        UserStats counters = new UserStats(lawyer.getId());
+        counters.setTotalCases(3);
+        counters.setPendingCases(1);
+        counters.setActiveCases(1);
+        counters.setActiveCaseValue(500.0);
+        counters.setClosedCases(1);
+        userStatsRepository.save(counters);
+        entityManager.flush();
+        entityManager.clear();
+        RecordingStatementInspector.clear();
+
+        // Duplicates are reported once, in first-seen order
+        List<BatchStatusResult> results = caseService.updateCaseStatuses(List.of(pending.getId(), foreign.getId(),
+            active.getId(), missing, closed.getId(), pending.getId()), Case.Status.CLOSED, lawyer);
+        entityManager.flush();
+
+        assertThat(results)
+            .extracting(BatchStatusResult::getId, BatchStatusResult::getResult, BatchStatusResult::getPreviousStatus)
+            .containsExactly(
+                tuple(pending.getId(), BatchStatusResult.Outcome.UPDATED, "pending"),
+                tuple(foreign.getId(), BatchStatusResult.Outcome.NOT_FOUND, null),
+                tuple(active.getId(), BatchStatusResult.Outcome.UPDATED, "active"),
+                tuple(missing, BatchStatusResult.Outcome.NOT_FOUND, null),
+                tuple(closed.getId(), BatchStatusResult.Outcome.UNCHANGED, "closed"));
+
+        List<String> statements = RecordingStatementInspector.statements().stream()
+            .map(sql -> sql.toLowerCase(Locale.ROOT))
+            .toList();
+        assertThat(statements.get(0)).startsWith("select").contains(" from cases ").contains("for update");
+        assertThat(statements).filteredOn(sql -> sql.startsWith("update cases")).hasSize(1);
+        // Both notifications go out in one batched insert
+        assertThat(statements).filteredOn(sql -> sql.startsWith("insert into notifications")).hasSize(1);
+        assertThat(notificationRepository.count()).isEqualTo(2);
+        verify(caseAuditLog, times(2)).record(any(), eq(lawyer.getId()), eq(CaseEvent.Type.STATUS_CHANGED), anyMap());
+
+        entityManager.clear();
+        assertThat(caseRepository.findById(pending.getId()).orElseThrow().getPreviousStatus()).isEqualTo(Case.Status.PENDING);
+        assertThat(caseRepository.findById(active.getId()).orElseThrow().getStatus()).isEqualTo(Case.Status.CLOSED);
+        assertThat(caseRepository.findById(foreign.getId()).orElseThrow().getStatus()).isEqualTo(Case.Status.PENDING);
+        UserStats stats = stats(lawyer);
+        assertThat(stats.getPendingCases()).isZero();
+        assertThat(stats.getActiveCases()).isZero();
+        assertThat(stats.getActiveCaseValue()).isZero();
+        assertThat(stats.getClosedCases()).isEqualTo(3);
+        assertThat(stats.getTotalCases()).isEqualTo(3);
+    }
+
+    @Test
+    void historyPagesThroughEveryEventNewestFirst() {
+        Case active = seed(Case.Status.ACTIVE, 500.0);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        // Three events share a timestamp, so pages must break ties on the id
+        List<CaseEvent> events = new ArrayList<>();
+        for (int minutes : new int[]{0, 5, 5, 5, 10}) {
+            events.add(event(active.getId(), start.plusMinutes(minutes)));
+        }
+        events.add(event(UUID.randomUUID(), start.plusMinutes(7)));
+        caseEventRepository.saveAll(events);
+        entityManager.flush();
+
+        List<CaseEventResponse> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<CaseEventResponse> page = caseService.getCaseHistory(active.getId(), client, cursor, 2);
+            seen.addAll(page.getItems());
+            pageSizes.add(page.getItems().size());
+            assertThat(page.isHasMore()).isEqualTo(page.getNextCursor() != null);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(pageSizes).containsExactly(2, 2, 1);
+        assertThat(seen).extracting(CaseEventResponse::getId)
+            .doesNotHaveDuplicates()
+            .containsExactlyInAnyOrderElementsOf(events.subList(0, 5).stream().map(CaseEvent::getId).toList());
+        assertThat(seen).extracting(CaseEventResponse::getCreatedAt)
+            .isSortedAccordingTo((a, b) -> b.compareTo(a));
+        assertThat(seen).extracting(CaseEventResponse::getActorName).containsOnly(lawyer.getName());
+    }
+
+    @Test
+    void historyIsOnlyForParticipants() {
+        Case active = seed(Case.Status.ACTIVE, 500.0);
+        User stranger = userRepository.save(user("stranger@example.com", User.Role.CLIENT));
+
+        assertThatThrownBy(() -> caseService.getCaseHistory(active.getId(), stranger, null, 20))
+            .hasMessage("Case not found");
+    }
+
+    private CaseEvent event(UUID caseId, LocalDateTime createdAt) {
+        CaseEvent event = new CaseEvent();
+        event.setCaseId(caseId);
+        event.setActorId(lawyer.getId());
+        event.setType(CaseEvent.Type.UPDATED);
+        event.setCreatedAt(createdAt);
+        return event;
+    }
+
+    private void assertUnchanged(Case original) {
+        entityManager.clear();
+        Case reloaded = caseRepository.findById(original.getId()).orElseThrow();
+        assertThat(reloaded.getStatus()).isEqualTo(original.getStatus());
+        assertThat(reloaded.getVersion()).isEqualTo(original.getVersion());
+        assertThat(stats(lawyer).getPendingCases()).isEqualTo(original.getStatus() == Case.Status.PENDING ? 1 : 0);
+        assertThat(stats(client).getActiveCases()).isEqualTo(original.getStatus() == Case.Status.ACTIVE ? 1 : 0);
+    }
+
+    // One case between the lawyer and the client, with counters that match it
+    private Case seed(Case.Status status, double value) {
+        Case caseEntity = newCase("CASE-1", status, value, lawyer);
+        for (User participant : new User[]{lawyer, client}) {
+            UserStats stats = new UserStats(participant.getId());
+            stats.setTotalCases(1);
+            stats.setPendingCases(status == Case.Status.PENDING ? 1 : 0);
+            stats.setActiveCases(status == Case.Status.ACTIVE ? 1 : 0);
+            stats.setActiveCaseValue(status == Case.Status.ACTIVE ? value : 0.0);
+            userStatsRepository.save(stats);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return caseEntity;
+    }
+
+    private Case newCase(String caseNumber, Case.Status status, double value, User owner) {
+        Case caseEntity = new Case();
+        caseEntity.setCaseNumber(caseNumber);
+        caseEntity.setTitle("Case " + caseNumber);
+        caseEntity.setStatus(status);
+        caseEntity.setCaseValue(value);
+        caseEntity.setLawyer(owner);
+        caseEntity.setClient(client);
+        return caseRepository.save(caseEntity);
+    }
+
+    private UserStats stats(User user) {
+        entityManager.clear();
+        return userStatsRepository.findById(user.getId()).orElseThrow();
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+}
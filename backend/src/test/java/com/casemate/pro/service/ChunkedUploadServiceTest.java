@@ -0,0 +1,299 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.UploadSessionRequest;
+import com.casemate.pro.dto.UploadSessionResponse;
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.Document;
+import com.casemate.pro.entity.UploadChunk;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.DocumentBlobRepository;
+import com.casemate.pro.repository.DocumentRepository;
+import com.casemate.pro.repository.UploadChunkRepository;
+import com.casemate.pro.repository.UploadSessionRepository;
+import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.storage.DocumentStorage;
+import com.casemate.pro.storage.LocalDocumentStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ChunkedUploadService.class, DocumentService.class, BlobStore.class, LocalDocumentStorage.class,
+    UserStatsService.class, PaginationSupport.class, ChunkedUploadServiceTest.Metrics.class})
+// Chunks arrive as separate requests, each committing on its own
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChunkedUploadServiceTest {
+
+    private static final Path ROOT = Path.of(System.getProperty("java.io.tmpdir"), "chunked-upload-test-" + UUID.randomUUID());
+    private static final Path TEMP = ROOT.resolve("tmp");
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int TTL_HOURS = 24;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("documents.upload.temp-dir", TEMP::toString);
+        registry.add("documents.staging-dir", () -> ROOT.resolve("staging").toString());
+        registry.add("documents.storage.local.dir", () -> ROOT.resolve("blobs").toString());
+        registry.add("documents.upload.session-ttl-hours", () -> String.valueOf(TTL_HOURS));
+    }
+
+    @MockBean
+    private CaseAuditLog caseAuditLog;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private DocumentStorage storage;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private UploadChunkRepository uploadChunkRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentBlobRepository documentBlobRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Three full chunks and a short last one
+    private final byte[] content = randomBytes(3 * CHUNK_SIZE + 1000);
+    private User client;
+    private Case caseEntity;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        User lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        caseEntity = new Case();
+        caseEntity.setCaseNumber("CASE-1");
+        caseEntity.setTitle("Case 1");
+        caseEntity.setLawyer(lawyer);
+        caseEntity.setClient(client);
+        caseEntity = caseRepository.save(caseEntity);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        uploadChunkRepository.deleteAll();
+        uploadSessionRepository.deleteAll();
+        documentRepository.deleteAll();
+        documentBlobRepository.deleteAll();
+        caseRepository.deleteAll();
+        userRepository.deleteAll();
+        FileSystemUtils.deleteRecursively(ROOT);
+    }
+
+    @Test
+    void chunksSentOutOfOrderAndInParallelMakeTheFile() throws Exception {
+        UUID uploadId = createSession();
+
+        List<Future<Boolean>> sent = new ArrayList<>();
+        for (int index : new int[]{3, 1, 0, 2}) {
+            sent.add(executor.submit(() -> putChunk(uploadId, index, chunk(index))));
+        }
+        for (Future<Boolean> future : sent) {
+            assertThat(future.get(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        UploadSessionResponse state = chunkedUploadService.getSession(uploadId, client);
+        assertThat(state.getMissingChunks()).isEmpty();
+        assertThat(state.getReceivedRanges()).containsExactly(new long[]{0, content.length - 1});
+
+        Document document = chunkedUploadService.commit(uploadId, client);
+
+        try (InputStream in = storage.get(document.getStorageKey()).getInputStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+        assertThat(document.getSize()).isEqualTo(content.length);
+        assertThat(uploadSessionRepository.existsById(uploadId)).isFalse();
+        assertThat(uploadChunkRepository.countBySessionId(uploadId)).isZero();
+        assertThat(TEMP.resolve(uploadId + ".part")).doesNotExist();
+    }
+
+    @Test
+    void chunkWithTheWrongChecksumIsRejectedAndStaysMissing() throws IOException {
+        UUID uploadId = createSession();
+        byte[] chunk = chunk(0);
+
+        assertThatThrownBy(() -> chunkedUploadService.putChunk(uploadId, 0, sha256(chunk(1)), new ByteArrayInputStream(chunk), client))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Checksum mismatch for chunk 0");
+        assertThat(chunkedUploadService.getSession(uploadId, client).getMissingChunks()).containsExactly(0, 1, 2, 3);
+
+        assertThat(putChunk(uploadId, 0, chunk)).isTrue();
+        assertThat(chunkedUploadService.getSession(uploadId, client).getMissingChunks()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void resentChunkIsANoOpButDifferentContentIsAConflict() throws IOException {
+        UUID uploadId = createSession();
+        byte[] chunk = chunk(0);
+        assertThat(putChunk(uploadId, 0, chunk)).isTrue();
+
+        assertThat(putChunk(uploadId, 0, chunk)).isFalse();
+
+        byte[] other = chunk(1);
+        assertThatThrownBy(() -> putChunk(uploadId, 0, other))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Chunk 0 was already received with different content");
+        assertThat(uploadChunkRepository.findById(new UploadChunk.Key(uploadId, 0)))
+            .map(UploadChunk::getSha256).contains(sha256(chunk));
+    }
+
+    @Test
+    void incompleteUploadCannotBeCommitted() throws IOException {
+        UUID uploadId = createSession();
+        putChunk(uploadId, 0, chunk(0));
+        putChunk(uploadId, 3, chunk(3));
+
+        assertThatThrownBy(() -> chunkedUploadService.commit(uploadId, client))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Upload is incomplete: 2 of 4 chunks received");
+
+        assertThat(documentRepository.count()).isZero();
+        assertThat(uploadSessionRepository.existsById(uploadId)).isTrue();
+        assertThat(TEMP.resolve(uploadId + ".part")).exists();
+    }
+
+    @Test
+    void purgeRemovesAbandonedSessionsAndOldOrphanTempFiles() throws IOException {
+        UUID abandoned = createSession();
+        putChunk(abandoned, 0, chunk(0));
+        UUID active = createSession();
+        LocalDateTime longAgo = LocalDateTime.now().minusHours(TTL_HOURS + 1);
+        jdbcTemplate.update("UPDATE upload_sessions SET created_at = ?", longAgo);
+        jdbcTemplate.update("UPDATE upload_chunks SET received_at = ?", longAgo);
+        // The active session is as old, but received a chunk within the TTL
+        putChunk(active, 1, chunk(1));
+
+        Path oldOrphan = orphan(UUID.randomUUID() + ".part", true);
+        Path oldJunk = orphan("not-a-session.part", true);
+        Path newOrphan = orphan(UUID.randomUUID() + ".part", false);
+        Path unrelated = orphan("notes.txt", true);
+        Files.setLastModifiedTime(TEMP.resolve(active + ".part"), FileTime.from(Instant.now().minus(TTL_HOURS + 1, ChronoUnit.HOURS)));
+
+        chunkedUploadService.purgeAbandonedUploads();
+
+        assertThat(uploadSessionRepository.existsById(abandoned)).isFalse();
+        assertThat(uploadChunkRepository.countBySessionId(abandoned)).isZero();
+        assertThat(TEMP.resolve(abandoned + ".part")).doesNotExist();
+        assertThat(uploadSessionRepository.existsById(active)).isTrue();
+        // An old file whose session is alive is kept
+        assertThat(TEMP.resolve(active + ".part")).exists();
+        assertThat(oldOrphan).doesNotExist();
+        assertThat(oldJunk).doesNotExist();
+        assertThat(newOrphan).exists();
+        assertThat(unrelated).exists();
+    }
+
+    private UUID createSession() {
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setCaseId(caseEntity.getId());
+        request.setFileName("scan.pdf");
+        request.setSize((long) content.length);
+        request.setChunkSize(CHUNK_SIZE);
+        request.setCategory(Document.DocumentCategory.EVIDENCE);
+        UploadSessionResponse response = chunkedUploadService.createSession(request, client);
+        assertThat(response.getChunkCount()).isEqualTo(4);
+        return response.getUploadId();
+    }
+
+    private boolean putChunk(UUID uploadId, int index, byte[] chunk) throws IOException {
+        return chunkedUploadService.putChunk(uploadId, index, sha256(chunk), new ByteArrayInputStream(chunk), client);
+    }
+
+    private byte[] chunk(int index) {
+        int start = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(content, start, Math.min(start + CHUNK_SIZE, content.length));
+    }
+
+    private static Path orphan(String name, boolean old) throws IOException {
+        Files.createDirectories(TEMP);
+        Path file = Files.write(TEMP.resolve(name), new byte[8]);
+        if (old) {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(TTL_HOURS + 1, ChronoUnit.HOURS)));
+        }
+        return file;
+    }
+
+    private static String sha256(byte[] bytes) throws IOException {
+        return BlobStore.sha256(new ByteArrayInputStream(bytes));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+}
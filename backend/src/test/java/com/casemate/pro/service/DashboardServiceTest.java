@@ -0,0 +1,188 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.ClientDashboardResponse;
+import com.casemate.pro.dto.LawyerDashboardResponse;
+import com.casemate.pro.dto.RevenueBreakdownResponse;
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.entity.UserStats;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.repository.UserStatsRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DashboardService.class, UserStatsService.class})
+class DashboardServiceTest {
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 25})
+    void lawyerDashboardRunsThreeStatementsWhateverTheCaseCount(int cases) {
+        User lawyer = seed(cases);
+        UserStats stats = new UserStats(lawyer.getId());
+        stats.setTotalCases(cases);
+        stats.setActiveCases(cases);
+        userStatsRepository.save(stats);
+        startCounting();
+
+        LawyerDashboardResponse response = dashboardService.getLawyerFullDashboard(lawyer);
+
+        // Stats row, client count, recent cases with their participants
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(response.getActiveCases()).isEqualTo(cases);
+        assertThat(response.getRecentCases()).hasSize(Math.min(cases, 4));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 25})
+    void missingStatsRowFallsBackToOneAggregate(int cases) {
+        User lawyer = seed(cases);
+        startCounting();
+
+        LawyerDashboardResponse response = dashboardService.getLawyerFullDashboard(lawyer);
+
+        // Plus the per-status aggregate and the document count in place of the stats row
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+        assertThat(response.getActiveCases()).isEqualTo(cases);
+        assertThat(response.getActiveCaseValue()).isEqualTo(cases * 1000.0);
+        assertThat(response.getPendingCases()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 25})
+    void clientDashboardRunsThreeStatementsWhateverTheCaseCount(int cases) {
+        seed(cases);
+        User client = userRepository.findByEmail("client@example.com").orElseThrow();
+        UserStats stats = new UserStats(client.getId());
+        stats.setTotalCases(cases);
+        stats.setActiveCases(cases);
+        userStatsRepository.save(stats);
+        startCounting();
+
+        ClientDashboardResponse response = dashboardService.getClientFullDashboard(client);
+
+        // Stats row, upcoming hearing count, recent cases with their participants
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(response.getActiveCases()).isEqualTo(cases);
+        assertThat(response.getUpcomingAppointments()).isEqualTo((cases + 1) / 2);
+        assertThat(response.getRecentCases()).hasSize(Math.min(cases, 6));
+    }
+
+    @Test
+    void revenueIsGroupedByYearAndMonthInOneStatement() {
+        User lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        User client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        opened(lawyer, client, "2024-12", Case.Status.ACTIVE, 999.0);
+        opened(lawyer, client, "2025-01", Case.Status.ACTIVE, 100.0);
+        opened(lawyer, client, "2025-01", Case.Status.ACTIVE, 200.0);
+        opened(lawyer, client, "2025-01", Case.Status.PENDING, 999.0);
+        opened(lawyer, client, "2025-03", Case.Status.ACTIVE, 50.0);
+        // Same month number as the first bucket, one year later
+        opened(lawyer, client, "2026-01", Case.Status.ACTIVE, 70.0);
+        startCounting();
+
+        RevenueBreakdownResponse response = dashboardService.getRevenueBreakdown(
+            lawyer, YearMonth.of(2025, 1), YearMonth.of(2026, 1));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(response.getTotalRevenue()).isEqualTo(420.0);
+        assertThat(response.getMonths()).hasSize(13);
+        assertThat(response.getMonths().get(0)).isEqualTo(new RevenueBreakdownResponse.MonthEntry("2025-01", 300.0, 2L));
+        assertThat(response.getMonths().get(1)).isEqualTo(new RevenueBreakdownResponse.MonthEntry("2025-02", 0.0, 0L));
+        assertThat(response.getMonths().get(2)).isEqualTo(new RevenueBreakdownResponse.MonthEntry("2025-03", 50.0, 1L));
+        assertThat(response.getMonths().get(12)).isEqualTo(new RevenueBreakdownResponse.MonthEntry("2026-01", 70.0, 1L));
+    }
+
+    private void opened(User lawyer, User client, String month, Case.Status status, double value) {
+        Case caseEntity = new Case();
+        caseEntity.setCaseNumber("CASE-" + month + "-" + caseRepository.count());
+        caseEntity.setTitle("Case opened " + month);
+        caseEntity.setStatus(status);
+        caseEntity.setCaseValue(value);
+        caseEntity.setLawyer(lawyer);
+        caseEntity.setClient(client);
+        caseRepository.saveAndFlush(caseEntity);
+        // The creation timestamp is not updatable through the entity
+        jdbcTemplate.update("UPDATE cases SET created_at = ? WHERE case_number = ?",
+            YearMonth.parse(month).atDay(15).atStartOfDay(), caseEntity.getCaseNumber());
+    }
+
+    private User seed(int cases) {
+        User lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        User client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        for (int i = 0; i < cases; i++) {
+            Case caseEntity = new Case();
+            caseEntity.setCaseNumber("CASE-" + i);
+            caseEntity.setTitle("Case " + i);
+            caseEntity.setStatus(Case.Status.ACTIVE);
+            caseEntity.setCaseValue(1000.0);
+            // Every other case has a hearing still to come
+            caseEntity.setNextHearing(LocalDateTime.now().plusDays(i % 2 == 0 ? 1 : -1));
+            caseEntity.setLawyer(lawyer);
+            caseEntity.setClient(client);
+            caseRepository.save(caseEntity);
+        }
+        return lawyer;
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+
+    private void startCounting() {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+}
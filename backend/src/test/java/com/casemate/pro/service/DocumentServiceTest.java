@@ -0,0 +1,225 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.Document;
+import com.casemate.pro.entity.DocumentBlob;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.DocumentBlobRepository;
+import com.casemate.pro.repository.DocumentRepository;
+import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.storage.DocumentStorage;
+import com.casemate.pro.storage.LocalDocumentStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DocumentService.class, BlobStore.class, LocalDocumentStorage.class, UserStatsService.class,
+    PaginationSupport.class, DocumentServiceTest.Metrics.class})
+// Uploads open their own transaction after the files are stored
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DocumentServiceTest {
+
+    private static final Path ROOT = Path.of(System.getProperty("java.io.tmpdir"), "document-service-test-" + UUID.randomUUID());
+    private static final Path STAGING = ROOT.resolve("staging");
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("documents.staging-dir", STAGING::toString);
+        registry.add("documents.storage.local.dir", () -> ROOT.resolve("blobs").toString());
+    }
+
+    @MockBean
+    private CaseAuditLog caseAuditLog;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentStorage storage;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentBlobRepository documentBlobRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Boolean> readInTransaction = new CopyOnWriteArrayList<>();
+    private User client;
+    private Case caseEntity;
+
+    @BeforeEach
+    void setUp() {
+        User lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        caseEntity = new Case();
+        caseEntity.setCaseNumber("CASE-1");
+        caseEntity.setTitle("Case 1");
+        caseEntity.setLawyer(lawyer);
+        caseEntity.setClient(client);
+        caseEntity = caseRepository.save(caseEntity);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        documentRepository.deleteAll();
+        documentBlobRepository.deleteAll();
+        caseRepository.deleteAll();
+        userRepository.deleteAll();
+        FileSystemUtils.deleteRecursively(ROOT);
+    }
+
+    @Test
+    void filesAreStoredBeforeTheTransactionAndRecordedInOne() throws IOException {
+        List<MultipartFile> files = List.of(file("contract.pdf", "contract"), file("id.png", "id card"));
+
+        List<Document> documents = documentService.uploadMultipleDocuments(files, caseEntity.getId(), null,
+            Document.DocumentCategory.OTHER, client);
+
+        assertThat(documents).extracting(Document::getName).containsExactly("contract.pdf", "id.png");
+        assertThat(documentRepository.count()).isEqualTo(2);
+        for (String content : List.of("contract", "id card")) {
+            String sha256 = sha256(content);
+            assertThat(storage.exists(sha256)).isTrue();
+            assertThat(documentBlobRepository.findById(sha256)).map(DocumentBlob::getRefCount).contains(1);
+        }
+        // Every read of the uploads happened with no transaction open
+        assertThat(readInTransaction).isNotEmpty().containsOnly(false);
+        assertThat(stagedFiles()).isEmpty();
+    }
+
+    @Test
+    void oneFailingFileLeavesNoRowsBlobsOrStagedFiles() throws IOException {
+        List<MultipartFile> files = List.of(file("a.pdf", "first"), failing("b.pdf"), file("c.pdf", "third"));
+
+        assertThatThrownBy(() -> documentService.uploadMultipleDocuments(files, caseEntity.getId(), null,
+            Document.DocumentCategory.OTHER, client))
+            .hasMessageContaining("Failed to upload file");
+
+        assertNothingLeft("first", "third");
+    }
+
+    @Test
+    void failedTransactionDeletesTheBlobsItStored() throws IOException {
+        doThrow(new IllegalStateException("audit unavailable")).when(caseAuditLog).record(any(), any(), any(), any());
+        List<MultipartFile> files = List.of(file("a.pdf", "first"), file("b.pdf", "second"));
+
+        assertThatThrownBy(() -> documentService.uploadMultipleDocuments(files, caseEntity.getId(), null,
+            Document.DocumentCategory.OTHER, client))
+            .hasMessage("audit unavailable");
+
+        assertNothingLeft("first", "second");
+    }
+
+    @Test
+    void failedUploadKeepsContentOtherDocumentsUse() throws IOException {
+        documentService.uploadDocument(file("a.pdf", "shared"), caseEntity.getId(), null, Document.DocumentCategory.OTHER, client);
+
+        assertThatThrownBy(() -> documentService.uploadMultipleDocuments(List.of(file("b.pdf", "shared"), failing("c.pdf")),
+            caseEntity.getId(), null, Document.DocumentCategory.OTHER, client))
+            .hasMessageContaining("Failed to upload file");
+
+        assertThat(documentRepository.count()).isEqualTo(1);
+        assertThat(storage.exists(sha256("shared"))).isTrue();
+        assertThat(documentBlobRepository.findById(sha256("shared"))).map(DocumentBlob::getRefCount).contains(1);
+    }
+
+    private void assertNothingLeft(String... contents) throws IOException {
+        assertThat(documentRepository.count()).isZero();
+        assertThat(documentBlobRepository.count()).isZero();
+        for (String content : contents) {
+            assertThat(storage.exists(sha256(content))).isFalse();
+        }
+        assertThat(stagedFiles()).isEmpty();
+    }
+
+    private List<Path> stagedFiles() throws IOException {
+        if (!Files.isDirectory(STAGING)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(STAGING)) {
+            return files.toList();
+        }
+    }
+
+    private MultipartFile file(String name, String content) {
+        return new MockMultipartFile("files", name, "application/octet-stream", content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                readInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                return super.getInputStream();
+            }
+        };
+    }
+
+    private static MultipartFile failing(String name) {
+        return new MockMultipartFile("files", name, "application/octet-stream", new byte[16]) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+    }
+
+    private static String sha256(String content) throws IOException {
+        return BlobStore.sha256(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,107 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.dto.HearingList;
+import com.casemate.pro.dto.HearingSummary;
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.CaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HearingServiceTest {
+
+    private static final int MAX_RESULTS = 3;
+
+    private final CaseRepository caseRepository = mock(CaseRepository.class);
+    private final HearingService hearingService = new HearingService(caseRepository);
+    private final User lawyer = new User();
+    private final List<HearingSummary> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hearingService, "defaultRangeDays", 30);
+        ReflectionTestUtils.setField(hearingService, "maxRangeDays", 366);
+        ReflectionTestUtils.setField(hearingService, "maxResults", MAX_RESULTS);
+        ReflectionTestUtils.setField(hearingService, "feedPastDays", 30);
+        ReflectionTestUtils.setField(hearingService, "feedFutureDays", 365);
+        ReflectionTestUtils.setField(hearingService, "durationMinutes", 60);
+        lawyer.setName("Lawyer");
+        lawyer.setRole(User.Role.LAWYER);
+        // Answers like the query would, up to the requested page size
+        when(caseRepository.findHearingsByLawyer(eq(lawyer), any(), any(), any())).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(3);
+            return List.copyOf(stored.subList(0, Math.min(stored.size(), pageable.getPageSize())));
+        });
+    }
+
+    @Test
+    void rangeWithinTheLimitIsComplete() {
+        addHearings(MAX_RESULTS);
+
+        HearingList hearings = hearingService.getHearings(lawyer, null, null);
+
+        assertThat(hearings.getHearings()).hasSize(MAX_RESULTS);
+        assertThat(hearings.isTruncated()).isFalse();
+    }
+
+    @Test
+    void rangeOverTheLimitIsMarkedTruncated() {
+        addHearings(MAX_RESULTS + 2);
+
+        HearingList hearings = hearingService.getHearings(lawyer, null, null);
+
+        assertThat(hearings.getHearings()).containsExactlyElementsOf(stored.subList(0, MAX_RESULTS));
+        assertThat(hearings.isTruncated()).isTrue();
+    }
+
+    @Test
+    void feedSaysWhenItIsTruncated() {
+        addHearings(MAX_RESULTS);
+        assertThat(feed()).doesNotContain("X-CASEMATE-TRUNCATED");
+
+        addHearings(1);
+
+        assertThat(feed())
+            .contains("X-CASEMATE-TRUNCATED:TRUE\r\n")
+            .contains("X-WR-CALDESC:Only the first 3 hearings are shown\r\n");
+    }
+
+    @Test
+    void descriptionLeavesOutAMissingName() {
+        addHearings(2);
+        stored.get(1).setClientName(null);
+
+        assertThat(feed())
+            .contains("DESCRIPTION:Client: Client 0\\nStatus: active\r\n")
+            .contains("DESCRIPTION:Status: active\r\n")
+            .doesNotContain("null");
+    }
+
+    private String feed() {
+        return new String(hearingService.getCalendarFeed(lawyer), StandardCharsets.UTF_8);
+    }
+
+    private void addHearings(int count) {
+        LocalDateTime start = LocalDate.now().plusDays(1).atTime(9, 0);
+        for (int i = 0; i < count; i++) {
+            int n = stored.size();
+            stored.add(new HearingSummary(UUID.randomUUID(), "CS-2026-" + n, "Case " + n, Case.Status.ACTIVE,
+                start.plusHours(n), "Client " + n, "Lawyer", start));
+        }
+    }
+}
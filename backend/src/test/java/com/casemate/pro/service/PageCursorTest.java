@@ -0,0 +1,76 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.Case;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    private static final UUID ID = UUID.fromString("00000000-0000-0000-0000-000000000042");
+
+    @Test
+    void roundTripsSortIdAndKey() {
+        String cursor = PageCursor.encode("title", ID, "Smith v. Jones");
+
+        assertThat(PageCursor.decode(cursor, "title")).isEqualTo(new PageCursor("title", ID, "Smith v. Jones"));
+    }
+
+    @Test
+    void keyMayContainTheSeparator() {
+        String cursor = PageCursor.encode("title", ID, "A | B | C");
+
+        assertThat(PageCursor.decode(cursor, "title").key()).isEqualTo("A | B | C");
+    }
+
+    @Test
+    void enumKeysAreEncodedByName() {
+        String cursor = PageCursor.encode("status", ID, Case.Status.ACTIVE);
+
+        assertThat(Case.Status.valueOf(PageCursor.decode(cursor, "status").key())).isEqualTo(Case.Status.ACTIVE);
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = PageCursor.encode("title", ID, "??>>~~");
+
+        assertThat(cursor).doesNotContain("+", "/", "=");
+    }
+
+    @Test
+    void missingCursorIsNull() {
+        assertThat(PageCursor.decode(null, "title")).isNull();
+        assertThat(PageCursor.decode("", "title")).isNull();
+    }
+
+    @Test
+    void cursorForAnotherSortIsRejected() {
+        String cursor = PageCursor.encode("recent", ID, "2024-01-01T00:00");
+
+        assertThatThrownBy(() -> PageCursor.decode(cursor, "title"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertThatThrownBy(() -> PageCursor.decode("not base64!", "title"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> PageCursor.decode(encodeRaw("title|not-a-uuid|x"), "title"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> PageCursor.decode(encodeRaw("title|" + ID), "title"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid cursor");
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
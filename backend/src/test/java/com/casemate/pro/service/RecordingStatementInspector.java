@@ -0,0 +1,30 @@
+package com.casemate.pro.service;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the SQL Hibernate prepares, so tests can check what reaches the database. Registered
+ * with {@code hibernate.session_factory.statement_inspector}; a batched statement is prepared,
+ * and recorded, once per batch.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    static List<String> statements() {
+        return List.copyOf(statements);
+    }
+
+    static void clear() {
+        statements.clear();
+    }
+}
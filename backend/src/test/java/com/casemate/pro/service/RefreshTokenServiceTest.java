@@ -0,0 +1,110 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RefreshTokenService.class)
+// Each call commits on its own, as it does when two requests race
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll();
+    }
+
+    @Test
+    void tokenCanBeUsedOnce() {
+        UUID userId = UUID.randomUUID();
+        String token = refreshTokenService.issue(userId);
+
+        assertThat(refreshTokenService.consume(token)).isEqualTo(userId);
+        assertThatThrownBy(() -> refreshTokenService.consume(token))
+            .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void reuseRevokesEveryTokenOfTheUser() {
+        UUID userId = UUID.randomUUID();
+        String used = refreshTokenService.issue(userId);
+        String other = refreshTokenService.issue(userId);
+        refreshTokenService.consume(used);
+
+        assertThatThrownBy(() -> refreshTokenService.consume(used))
+            .isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> refreshTokenService.consume(other))
+            .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        assertThatThrownBy(() -> refreshTokenService.consume("no-such-token"))
+            .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void onlyOneOfTwoConcurrentRefreshesSucceeds() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            UUID userId = UUID.randomUUID();
+            String token = refreshTokenService.issue(userId);
+            String sibling = refreshTokenService.issue(userId);
+
+            CyclicBarrier start = new CyclicBarrier(2);
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            List<Future<UUID>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return refreshTokenService.consume(token);
+                }));
+            }
+            pool.shutdown();
+            assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            int succeeded = 0;
+            int rejected = 0;
+            for (Future<UUID> result : results) {
+                try {
+                    assertThat(result.get()).isEqualTo(userId);
+                    succeeded++;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(BadCredentialsException.class);
+                    rejected++;
+                }
+            }
+            assertThat(succeeded).isEqualTo(1);
+            assertThat(rejected).isEqualTo(1);
+            // The loser is handled as a reuse, which ends the user's other sessions too
+            assertThatThrownBy(() -> refreshTokenService.consume(sibling))
+                .isInstanceOf(BadCredentialsException.class);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.controller.UserController;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.repository.RefreshTokenRepository;
+import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.security.JwtUtils;
+import com.casemate.pro.security.PasswordHasher;
+import com.casemate.pro.security.SecurityStampRegistry;
+import com.casemate.pro.security.TokenRevocationList;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserService.class, AuthService.class, UserCache.class, SecurityStampRegistry.class, RefreshTokenService.class,
+    UserServiceTest.Metrics.class})
+// Password changes open their own transaction once the hashing is done
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockBean
+    private PasswordHasher passwordHasher;
+
+    @MockBean
+    private JwtUtils jwtUtils;
+
+    @MockBean
+    private TokenRevocationList tokenRevocationList;
+
+    @MockBean
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    // Whether a transaction was open on the calling thread for each hasher call
+    private final List<Boolean> hashedInTransaction = new CopyOnWriteArrayList<>();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        when(passwordHasher.matches(any(), any())).thenAnswer(invocation -> {
+            hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return ("hash-of-" + invocation.getArgument(0)).equals(invocation.getArgument(1));
+        });
+        when(passwordHasher.encode(any())).thenAnswer(invocation -> {
+            hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return "hash-of-" + invocation.getArgument(0);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void passwordIsHashedBeforeTheTransactionOpens() {
+        refreshTokenService.issue(user.getId());
+
+        userService.changePassword(user.getId(), user.getEmail(), passwordChange("current", "new-secret"));
+
+        assertThat(hashedInTransaction).containsExactly(false, false);
+        User saved = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(saved.getPasswordHash()).isEqualTo("hash-of-new-secret");
+        assertThat(saved.getSecurityStamp()).isEqualTo(user.getSecurityStamp() + 1);
+        assertThat(refreshTokenRepository.findAll()).allSatisfy(token -> assertThat(token.isRevoked()).isTrue());
+    }
+
+    @Test
+    void passwordChangedWhileHashingIsNotOverwritten() {
+        when(passwordHasher.encode(any())).thenAnswer(invocation -> {
+            // Another request completes its own change while this one waits on the pool
+            User other = userRepository.findById(user.getId()).orElseThrow();
+            other.setPasswordHash("hash-of-other");
+            userRepository.save(other);
+            return "hash-of-" + invocation.getArgument(0);
+        });
+
+        assertThatThrownBy(() -> userService.changePassword(user.getId(), user.getEmail(), passwordChange("current", "new-secret")))
+            .hasMessageContaining("changed by another request");
+
+        assertThat(userRepository.findById(user.getId())).map(User::getPasswordHash).contains("hash-of-other");
+    }
+
+    @Test
+    void wrongCurrentPasswordHashesNothingNew() {
+        assertThatThrownBy(() -> userService.changePassword(user.getId(), user.getEmail(), passwordChange("guess", "new-secret")))
+            .hasMessage("Current password is incorrect");
+
+        assertThat(hashedInTransaction).containsExactly(false);
+        assertThat(userRepository.findById(user.getId())).map(User::getPasswordHash).contains("hash-of-current");
+    }
+
+    @Test
+    void profileChangeIsSeenThroughTheCache() {
+        assertThat(userCache.findByEmail("client@example.com")).map(User::getName).contains("client@example.com");
+        UserController.UpdateProfileRequest request = new UserController.UpdateProfileRequest();
+        request.setName("Renamed");
+        request.setEmail("renamed@example.com");
+
+        userService.updateUserProfile(user.getId(), user.getEmail(), request);
+
+        assertThat(userCache.findById(user.getId())).map(User::getName).contains("Renamed");
+        assertThat(userCache.findByEmail("client@example.com")).isEmpty();
+        assertThat(userCache.findByEmail("renamed@example.com")).map(User::getId).contains(user.getId());
+    }
+
+    @Test
+    void clientDetailsChangeIsSeenThroughTheCache() {
+        assertThat(userCache.findByEmail(user.getEmail())).map(User::getAge).isEmpty();
+
+        authService.updateUserProfile(user.getId(), 42, "Runs a bakery");
+
+        assertThat(userCache.findByEmail(user.getEmail())).map(User::getAge).contains(42);
+        assertThat(userCache.findById(user.getId())).map(User::getAboutClient).contains("Runs a bakery");
+    }
+
+    @Test
+    void roleChangeIsSeenThroughTheCache() {
+        assertThat(userCache.findById(user.getId())).map(User::getRole).contains(User.Role.CLIENT);
+
+        userService.changeRole(user.getId(), User.Role.LAWYER);
+
+        assertThat(userCache.findById(user.getId())).hasValueSatisfying(cached -> {
+            assertThat(cached.getRole()).isEqualTo(User.Role.LAWYER);
+            assertThat(cached.getSecurityStamp()).isEqualTo(user.getSecurityStamp() + 1);
+        });
+    }
+
+    @Test
+    void passwordChangeIsSeenThroughTheCache() {
+        assertThat(userCache.findById(user.getId())).map(User::getPasswordHash).contains("hash-of-current");
+
+        userService.changePassword(user.getId(), user.getEmail(), passwordChange("current", "new-secret"));
+
+        assertThat(userCache.findById(user.getId())).hasValueSatisfying(cached -> {
+            assertThat(cached.getPasswordHash()).isEqualTo("hash-of-new-secret");
+            assertThat(cached.getSecurityStamp()).isEqualTo(user.getSecurityStamp() + 1);
+        });
+    }
+
+    private static UserController.ChangePasswordRequest passwordChange(String current, String next) {
+        UserController.ChangePasswordRequest request = new UserController.ChangePasswordRequest();
+        request.setCurrentPassword(current);
+        request.setNewPassword(next);
+        return request;
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash-of-current");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,170 @@
+package com.casemate.pro.service;
+
+import com.casemate.pro.entity.Case;
+import com.casemate.pro.entity.User;
+import com.casemate.pro.entity.UserStats;
+import com.casemate.pro.repository.CaseRepository;
+import com.casemate.pro.repository.UserRepository;
+import com.casemate.pro.repository.UserStatsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rebuilds racing counter deltas. Each side commits on its own, as in production, so the row
+ * lock and the isolation level of the rebuild are what decide the outcome.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserStatsService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserStatsServiceTest {
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private ExecutorService executor;
+    private User lawyer;
+    private User client;
+    private final AtomicInteger caseNumbers = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        executor = Executors.newFixedThreadPool(4);
+        lawyer = userRepository.save(user("lawyer@example.com", User.Role.LAWYER));
+        client = userRepository.save(user("client@example.com", User.Role.CLIENT));
+        userStatsRepository.save(new UserStats(lawyer.getId()));
+        userStatsRepository.save(new UserStats(client.getId()));
+        transaction.executeWithoutResult(status -> createCase());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        caseRepository.deleteAll();
+        userStatsRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void rebuildFixesADriftedRow() {
+        UserStats drifted = stats(lawyer);
+        drifted.setTotalCases(7);
+        drifted.setPendingCases(0);
+        userStatsRepository.save(drifted);
+
+        userStatsService.rebuild(lawyer.getId());
+
+        assertThat(stats(lawyer).getTotalCases()).isEqualTo(1);
+        assertThat(stats(lawyer).getPendingCases()).isEqualTo(1);
+    }
+
+    @Test
+    void deltaCommittedWhileRebuildWaitsForTheLockIsCounted() throws Exception {
+        CountDownLatch deltaApplied = new CountDownLatch(1);
+        CountDownLatch commitDelta = new CountDownLatch(1);
+
+        // Creates a case and applies its delta, holding the stats row locks until told to commit
+        Future<?> delta = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            createCase();
+            deltaApplied.countDown();
+            await(commitDelta);
+        }));
+        assertThat(deltaApplied.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<?> rebuild = executor.submit(() -> userStatsService.rebuild(lawyer.getId()));
+        // Let the rebuild block on the stats row lock before the delta commits
+        Thread.sleep(200);
+        assertThat(rebuild.isDone()).isFalse();
+        commitDelta.countDown();
+
+        delta.get(5, TimeUnit.SECONDS);
+        rebuild.get(5, TimeUnit.SECONDS);
+        assertThat(stats(lawyer).getTotalCases()).isEqualTo(2);
+        assertThat(stats(lawyer).getPendingCases()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentDeltasAndRebuildsEndOnTheTrueCounts() throws Exception {
+        int cases = 20;
+        List<Future<?>> work = new ArrayList<>();
+        for (int i = 0; i < cases; i++) {
+            work.add(executor.submit(() -> transaction.executeWithoutResult(status -> createCase())));
+            if (i % 5 == 0) {
+                work.add(executor.submit(() -> userStatsService.rebuild(lawyer.getId())));
+            }
+        }
+        for (Future<?> future : work) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        long committed = caseRepository.count();
+        assertThat(stats(lawyer).getTotalCases()).isEqualTo(committed);
+        assertThat(stats(client).getTotalCases()).isEqualTo(committed);
+        assertThat(stats(lawyer).getPendingCases()).isEqualTo(committed);
+    }
+
+    // Runs inside the caller's transaction, like CaseService.createCase
+    private void createCase() {
+        Case caseEntity = new Case();
+        caseEntity.setCaseNumber("CASE-" + caseNumbers.incrementAndGet());
+        caseEntity.setTitle("Case");
+        caseEntity.setLawyer(lawyer);
+        caseEntity.setClient(client);
+        userStatsService.caseCreated(caseRepository.saveAndFlush(caseEntity));
+    }
+
+    private UserStats stats(User user) {
+        return userStatsRepository.findById(user.getId()).orElseThrow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static User user(String email, User.Role role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("hash");
+        user.setName(email);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,280 @@
+package com.casemate.pro.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the client against a small in-memory stand-in for S3, served over real HTTP, covering
+ * the requests it sends: object PUT, HEAD, GET with and without Range, DELETE, and multipart
+ * uploads.
+ */
+class S3DocumentStorageTest {
+
+    private static final String KEY = "ab12cd34";
+    private static final String OBJECT_PATH = "/bucket/documents/" + KEY;
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+    private static final long REQUEST_TIMEOUT_MILLIS = 1000;
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    @TempDir
+    Path dir;
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile long responseDelayMillis;
+    private volatile int failingPart;
+
+    private ExecutorService executor;
+    private HttpServer server;
+    private S3DocumentStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        storage = new S3DocumentStorage("http://127.0.0.1:" + server.getAddress().getPort(), "bucket", "documents/",
+            "us-east-1", "access", "secret", 1000, REQUEST_TIMEOUT_MILLIS, 10_000, PART_SIZE, PART_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void putGetAndDelete() throws IOException {
+        byte[] content = randomBytes(1000);
+        Path source = write(content);
+
+        storage.put(KEY, source);
+
+        assertThat(objects.get(OBJECT_PATH)).isEqualTo(content);
+        assertThat(source).doesNotExist();
+        assertThat(requests).contains("PUT " + OBJECT_PATH);
+        assertThat(storage.exists(KEY)).isTrue();
+
+        Resource resource = storage.get(KEY);
+        assertThat(resource.contentLength()).isEqualTo(content.length);
+        assertThat(resource.lastModified()).isPositive();
+        try (InputStream in = resource.getInputStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+
+        storage.delete(KEY);
+
+        assertThat(storage.exists(KEY)).isFalse();
+        assertThatThrownBy(() -> storage.get(KEY)).isInstanceOf(FileNotFoundException.class);
+        // Deleting what is already gone is not an error
+        storage.delete(KEY);
+    }
+
+    @Test
+    void readFromAnOffsetAsksForJustThatRange() throws IOException {
+        byte[] content = randomBytes(1000);
+        storage.put(KEY, write(content));
+
+        try (InputStream in = storage.get(KEY).getInputStream()) {
+            assertThat(in.skip(600)).isEqualTo(600);
+            assertThat(in.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 600, content.length));
+        }
+
+        assertThat(requests).contains("GET " + OBJECT_PATH + " bytes=600-");
+    }
+
+    @Test
+    void largeFileIsUploadedInParts() throws IOException {
+        byte[] content = randomBytes((int) (2 * PART_SIZE + 1234));
+
+        storage.put(KEY, write(content));
+
+        assertThat(objects.get(OBJECT_PATH)).isEqualTo(content);
+        assertThat(requests).containsExactly(
+            "POST " + OBJECT_PATH + "?uploads=",
+            "PUT " + OBJECT_PATH + "?partNumber=1&uploadId=upload-1",
+            "PUT " + OBJECT_PATH + "?partNumber=2&uploadId=upload-1",
+            "PUT " + OBJECT_PATH + "?partNumber=3&uploadId=upload-1",
+            "POST " + OBJECT_PATH + "?uploadId=upload-1"
+        );
+    }
+
+    @Test
+    void failedPartAbortsTheUpload() throws IOException {
+        failingPart = 2;
+        Path source = write(randomBytes((int) (2 * PART_SIZE + 1234)));
+
+        assertThatThrownBy(() -> storage.put(KEY, source))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("part 2");
+
+        assertThat(requests).endsWith("DELETE " + OBJECT_PATH + "?uploadId=upload-1");
+        assertThat(parts).isEmpty();
+        assertThat(objects).isEmpty();
+        // Left for the caller, which owns it
+        assertThat(source).exists();
+    }
+
+    @Test
+    void slowStoreTimesOut() {
+        responseDelayMillis = 3 * REQUEST_TIMEOUT_MILLIS;
+
+        assertThatThrownBy(() -> storage.exists(KEY)).isInstanceOf(HttpTimeoutException.class);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            requests.add(method + " " + path + (query == null ? "" : "?" + query) + (range == null ? "" : " " + range));
+            byte[] body = exchange.getRequestBody().readAllBytes();
+
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=access/")
+                    || exchange.getRequestHeaders().getFirst("x-amz-date") == null) {
+                respond(exchange, 403, new byte[0]);
+                return;
+            }
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+
+            Map<String, String> params = parseQuery(query);
+            if (params.containsKey("uploads")) {
+                parts.clear();
+                respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>upload-1</UploadId></InitiateMultipartUploadResult>"
+                    .getBytes(StandardCharsets.UTF_8));
+            } else if (params.containsKey("partNumber")) {
+                int partNumber = Integer.parseInt(params.get("partNumber"));
+                if (partNumber == failingPart) {
+                    respond(exchange, 500, "<Error><Code>InternalError</Code></Error>".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                parts.put(partNumber, body);
+                exchange.getResponseHeaders().set("ETag", "\"etag-" + partNumber + "\"");
+                respond(exchange, 200, new byte[0]);
+            } else if (params.containsKey("uploadId") && method.equals("POST")) {
+                ByteArrayOutputStream joined = new ByteArrayOutputStream();
+                Matcher partNumbers = PART_NUMBER.matcher(new String(body, StandardCharsets.UTF_8));
+                while (partNumbers.find()) {
+                    joined.writeBytes(parts.remove(Integer.parseInt(partNumbers.group(1))));
+                }
+                objects.put(path, joined.toByteArray());
+                respond(exchange, 200, "<CompleteMultipartUploadResult/>".getBytes(StandardCharsets.UTF_8));
+            } else if (params.containsKey("uploadId")) {
+                parts.clear();
+                respond(exchange, 204, null);
+            } else {
+                handleObject(exchange, method, path, range, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String method, String path, String range, byte[] body) throws IOException {
+        byte[] object = objects.get(path);
+        switch (method) {
+            case "PUT" -> {
+                objects.put(path, body);
+                respond(exchange, 200, new byte[0]);
+            }
+            case "DELETE" -> {
+                objects.remove(path);
+                respond(exchange, 204, null);
+            }
+            case "HEAD" -> {
+                if (object == null) {
+                    respond(exchange, 404, null);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                exchange.getResponseHeaders().set("Last-Modified",
+                    DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+                respond(exchange, 200, null);
+            }
+            case "GET" -> {
+                if (object == null) {
+                    respond(exchange, 404, new byte[0]);
+                } else if (range != null) {
+                    int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                    exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + start + "-" + (object.length - 1) + "/" + object.length);
+                    respond(exchange, 206, Arrays.copyOfRange(object, start, object.length));
+                } else {
+                    respond(exchange, 200, object);
+                }
+            }
+            default -> respond(exchange, 405, new byte[0]);
+        }
+    }
+
+    // A null body sends no body at all, as for HEAD and 204 responses
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                params.put(equals < 0 ? parameter : parameter.substring(0, equals), equals < 0 ? "" : parameter.substring(equals + 1));
+            }
+        }
+        return params;
+    }
+
+    private Path write(byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(dir, "upload", ".tmp"), content);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}